@@ -0,0 +1,52 @@
+(function () {
+    var APP_URL = 'https://optioninsights.in/welcome/';
+
+    function formatAmount(txn) {
+        var sign = txn.type === 'credit' ? '+' : '-';
+        return sign + '₹' + Number(txn.amount).toLocaleString('en-IN', {maximumFractionDigits: 2});
+    }
+
+    function render() {
+        var list = document.getElementById('txns');
+        var empty = document.getElementById('empty');
+        var txns = [];
+        try {
+            if (window.BudgetIQSms) txns = JSON.parse(window.BudgetIQSms.getRecentTransactions(30));
+        } catch (e) {
+            txns = [];
+        }
+
+        txns.sort(function (a, b) { return b.timestamp - a.timestamp; });
+        list.innerHTML = '';
+        txns.forEach(function (txn) {
+            var li = document.createElement('li');
+            var left = document.createElement('div');
+            left.textContent = txn.merchant || txn.sender || 'Transaction';
+            var meta = document.createElement('div');
+            meta.className = 'meta';
+            meta.textContent = txn.date + (txn.account ? ' · ' + txn.account : '');
+            left.appendChild(meta);
+            var amount = document.createElement('span');
+            amount.className = txn.type === 'credit' ? 'credit' : 'debit';
+            amount.textContent = formatAmount(txn);
+            li.appendChild(left);
+            li.appendChild(amount);
+            list.appendChild(li);
+        });
+        empty.classList.toggle('hidden', txns.length > 0);
+    }
+
+    function updateStatus() {
+        document.getElementById('status').textContent = navigator.onLine ? 'Online' : 'Offline';
+    }
+
+    document.getElementById('retry').addEventListener('click', function () {
+        window.location.href = APP_URL;
+    });
+    window.addEventListener('online', updateStatus);
+    window.addEventListener('offline', updateStatus);
+    window.onNativeBridgeReady = render;
+
+    updateStatus();
+    render();
+})();
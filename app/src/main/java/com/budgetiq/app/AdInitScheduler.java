@@ -0,0 +1,120 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.ads.MobileAds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the ad SDK off the critical startup path.
+ *
+ * - MobileAds.initialize runs on the shared background executor, only after the page's first paint
+ * - Ad formats are preloaded only if the web app used them recently (see recordUse)
+ * - Subscribed users never initialize the ad SDK at all
+ *
+ * AdManager and AppOpenAdManager register with whenReady() instead of loading on construction.
+ */
+public final class AdInitScheduler {
+
+    private static final String TAG = "AdInitScheduler";
+    private static final String PREFS_NAME = "budgetiq_ads";
+    private static final long RECENT_USE_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+
+    public static final String FORMAT_INTERSTITIAL = "interstitial";
+    public static final String FORMAT_REWARDED = "rewarded";
+    public static final String FORMAT_APP_OPEN = "app_open";
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final List<Runnable> pending = new ArrayList<>();
+    private static boolean started = false;
+    private static volatile boolean initialized = false;
+
+    private AdInitScheduler() {}
+
+    /**
+     * Called once the page has painted. Idempotent.
+     */
+    public static void start(Context context) {
+        Context app = context.getApplicationContext();
+        synchronized (pending) {
+            if (started) return;
+            if (isSubscribed(app)) {
+                Log.d(TAG, "Subscribed user - skipping ad SDK init");
+                return;
+            }
+            started = true;
+        }
+
+        AppExecutors.background().execute(() -> {
+            StartupTracer.begin(StartupTracer.MOBILE_ADS_INIT);
+            MobileAds.initialize(app, status -> {
+                StartupTracer.end(StartupTracer.MOBILE_ADS_INIT);
+                onInitialized();
+            });
+        });
+    }
+
+    private static void onInitialized() {
+        List<Runnable> callbacks;
+        synchronized (pending) {
+            initialized = true;
+            callbacks = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Runnable r : callbacks) {
+            mainHandler.post(r);
+        }
+    }
+
+    public static boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Run on the main thread once the SDK is initialized (immediately if it already is).
+     * Never runs for subscribed users.
+     */
+    public static void whenReady(Runnable callback) {
+        synchronized (pending) {
+            if (!initialized) {
+                pending.add(callback);
+                return;
+            }
+        }
+        mainHandler.post(callback);
+    }
+
+    /**
+     * Ads are skipped entirely for subscribers (last known status, see EntitlementCache).
+     */
+    public static boolean isSubscribed(Context context) {
+        return EntitlementCache.get(context).isActive();
+    }
+
+    // ==================== USAGE TRACKING ====================
+
+    /**
+     * Record that the web app asked for a format, so it gets preloaded on future launches.
+     */
+    public static void recordUse(Context context, String format) {
+        prefs(context).edit().putLong(format + "_last_used", System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Whether a format was used within RECENT_USE_MS and is worth preloading.
+     */
+    public static boolean isLikelyUsed(Context context, String format) {
+        long lastUsed = prefs(context).getLong(format + "_last_used", 0);
+        return System.currentTimeMillis() - lastUsed < RECENT_USE_MS;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
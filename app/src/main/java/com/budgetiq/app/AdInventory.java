@@ -0,0 +1,317 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.ads.AdRequest;
+import com.google.android.gms.ads.LoadAdError;
+import com.google.android.gms.ads.appopen.AppOpenAd;
+import com.google.android.gms.ads.interstitial.InterstitialAd;
+import com.google.android.gms.ads.interstitial.InterstitialAdLoadCallback;
+import com.google.android.gms.ads.rewarded.RewardedAd;
+import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide pool of loaded ads, one slot per format.
+ *
+ * Ads are loaded with the application context and kept here, so a preloaded
+ * interstitial or rewarded ad survives MainActivity being recreated. AdManager and
+ * AppOpenAdManager take ads from the pool right before showing them and hand the slot
+ * back when the ad is gone. AdPreloadScheduler still decides when each slot loads.
+ *
+ * Also tracks what happens to every load so wasted loads can be measured:
+ * requested, filled, failed, shown and wasted (expired or released without being shown).
+ *
+ * Loads and listener callbacks happen on the main thread; readiness can be checked
+ * from any thread.
+ */
+public final class AdInventory {
+
+    private static final String TAG = "AdInventory";
+
+    // Ad Unit IDs - client's real IDs (app ID: ca-app-pub-6353903215132082~5260206124)
+    private static final String INTERSTITIAL_AD_UNIT = "ca-app-pub-6353903215132082/4616082565";
+    private static final String REWARDED_AD_UNIT = "ca-app-pub-6353903215132082/6590994194";
+    private static final String REWARDED_INTERSTITIAL_AD_UNIT = "ca-app-pub-6353903215132082/5336797865";
+    private static final String APP_OPEN_AD_UNIT = "ca-app-pub-6353903215132082/6486228008";
+
+    // Test ad unit IDs (used during development)
+    private static final String TEST_INTERSTITIAL = "ca-app-pub-3940256099942544/1033173712";
+    private static final String TEST_REWARDED = "ca-app-pub-3940256099942544/5224354917";
+    private static final String TEST_APP_OPEN = "ca-app-pub-3940256099942544/9257395921";
+
+    // Production mode - using real ad unit IDs
+    private static final boolean USE_TEST_ADS = false;
+
+    public interface Listener {
+        /** A slot filled (ready == true) or a load failed (ready == false). */
+        void onInventoryChanged(String format, boolean ready);
+    }
+
+    private static class Entry {
+        Object ad;
+        long loadedAt;      // elapsedRealtime
+        boolean loading;
+        boolean showing;
+        int requested;
+        int filled;
+        int failed;
+        int shown;
+        int wasted;
+        String lastError = "";
+    }
+
+    private static volatile AdInventory instance;
+
+    private final Context context;
+    private final AdPreloadScheduler scheduler;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public static AdInventory get(Context context) {
+        if (instance == null) {
+            synchronized (AdInventory.class) {
+                if (instance == null) {
+                    instance = new AdInventory(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AdInventory(Context context) {
+        this.context = context;
+        this.scheduler = AdPreloadScheduler.get(context);
+        for (String format : new String[]{AdInitScheduler.FORMAT_INTERSTITIAL,
+                AdInitScheduler.FORMAT_REWARDED, AdInitScheduler.FORMAT_APP_OPEN}) {
+            entries.put(format, new Entry());
+            scheduler.register(format, new AdPreloadScheduler.Loader() {
+                @Override
+                public void load(AdPreloadScheduler.LoadResult result) {
+                    AdInventory.this.load(format, result);
+                }
+
+                @Override
+                public void discard() {
+                    drop(format);
+                }
+            });
+        }
+        MemoryGovernor.register(level -> {
+            if (MemoryGovernor.shouldReleaseExpensive(level)) {
+                for (String format : entries.keySet()) scheduler.release(format);
+            }
+        });
+    }
+
+    // ==================== CALLERS ====================
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Whether a fresh ad of this format is waiting in the pool.
+     */
+    public boolean isReady(String format) {
+        Entry entry = entries.get(format);
+        if (entry == null) return false;
+        synchronized (entry) {
+            return entry.ad != null
+                    && SystemClock.elapsedRealtime() - entry.loadedAt < AdPreloadScheduler.expiryFor(format);
+        }
+    }
+
+    /**
+     * Whether any full-screen ad taken from the pool is currently on screen.
+     */
+    public boolean isShowingAny() {
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.showing) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ask for an ad (main thread). demand == true when the page wants one right now.
+     */
+    public void request(String format, boolean demand) {
+        scheduler.request(format, demand);
+    }
+
+    /**
+     * Take the ad out of the pool to show it (main thread). Returns null if there is no
+     * fresh ad. The caller must call consumed() once the ad is dismissed or failed to show.
+     */
+    public <T> T take(String format, Class<T> type) {
+        Entry entry = entries.get(format);
+        if (entry == null || !isReady(format)) return null;
+        synchronized (entry) {
+            if (!type.isInstance(entry.ad)) return null;
+            T ad = type.cast(entry.ad);
+            entry.ad = null;
+            entry.showing = true;
+            entry.shown++;
+            return ad;
+        }
+    }
+
+    /**
+     * The ad taken for this format is gone; the slot may load the next one.
+     */
+    public void consumed(String format) {
+        Entry entry = entries.get(format);
+        if (entry == null) return;
+        synchronized (entry) {
+            entry.showing = false;
+        }
+        scheduler.onConsumed(format);
+    }
+
+    /**
+     * Per-format state and counters as JSON:
+     * {format: {state, ageMs, requested, filled, failed, shown, wasted, lastError}}.
+     * state is "ready", "loading", "showing" or "empty".
+     */
+    public String getStats() {
+        try {
+            JSONObject json = new JSONObject();
+            long now = SystemClock.elapsedRealtime();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                JSONObject stats = new JSONObject();
+                synchronized (entry) {
+                    stats.put("state", entry.showing ? "showing"
+                            : entry.ad != null ? "ready" : entry.loading ? "loading" : "empty");
+                    stats.put("ageMs", entry.ad != null ? now - entry.loadedAt : 0);
+                    stats.put("requested", entry.requested);
+                    stats.put("filled", entry.filled);
+                    stats.put("failed", entry.failed);
+                    stats.put("shown", entry.shown);
+                    stats.put("wasted", entry.wasted);
+                    stats.put("lastError", entry.lastError);
+                }
+                json.put(e.getKey(), stats);
+            }
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    // ==================== LOADING ====================
+
+    private void load(String format, AdPreloadScheduler.LoadResult result) {
+        Entry entry = entries.get(format);
+        synchronized (entry) {
+            entry.loading = true;
+            entry.requested++;
+        }
+        AdRequest request = new AdRequest.Builder().build();
+        if (AdInitScheduler.FORMAT_INTERSTITIAL.equals(format)) {
+            InterstitialAd.load(context, USE_TEST_ADS ? TEST_INTERSTITIAL : INTERSTITIAL_AD_UNIT, request,
+                    new InterstitialAdLoadCallback() {
+                        @Override
+                        public void onAdLoaded(@NonNull InterstitialAd ad) {
+                            filled(format, ad, result);
+                        }
+
+                        @Override
+                        public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                            failed(format, loadAdError.getMessage(), result);
+                        }
+                    });
+        } else if (AdInitScheduler.FORMAT_REWARDED.equals(format)) {
+            RewardedAd.load(context, USE_TEST_ADS ? TEST_REWARDED : REWARDED_AD_UNIT, request,
+                    new RewardedAdLoadCallback() {
+                        @Override
+                        public void onAdLoaded(@NonNull RewardedAd ad) {
+                            filled(format, ad, result);
+                        }
+
+                        @Override
+                        public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                            failed(format, loadAdError.getMessage(), result);
+                        }
+                    });
+        } else {
+            AppOpenAd.load(context, USE_TEST_ADS ? TEST_APP_OPEN : APP_OPEN_AD_UNIT, request,
+                    new AppOpenAd.AppOpenAdLoadCallback() {
+                        @Override
+                        public void onAdLoaded(@NonNull AppOpenAd ad) {
+                            filled(format, ad, result);
+                        }
+
+                        @Override
+                        public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                            failed(format, loadAdError.getMessage(), result);
+                        }
+                    });
+        }
+    }
+
+    private void filled(String format, Object ad, AdPreloadScheduler.LoadResult result) {
+        Entry entry = entries.get(format);
+        synchronized (entry) {
+            entry.ad = ad;
+            entry.loadedAt = SystemClock.elapsedRealtime();
+            entry.loading = false;
+            entry.filled++;
+            entry.lastError = "";
+        }
+        Log.d(TAG, format + " ad loaded");
+        result.onLoaded();
+        notifyListeners(format, true);
+    }
+
+    private void failed(String format, String error, AdPreloadScheduler.LoadResult result) {
+        Entry entry = entries.get(format);
+        synchronized (entry) {
+            entry.loading = false;
+            entry.failed++;
+            entry.lastError = error != null ? error : "";
+        }
+        Log.e(TAG, format + " ad failed to load: " + error);
+        result.onFailed(error);
+        notifyListeners(format, false);
+    }
+
+    /**
+     * Expired or released by the scheduler: an ad dropped here was never shown.
+     */
+    private void drop(String format) {
+        Entry entry = entries.get(format);
+        synchronized (entry) {
+            if (entry.ad == null) return;
+            entry.ad = null;
+            entry.wasted++;
+        }
+        Log.d(TAG, format + " ad dropped unused");
+    }
+
+    private void notifyListeners(String format, boolean ready) {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            try {
+                listener.onInventoryChanged(format, ready);
+            } catch (Exception e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -7,14 +7,9 @@ import android.webkit.WebView;
 import androidx.annotation.NonNull;
 
 import com.google.android.gms.ads.AdError;
-import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.FullScreenContentCallback;
-import com.google.android.gms.ads.LoadAdError;
-import com.google.android.gms.ads.OnUserEarnedRewardListener;
 import com.google.android.gms.ads.interstitial.InterstitialAd;
-import com.google.android.gms.ads.interstitial.InterstitialAdLoadCallback;
 import com.google.android.gms.ads.rewarded.RewardedAd;
-import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
 
 /**
  * AdMob interstitial + rewarded ads via JavaScript bridge.
@@ -22,107 +17,70 @@ import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
  *
  * - Interstitial: shown at natural breaks (task completion, module finish)
  * - Rewarded: user watches video to unlock Trade Desk features
+ *
+ * Loaded ads live in the process-wide AdInventory, so they survive activity
+ * recreation; AdPreloadScheduler decides when they load.
  */
-public class AdManager {
+public class AdManager implements AdInventory.Listener {
 
     private static final String TAG = "AdManager";
 
-    // Ad Unit IDs - client's real IDs (app ID: ca-app-pub-6353903215132082~5260206124)
-    private static final String INTERSTITIAL_AD_UNIT = "ca-app-pub-6353903215132082/4616082565";
-    private static final String REWARDED_AD_UNIT = "ca-app-pub-6353903215132082/6590994194";
-    private static final String REWARDED_INTERSTITIAL_AD_UNIT = "ca-app-pub-6353903215132082/5336797865";
-
-    // Test ad unit IDs (used during development)
-    private static final String TEST_INTERSTITIAL = "ca-app-pub-3940256099942544/1033173712";
-    private static final String TEST_REWARDED = "ca-app-pub-3940256099942544/5224354917";
-
-    // Production mode - using real ad unit IDs
-    private static final boolean USE_TEST_ADS = false;
+    private static final String INTERSTITIAL = AdInitScheduler.FORMAT_INTERSTITIAL;
+    private static final String REWARDED = AdInitScheduler.FORMAT_REWARDED;
 
     private final MainActivity activity;
-    private InterstitialAd interstitialAd;
-    private RewardedAd rewardedAd;
-    private boolean isLoadingInterstitial = false;
-    private boolean isLoadingRewarded = false;
+    private final AdInventory inventory;
 
     public AdManager(MainActivity activity) {
         this.activity = activity;
-        preloadAds();
-    }
-
-    private void preloadAds() {
-        loadInterstitial();
-        loadRewarded();
-    }
-
-    private String getInterstitialUnit() {
-        return USE_TEST_ADS ? TEST_INTERSTITIAL : INTERSTITIAL_AD_UNIT;
+        // Preloading starts with the inventory and is shared with the app open ad
+        inventory = AdInventory.get(activity);
+        inventory.addListener(this);
     }
 
-    private String getRewardedUnit() {
-        return USE_TEST_ADS ? TEST_REWARDED : REWARDED_AD_UNIT;
+    @Override
+    public void onInventoryChanged(String format, boolean ready) {
+        if (REWARDED.equals(format)) {
+            notifyWebView("onRewardedAdReady", String.valueOf(ready));
+        }
     }
 
     // ==================== INTERSTITIAL ADS ====================
 
-    private void loadInterstitial() {
-        if (isLoadingInterstitial || interstitialAd != null) return;
-        isLoadingInterstitial = true;
-
-        InterstitialAd.load(activity, getInterstitialUnit(),
-                new AdRequest.Builder().build(),
-                new InterstitialAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull InterstitialAd ad) {
-                        interstitialAd = ad;
-                        isLoadingInterstitial = false;
-                        Log.d(TAG, "Interstitial loaded");
-
-                        ad.setFullScreenContentCallback(new FullScreenContentCallback() {
-                            @Override
-                            public void onAdDismissedFullScreenContent() {
-                                interstitialAd = null;
-                                loadInterstitial(); // Preload next
-                                notifyWebView("onInterstitialDismissed", "");
-                            }
-
-                            @Override
-                            public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
-                                interstitialAd = null;
-                                loadInterstitial();
-                                notifyWebView("onInterstitialFailed", "'" + adError.getMessage() + "'");
-                            }
-
-                            @Override
-                            public void onAdShowedFullScreenContent() {
-                                Log.d(TAG, "Interstitial shown");
-                            }
-                        });
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        interstitialAd = null;
-                        isLoadingInterstitial = false;
-                        Log.e(TAG, "Interstitial load failed: " + loadAdError.getMessage());
-                    }
-                });
-    }
-
     /**
      * JS bridge: Show interstitial ad at natural break point
      * Called from web: BudgetIQAds.showInterstitial()
      */
     @JavascriptInterface
     public void showInterstitial() {
+        AdInitScheduler.recordUse(activity, INTERSTITIAL);
         activity.runOnUiThread(() -> {
-            if (interstitialAd != null) {
-                interstitialAd.show(activity);
-            } else {
+            InterstitialAd ad = inventory.take(INTERSTITIAL, InterstitialAd.class);
+            if (ad == null) {
                 Log.d(TAG, "Interstitial not ready, loading...");
-                loadInterstitial();
+                inventory.request(INTERSTITIAL, true);
                 notifyWebView("onInterstitialDismissed", ""); // Don't block user
+                return;
             }
+            ad.setFullScreenContentCallback(new FullScreenContentCallback() {
+                @Override
+                public void onAdDismissedFullScreenContent() {
+                    inventory.consumed(INTERSTITIAL); // Preload next
+                    notifyWebView("onInterstitialDismissed", "");
+                }
+
+                @Override
+                public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                    inventory.consumed(INTERSTITIAL);
+                    notifyWebView("onInterstitialFailed", "'" + adError.getMessage() + "'");
+                }
+
+                @Override
+                public void onAdShowedFullScreenContent() {
+                    Log.d(TAG, "Interstitial shown");
+                }
+            });
+            ad.show(activity);
         });
     }
 
@@ -131,56 +89,14 @@ public class AdManager {
      */
     @JavascriptInterface
     public boolean isInterstitialReady() {
-        return interstitialAd != null;
+        AdInitScheduler.recordUse(activity, INTERSTITIAL);
+        boolean ready = inventory.isReady(INTERSTITIAL);
+        if (!ready) activity.runOnUiThread(() -> inventory.request(INTERSTITIAL, true));
+        return ready;
     }
 
     // ==================== REWARDED ADS ====================
 
-    private void loadRewarded() {
-        if (isLoadingRewarded || rewardedAd != null) return;
-        isLoadingRewarded = true;
-
-        RewardedAd.load(activity, getRewardedUnit(),
-                new AdRequest.Builder().build(),
-                new RewardedAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull RewardedAd ad) {
-                        rewardedAd = ad;
-                        isLoadingRewarded = false;
-                        Log.d(TAG, "Rewarded ad loaded");
-                        notifyWebView("onRewardedAdReady", "true");
-
-                        ad.setFullScreenContentCallback(new FullScreenContentCallback() {
-                            @Override
-                            public void onAdDismissedFullScreenContent() {
-                                rewardedAd = null;
-                                loadRewarded(); // Preload next
-                            }
-
-                            @Override
-                            public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
-                                rewardedAd = null;
-                                loadRewarded();
-                                notifyWebView("onRewardedAdFailed", "'" + adError.getMessage() + "'");
-                            }
-
-                            @Override
-                            public void onAdShowedFullScreenContent() {
-                                Log.d(TAG, "Rewarded ad shown");
-                            }
-                        });
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        rewardedAd = null;
-                        isLoadingRewarded = false;
-                        Log.e(TAG, "Rewarded load failed: " + loadAdError.getMessage());
-                        notifyWebView("onRewardedAdReady", "false");
-                    }
-                });
-    }
-
     /**
      * JS bridge: Show rewarded ad (user opts in to watch video for reward)
      * Called from web: BudgetIQAds.showRewarded('feature_name')
@@ -188,17 +104,36 @@ public class AdManager {
      */
     @JavascriptInterface
     public void showRewarded(String featureName) {
+        AdInitScheduler.recordUse(activity, REWARDED);
         activity.runOnUiThread(() -> {
-            if (rewardedAd != null) {
-                rewardedAd.show(activity, rewardItem -> {
-                    Log.d(TAG, "User earned reward for: " + featureName);
-                    notifyWebView("onRewardEarned", "'" + featureName + "'");
-                });
-            } else {
+            RewardedAd ad = inventory.take(REWARDED, RewardedAd.class);
+            if (ad == null) {
                 Log.d(TAG, "Rewarded ad not ready, loading...");
-                loadRewarded();
+                inventory.request(REWARDED, true);
                 notifyWebView("onRewardedAdFailed", "'Ad not ready. Please try again.'");
+                return;
             }
+            ad.setFullScreenContentCallback(new FullScreenContentCallback() {
+                @Override
+                public void onAdDismissedFullScreenContent() {
+                    inventory.consumed(REWARDED); // Preload next
+                }
+
+                @Override
+                public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
+                    inventory.consumed(REWARDED);
+                    notifyWebView("onRewardedAdFailed", "'" + adError.getMessage() + "'");
+                }
+
+                @Override
+                public void onAdShowedFullScreenContent() {
+                    Log.d(TAG, "Rewarded ad shown");
+                }
+            });
+            ad.show(activity, rewardItem -> {
+                Log.d(TAG, "User earned reward for: " + featureName);
+                notifyWebView("onRewardEarned", "'" + featureName + "'");
+            });
         });
     }
 
@@ -207,7 +142,10 @@ public class AdManager {
      */
     @JavascriptInterface
     public boolean isRewardedReady() {
-        return rewardedAd != null;
+        AdInitScheduler.recordUse(activity, REWARDED);
+        boolean ready = inventory.isReady(REWARDED);
+        if (!ready) activity.runOnUiThread(() -> inventory.request(REWARDED, true));
+        return ready;
     }
 
     // ==================== UTILITY ====================
@@ -222,8 +160,10 @@ public class AdManager {
         });
     }
 
+    /**
+     * Loaded ads stay in the inventory for the next activity instance.
+     */
     public void destroy() {
-        interstitialAd = null;
-        rewardedAd = null;
+        inventory.removeListener(this);
     }
 }
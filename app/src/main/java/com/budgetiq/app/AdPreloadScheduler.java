@@ -0,0 +1,269 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Decides when interstitial, rewarded and app open ads are loaded.
+ *
+ * AdInventory registers a Loader per format and asks for loads through request();
+ * nothing loads ads directly. For each format the scheduler:
+ * - waits for the deferred SDK init and never loads for subscribers (AdInitScheduler)
+ * - preloads only formats the page used recently; an explicit request from the page
+ *   (show / isReady) always counts. App open ads follow app starts, so always qualify
+ * - backs off exponentially with jitter after load failures (no fill, network)
+ * - pauses while offline and resumes on the next connectivity change
+ * - expires loaded ads after EXPIRY_MS and reloads them only if still likely to be used
+ *
+ * Main thread only.
+ */
+public final class AdPreloadScheduler implements ConnectivityMonitor.Listener {
+
+    private static final String TAG = "AdPreloadScheduler";
+    private static final long BASE_BACKOFF_MS = 30 * 1000;
+    private static final long MAX_BACKOFF_MS = 30 * 60 * 1000;
+    // AdMob guidance: full-screen ads go stale after an hour, app open ads after 4 hours
+    private static final long FULLSCREEN_EXPIRY_MS = 60 * 60 * 1000;
+    private static final long APP_OPEN_EXPIRY_MS = 4 * 60 * 60 * 1000;
+
+    public interface Loader {
+        /** Start a load and report exactly once to the result. */
+        void load(LoadResult result);
+
+        /** The loaded ad expired (or was released); drop the reference. */
+        void discard();
+    }
+
+    public interface LoadResult {
+        void onLoaded();
+
+        void onFailed(String error);
+    }
+
+    private static class Slot {
+        final String format;
+        Loader loader;
+        boolean loading;
+        boolean loaded;
+        long loadedAt;
+        int failures;
+        long nextAttemptAt;     // elapsedRealtime; no loads before this
+        boolean waitingForInit;
+        boolean waitingForNetwork;
+        Runnable retry;
+        Runnable expire;
+
+        Slot(String format) {
+            this.format = format;
+        }
+    }
+
+    private static volatile AdPreloadScheduler instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    public static AdPreloadScheduler get(Context context) {
+        if (instance == null) {
+            synchronized (AdPreloadScheduler.class) {
+                if (instance == null) {
+                    instance = new AdPreloadScheduler(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AdPreloadScheduler(Context context) {
+        this.context = context;
+        ConnectivityMonitor.get(context).addListener(this);
+    }
+
+    /**
+     * Attach the loader for a format (replaces a previous one) and preload if worthwhile.
+     */
+    public void register(String format, Loader loader) {
+        Slot slot = slot(format);
+        slot.loader = loader;
+        slot.loaded = false;
+        slot.loading = false;
+        request(format, false);
+    }
+
+    public void unregister(String format, Loader loader) {
+        Slot slot = slots.get(format);
+        if (slot == null || slot.loader != loader) return;
+        slot.loader = null;
+        slot.loaded = false;
+        cancelTimers(slot);
+    }
+
+    /**
+     * Ask for an ad of this format. demand == true when the page wants one right now;
+     * otherwise it's a preload and only happens if the format was used recently.
+     */
+    public void request(String format, boolean demand) {
+        Slot slot = slot(format);
+        if (slot.loader == null || slot.loading) return;
+        if (slot.loaded) {
+            if (isFresh(format)) return;
+            expire(slot);
+        }
+        if (AdInitScheduler.isSubscribed(context)) return;
+        if (!demand && !isLikelyUsed(format)) return;
+
+        if (!AdInitScheduler.isInitialized()) {
+            if (!slot.waitingForInit) {
+                slot.waitingForInit = true;
+                AdInitScheduler.whenReady(() -> {
+                    slot.waitingForInit = false;
+                    request(format, demand);
+                });
+            }
+            return;
+        }
+        if (!ConnectivityMonitor.get(context).isConnected()) {
+            slot.waitingForNetwork = true;
+            return;
+        }
+        long wait = slot.nextAttemptAt - SystemClock.elapsedRealtime();
+        if (wait > 0) {
+            // Backing off; a retry is already scheduled
+            if (slot.retry == null) scheduleRetry(slot, wait);
+            return;
+        }
+
+        slot.loading = true;
+        Loader loader = slot.loader;
+        loader.load(new LoadResult() {
+            @Override
+            public void onLoaded() {
+                handler.post(() -> onLoadFinished(slot, loader, null));
+            }
+
+            @Override
+            public void onFailed(String error) {
+                handler.post(() -> onLoadFinished(slot, loader, error != null ? error : "unknown"));
+            }
+        });
+    }
+
+    /**
+     * The ad was shown (or failed to show) and is gone; preload the next one.
+     */
+    public void onConsumed(String format) {
+        Slot slot = slot(format);
+        slot.loaded = false;
+        if (slot.expire != null) handler.removeCallbacks(slot.expire);
+        slot.expire = null;
+        request(format, false);
+    }
+
+    /**
+     * Drop a loaded ad without reloading (memory pressure); the next request loads again.
+     */
+    public void release(String format) {
+        Slot slot = slots.get(format);
+        if (slot == null || !slot.loaded) return;
+        if (slot.expire != null) handler.removeCallbacks(slot.expire);
+        slot.expire = null;
+        expire(slot);
+    }
+
+    /**
+     * Whether the loaded ad of this format can still be shown.
+     */
+    public boolean isFresh(String format) {
+        Slot slot = slots.get(format);
+        return slot != null && slot.loaded
+                && SystemClock.elapsedRealtime() - slot.loadedAt < expiryFor(format);
+    }
+
+    @Override
+    public void onConnectivityChanged(boolean online, boolean metered) {
+        if (!online) return;
+        for (Slot slot : slots.values()) {
+            if (slot.waitingForNetwork) {
+                slot.waitingForNetwork = false;
+                request(slot.format, false);
+            }
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void onLoadFinished(Slot slot, Loader loader, String error) {
+        if (slot.loader != loader) return; // Loader replaced meanwhile
+        slot.loading = false;
+        if (error == null) {
+            slot.loaded = true;
+            slot.loadedAt = SystemClock.elapsedRealtime();
+            slot.failures = 0;
+            slot.nextAttemptAt = 0;
+            slot.expire = () -> {
+                slot.expire = null;
+                if (slot.loaded) {
+                    expire(slot);
+                    request(slot.format, false);
+                }
+            };
+            handler.postDelayed(slot.expire, expiryFor(slot.format));
+            return;
+        }
+
+        slot.failures++;
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(slot.failures - 1, 20));
+        long delay = cap / 2 + (long) (random.nextDouble() * cap / 2);
+        slot.nextAttemptAt = SystemClock.elapsedRealtime() + delay;
+        Log.d(TAG, slot.format + " load failed (" + error + "), retry in " + delay + " ms");
+        scheduleRetry(slot, delay);
+    }
+
+    private void scheduleRetry(Slot slot, long delay) {
+        if (slot.retry != null) handler.removeCallbacks(slot.retry);
+        slot.retry = () -> {
+            slot.retry = null;
+            request(slot.format, false); // Only reloads if still likely to be used
+        };
+        handler.postDelayed(slot.retry, delay);
+    }
+
+    private void expire(Slot slot) {
+        slot.loaded = false;
+        if (slot.loader != null) slot.loader.discard();
+    }
+
+    private void cancelTimers(Slot slot) {
+        if (slot.retry != null) handler.removeCallbacks(slot.retry);
+        if (slot.expire != null) handler.removeCallbacks(slot.expire);
+        slot.retry = null;
+        slot.expire = null;
+    }
+
+    private boolean isLikelyUsed(String format) {
+        return AdInitScheduler.FORMAT_APP_OPEN.equals(format)
+                || AdInitScheduler.isLikelyUsed(context, format);
+    }
+
+    private Slot slot(String format) {
+        Slot slot = slots.get(format);
+        if (slot == null) {
+            slot = new Slot(format);
+            slots.put(format, slot);
+        }
+        return slot;
+    }
+
+    static long expiryFor(String format) {
+        return AdInitScheduler.FORMAT_APP_OPEN.equals(format) ? APP_OPEN_EXPIRY_MS : FULLSCREEN_EXPIRY_MS;
+    }
+}
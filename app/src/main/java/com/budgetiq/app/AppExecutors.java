@@ -0,0 +1,85 @@
+package com.budgetiq.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared background executor for short native work (receivers, stores, schedulers),
+ * plus the goAsync() wrapper used by the broadcast receivers.
+ */
+public final class AppExecutors {
+
+    private static final String TAG = "AppExecutors";
+    private static final String PREFS_NAME = "budgetiq_diagnostics";
+    // Receivers must return to the looper quickly; anything above this is logged and counted
+    static final long RECEIVER_MAIN_THREAD_BUDGET_MS = 5;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService background = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "budgetiq-bg-" + threadCount.incrementAndGet());
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private AppExecutors() {}
+
+    public static ExecutorService background() {
+        return background;
+    }
+
+    /**
+     * Run on the background executor after a delay (the wait itself holds no thread).
+     */
+    public static void schedule(Runnable work, long delayMs) {
+        mainHandler.postDelayed(() -> background.execute(work), delayMs);
+    }
+
+    /**
+     * Run a receiver's work on the background executor via goAsync(), and check how
+     * long onReceive held the main thread against RECEIVER_MAIN_THREAD_BUDGET_MS.
+     * Call as the last statement of onReceive.
+     */
+    static void runAsync(BroadcastReceiver receiver, Context context, long onReceiveStart, Runnable work) {
+        BroadcastReceiver.PendingResult result = receiver.goAsync();
+        Context app = context.getApplicationContext();
+        String name = receiver.getClass().getSimpleName();
+        background.execute(() -> {
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, name + " failed: " + e.getMessage());
+            } finally {
+                result.finish();
+            }
+        });
+
+        long mainThreadMs = SystemClock.uptimeMillis() - onReceiveStart;
+        if (mainThreadMs > RECEIVER_MAIN_THREAD_BUDGET_MS) {
+            Log.w(TAG, name + " held the main thread for " + mainThreadMs + " ms");
+        }
+        background.execute(() -> recordReceiverTime(app, name, mainThreadMs));
+    }
+
+    private static void recordReceiverTime(Context context, String name, long ms) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String maxKey = "rcv_" + name + "_max_ms";
+        SharedPreferences.Editor editor = prefs.edit();
+        if (ms > prefs.getLong(maxKey, 0)) editor.putLong(maxKey, ms);
+        if (ms > RECEIVER_MAIN_THREAD_BUDGET_MS) {
+            String overKey = "rcv_" + name + "_over_budget";
+            editor.putInt(overKey, prefs.getInt(overKey, 0) + 1);
+        }
+        editor.apply();
+    }
+}
@@ -12,9 +12,7 @@ import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.ProcessLifecycleOwner;
 
 import com.google.android.gms.ads.AdError;
-import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.FullScreenContentCallback;
-import com.google.android.gms.ads.LoadAdError;
 import com.google.android.gms.ads.appopen.AppOpenAd;
 
 import java.util.Date;
@@ -22,20 +20,21 @@ import java.util.Date;
 /**
  * Manages App Open Ads - shown when user returns to the app after being away.
  * Shows at most once per 4 hours to avoid being annoying.
+ * The ad itself comes from the shared AdInventory (loading, backoff and expiry are
+ * handled there and in AdPreloadScheduler). The inventory is only created once the
+ * ad SDK is initialized, so process starts without UI (SMS listener, alarms, boot)
+ * never build it or its connectivity callback.
  */
 public class AppOpenAdManager implements Application.ActivityLifecycleCallbacks, DefaultLifecycleObserver {
 
     private static final String TAG = "AppOpenAdManager";
-    private static final String AD_UNIT_ID = "ca-app-pub-6353903215132082/6486228008";
     private static final long MIN_INTERVAL_MS = 4 * 60 * 60 * 1000; // 4 hours between ads
-    private static final long AD_EXPIRY_MS = 4 * 60 * 60 * 1000; // Ad expires after 4 hours
+    private static final String FORMAT = AdInitScheduler.FORMAT_APP_OPEN;
 
     private final Application application;
-    private AppOpenAd appOpenAd = null;
+    private AdInventory inventory; // Null until the ad SDK is initialized
     private boolean isShowingAd = false;
-    private boolean isLoadingAd = false;
     private Activity currentActivity;
-    private long loadTime = 0;
     private long lastShownTime = 0;
     private boolean isFirstLaunch = true;
 
@@ -43,56 +42,25 @@ public class AppOpenAdManager implements Application.ActivityLifecycleCallbacks,
         this.application = application;
         application.registerActivityLifecycleCallbacks(this);
         ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
-    }
-
-    /**
-     * Load an App Open Ad.
-     */
-    private void loadAd() {
-        if (isLoadingAd || isAdAvailable()) return;
-        isLoadingAd = true;
-
-        AppOpenAd.load(application, AD_UNIT_ID,
-                new AdRequest.Builder().build(),
-                new AppOpenAd.AppOpenAdLoadCallback() {
-                    @Override
-                    public void onAdLoaded(@NonNull AppOpenAd ad) {
-                        appOpenAd = ad;
-                        isLoadingAd = false;
-                        loadTime = new Date().getTime();
-                        Log.d(TAG, "App Open Ad loaded");
-                    }
-
-                    @Override
-                    public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                        isLoadingAd = false;
-                        Log.e(TAG, "App Open Ad failed to load: " + loadAdError.getMessage());
-                    }
-                });
-    }
-
-    private boolean isAdAvailable() {
-        return appOpenAd != null && !isAdExpired();
-    }
-
-    private boolean isAdExpired() {
-        long now = new Date().getTime();
-        return (now - loadTime) > AD_EXPIRY_MS;
+        // Deferred SDK init starts from MainActivity (never happens for subscribers)
+        AdInitScheduler.whenReady(() -> inventory = AdInventory.get(application));
     }
 
     /**
      * Show app open ad if available and enough time has passed since last shown.
      */
     private void showAdIfAvailable() {
-        if (isShowingAd || !isAdAvailable()) {
-            loadAd();
+        if (inventory == null) return; // Ad SDK not initialized yet
+        // Never on top of another full-screen ad (e.g. an interstitial from the page)
+        if (isShowingAd || inventory.isShowingAny()) return;
+        if (!inventory.isReady(FORMAT)) {
+            inventory.request(FORMAT, false);
             return;
         }
 
         // Don't show on first app launch (let user see splash/welcome)
         if (isFirstLaunch) {
             isFirstLaunch = false;
-            loadAd();
             return;
         }
 
@@ -107,21 +75,21 @@ public class AppOpenAdManager implements Application.ActivityLifecycleCallbacks,
             return;
         }
 
+        AppOpenAd appOpenAd = inventory.take(FORMAT, AppOpenAd.class);
+        if (appOpenAd == null) return;
         isShowingAd = true;
         appOpenAd.setFullScreenContentCallback(new FullScreenContentCallback() {
             @Override
             public void onAdDismissedFullScreenContent() {
-                appOpenAd = null;
                 isShowingAd = false;
                 lastShownTime = new Date().getTime();
-                loadAd();
+                inventory.consumed(FORMAT);
             }
 
             @Override
             public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
-                appOpenAd = null;
                 isShowingAd = false;
-                loadAd();
+                inventory.consumed(FORMAT);
             }
 
             @Override
@@ -0,0 +1,268 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.webkit.WebViewAssetLoader;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offline-capable app shell served from local files through WebViewAssetLoader.
+ *
+ * The shell lives at https://appassets.androidplatform.net/shell/ and is read from:
+ *   - files/app_shell/<version>/ if a newer version has been downloaded, otherwise
+ *   - assets/app-shell/ (bundled with the APK)
+ *
+ * A background refresh pulls newer versions from the origin. Remote manifest format:
+ *   { "version": 2, "files": { "index.html": "<sha256 hex>", "shell.js": "<sha256 hex>", ... } }
+ * Files are downloaded from <origin>app-shell/<version>/<name>, checked against their hash,
+ * staged, and only then activated, so a broken download never replaces a working shell.
+ *
+ * The shell is a reduced, offline view (detected transactions), not a shell the full web app
+ * hydrates into: MainActivity opens it only when there is no network at launch. Online cold
+ * starts still load the origin page; its static assets come from WebAssetCache.
+ */
+public class AppShellManager {
+
+    private static final String TAG = "AppShellManager";
+    private static final String PREFS_NAME = "budgetiq_app_shell";
+    private static final String KEY_ACTIVE_VERSION = "active_version";
+    private static final String KEY_LAST_CHECK = "last_check";
+
+    static final String SHELL_HOST = "appassets.androidplatform.net";
+    static final String SHELL_URL = "https://" + SHELL_HOST + "/shell/index.html";
+
+    private static final String ASSET_DIR = "app-shell";
+    private static final String FILES_DIR = "app_shell";
+    private static final long CHECK_INTERVAL_MS = 12 * 60 * 60 * 1000; // 12 hours
+    private static final int TIMEOUT_MS = 15000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final AtomicBoolean refreshing = new AtomicBoolean(false);
+    // The bundled version can't change while the process runs; 0 = not read yet
+    private static volatile int bundledVersion;
+
+    private final Context context;
+    private final String origin;
+    private final WebViewAssetLoader assetLoader;
+
+    public AppShellManager(Context context, String origin) {
+        this.context = context.getApplicationContext();
+        this.origin = origin;
+        this.assetLoader = new WebViewAssetLoader.Builder()
+                .setDomain(SHELL_HOST)
+                .addPathHandler("/shell/", new ShellPathHandler())
+                .build();
+    }
+
+    /**
+     * Called from WebViewClient.shouldInterceptRequest. Returns null for non-shell URLs.
+     */
+    @Nullable
+    public WebResourceResponse intercept(Uri url) {
+        return assetLoader.shouldInterceptRequest(url);
+    }
+
+    public static boolean isShellUrl(String url) {
+        return url != null && url.contains(SHELL_HOST);
+    }
+
+    /**
+     * Version currently being served (bundled version if nothing newer was downloaded).
+     */
+    public int getActiveVersion() {
+        int downloaded = prefs().getInt(KEY_ACTIVE_VERSION, 0);
+        return Math.max(downloaded, getBundledVersion());
+    }
+
+    private int getBundledVersion() {
+        int version = bundledVersion;
+        if (version != 0) return version;
+        try (InputStream in = context.getAssets().open(ASSET_DIR + "/shell.json")) {
+            version = new JSONObject(readFully(in)).optInt("version", 1);
+        } catch (Exception e) {
+            version = 1;
+        }
+        bundledVersion = version;
+        return version;
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Nullable
+    private File activeDir() {
+        int version = prefs().getInt(KEY_ACTIVE_VERSION, 0);
+        if (version <= getBundledVersion()) return null;
+        File dir = new File(new File(context.getFilesDir(), FILES_DIR), String.valueOf(version));
+        return dir.isDirectory() ? dir : null;
+    }
+
+    // ==================== SERVING ====================
+
+    private class ShellPathHandler implements WebViewAssetLoader.PathHandler {
+        @Nullable
+        @Override
+        public WebResourceResponse handle(@NonNull String path) {
+            if (path.isEmpty()) path = "index.html";
+            if (path.contains("..")) return null;
+            try {
+                InputStream in;
+                File dir = activeDir();
+                File file = dir != null ? new File(dir, path) : null;
+                if (file != null && file.isFile()) {
+                    in = new FileInputStream(file);
+                } else {
+                    in = context.getAssets().open(ASSET_DIR + "/" + path);
+                }
+                return new WebResourceResponse(mimeTypeFor(path), "utf-8", in);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private static String mimeTypeFor(String path) {
+        String lower = path.toLowerCase(Locale.US);
+        if (lower.endsWith(".html")) return "text/html";
+        if (lower.endsWith(".js")) return "application/javascript";
+        if (lower.endsWith(".css")) return "text/css";
+        if (lower.endsWith(".json")) return "application/json";
+        if (lower.endsWith(".svg")) return "image/svg+xml";
+        if (lower.endsWith(".png")) return "image/png";
+        if (lower.endsWith(".woff2")) return "font/woff2";
+        return "application/octet-stream";
+    }
+
+    // ==================== BACKGROUND REFRESH ====================
+
+    /**
+     * Check the origin for a newer shell at most once per CHECK_INTERVAL_MS.
+     */
+    public void refreshInBackground() {
+        long lastCheck = prefs().getLong(KEY_LAST_CHECK, 0);
+        if (System.currentTimeMillis() - lastCheck < CHECK_INTERVAL_MS) return;
+        if (!refreshing.compareAndSet(false, true)) return;
+
+        executor.execute(() -> {
+            try {
+                refresh();
+                prefs().edit().putLong(KEY_LAST_CHECK, System.currentTimeMillis()).apply();
+            } catch (Exception e) {
+                Log.d(TAG, "Shell refresh failed: " + e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private void refresh() throws Exception {
+        JSONObject manifest = new JSONObject(new String(
+                download(origin + "app-shell/manifest.json"), StandardCharsets.UTF_8));
+        int version = manifest.getInt("version");
+        if (version <= getActiveVersion()) return;
+
+        JSONObject files = manifest.getJSONObject("files");
+        File root = new File(context.getFilesDir(), FILES_DIR);
+        File staging = new File(root, version + ".staging");
+        deleteRecursively(staging);
+        if (!staging.mkdirs()) throw new IOException("Cannot create " + staging);
+
+        Iterator<String> names = files.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (name.contains("..") || name.startsWith("/")) {
+                throw new IOException("Bad file name in manifest: " + name);
+            }
+            byte[] data = download(origin + "app-shell/" + version + "/" + name);
+            String expected = files.getString(name).toLowerCase(Locale.US);
+            if (!expected.equals(sha256(data))) {
+                deleteRecursively(staging);
+                throw new IOException("Hash mismatch for " + name);
+            }
+            File out = new File(staging, name);
+            File parent = out.getParentFile();
+            if (parent != null && !parent.exists()) parent.mkdirs();
+            try (OutputStream os = new FileOutputStream(out)) {
+                os.write(data);
+            }
+        }
+
+        File target = new File(root, String.valueOf(version));
+        deleteRecursively(target);
+        if (!staging.renameTo(target)) throw new IOException("Cannot activate " + target);
+
+        int previous = prefs().getInt(KEY_ACTIVE_VERSION, 0);
+        prefs().edit().putInt(KEY_ACTIVE_VERSION, version).commit();
+        if (previous > 0 && previous != version) {
+            deleteRecursively(new File(root, String.valueOf(previous)));
+        }
+        Log.d(TAG, "App shell updated to version " + version);
+    }
+
+    private static byte[] download(String url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setConnectTimeout(TIMEOUT_MS);
+            conn.setReadTimeout(TIMEOUT_MS);
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) throw new IOException("HTTP " + code + " for " + url);
+            try (InputStream in = conn.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+                return out.toByteArray();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+        return out.toString("UTF-8");
+    }
+
+    static String sha256(byte[] data) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) sb.append(String.format(Locale.US, "%02x", b));
+        return sb.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
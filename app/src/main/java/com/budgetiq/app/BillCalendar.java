@@ -0,0 +1,413 @@
+package com.budgetiq.app;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.webkit.JavascriptInterface;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Native calendar of recurring obligations (EMIs, credit card due dates, subscriptions).
+ * Exposed to WebView as window.BudgetIQBills
+ *
+ * Each bill is due every intervalMonths on dayOfMonth (0 = last day of the month,
+ * days past the month's end are clamped), optionally moved off weekends. Reminders fire
+ * leadDays before each due date. Bill reminders share ReminderEngine's single alarm, so
+ * they fire on time without the WebView or network.
+ *
+ * JS API:
+ *   window.BudgetIQBills.addBill(json) → id
+ *       json: {id?, name, kind: "emi"|"card"|"subscription", amount, dayOfMonth (0-31),
+ *              intervalMonths (1), startYear, startMonth (1-12), endAt (epoch ms, 0 = none),
+ *              weekendRule: "none"|"previous"|"next", leadDays: [3, 0], hour (9)}
+ *   window.BudgetIQBills.removeBill(id)
+ *   window.BudgetIQBills.markPaid(id) → skips remaining reminders for the current cycle
+ *   window.BudgetIQBills.listBills() → JSON array (with nextDueAt / nextFireAt)
+ *
+ * Bills are persisted as a JSON array in the "budgetiq_reminders" prefs. An unreadable
+ * array is copied to bills_v1.corrupt and never saved over; the calendar then runs on an
+ * empty list for the life of the process.
+ */
+public class BillCalendar {
+
+    private static final String TAG = "BillCalendar";
+
+    private static final String KEY_BILLS = "bills_v1";
+    private static final String KEY_BILLS_CORRUPT = KEY_BILLS + ".corrupt";
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+    private static final long DUE_TOLERANCE_MS = 60 * 1000;
+    // Tagged, so bill ids never collide with reminder or transaction notifications
+    private static final String NOTIF_TAG = "bill";
+    private static final int NOTIF_ID_BASE = 3000;
+
+    private static final Object lock = new Object();
+    private static List<Bill> bills; // Guarded by lock; loaded once per process
+    private static boolean corrupt; // Guarded by lock; stored list unreadable - never overwrite it
+
+    private final Context context;
+
+    public BillCalendar(Context context) {
+        this.context = context;
+    }
+
+    // ==================== MODEL ====================
+
+    static class Bill {
+        String id;
+        String name = "";
+        String kind = "emi";
+        double amount;
+        int dayOfMonth = 1;          // 0 = last day of month
+        int intervalMonths = 1;
+        int startYear;
+        int startMonth;              // 1-12
+        long endAt;                  // No dues after this (e.g. last EMI), 0 = open-ended
+        String weekendRule = "none"; // "previous" / "next" business day
+        int[] leadDays = {3, 0};
+        int hour = 9;
+        long paidThroughDue;         // Due dates <= this are paid - no more reminders
+        long nextFireAt;
+        long nextDueAt;
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("name", name);
+            json.put("kind", kind);
+            json.put("amount", amount);
+            json.put("dayOfMonth", dayOfMonth);
+            json.put("intervalMonths", intervalMonths);
+            json.put("startYear", startYear);
+            json.put("startMonth", startMonth);
+            json.put("endAt", endAt);
+            json.put("weekendRule", weekendRule);
+            JSONArray leads = new JSONArray();
+            for (int d : leadDays) leads.put(d);
+            json.put("leadDays", leads);
+            json.put("hour", hour);
+            json.put("paidThroughDue", paidThroughDue);
+            json.put("nextFireAt", nextFireAt);
+            json.put("nextDueAt", nextDueAt);
+            return json;
+        }
+
+        static Bill fromJson(JSONObject json) {
+            Calendar now = Calendar.getInstance();
+            Bill b = new Bill();
+            b.id = json.optString("id");
+            b.name = json.optString("name", "");
+            b.kind = json.optString("kind", "emi");
+            b.amount = json.optDouble("amount", 0);
+            b.dayOfMonth = Math.max(0, Math.min(31, json.optInt("dayOfMonth", 1)));
+            b.intervalMonths = Math.max(1, json.optInt("intervalMonths", 1));
+            b.startYear = json.optInt("startYear", now.get(Calendar.YEAR));
+            b.startMonth = Math.max(1, Math.min(12, json.optInt("startMonth", now.get(Calendar.MONTH) + 1)));
+            b.endAt = json.optLong("endAt", 0);
+            b.weekendRule = json.optString("weekendRule", "none");
+            JSONArray leads = json.optJSONArray("leadDays");
+            if (leads != null && leads.length() > 0) {
+                b.leadDays = new int[leads.length()];
+                for (int i = 0; i < leads.length(); i++) b.leadDays[i] = Math.max(0, leads.optInt(i));
+            }
+            b.hour = Math.max(0, Math.min(23, json.optInt("hour", 9)));
+            b.paidThroughDue = json.optLong("paidThroughDue", 0);
+            b.nextFireAt = json.optLong("nextFireAt", 0);
+            b.nextDueAt = json.optLong("nextDueAt", 0);
+            return b;
+        }
+    }
+
+    // ==================== JS BRIDGE ====================
+
+    @JavascriptInterface
+    public String addBill(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            if (obj.optString("id").isEmpty()) obj.put("id", "b" + System.currentTimeMillis());
+            Bill bill = Bill.fromJson(obj);
+            synchronized (lock) {
+                List<Bill> all = load(context);
+                removeById(all, bill.id);
+                schedule(bill, System.currentTimeMillis());
+                all.add(bill);
+                save(context);
+            }
+            ReminderEngine.rearm(context);
+            return bill.id;
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    @JavascriptInterface
+    public void removeBill(String id) {
+        synchronized (lock) {
+            if (removeById(load(context), id)) save(context);
+        }
+        ReminderEngine.rearm(context);
+    }
+
+    @JavascriptInterface
+    public void markPaid(String id) {
+        synchronized (lock) {
+            for (Bill b : load(context)) {
+                if (b.id.equals(id) && b.nextDueAt > 0) {
+                    b.paidThroughDue = b.nextDueAt;
+                    schedule(b, System.currentTimeMillis());
+                    save(context);
+                    break;
+                }
+            }
+        }
+        ReminderEngine.rearm(context);
+    }
+
+    @JavascriptInterface
+    public String listBills() {
+        JSONArray arr = new JSONArray();
+        synchronized (lock) {
+            for (Bill b : load(context)) {
+                try {
+                    arr.put(b.toJson());
+                } catch (Exception e) {
+                    // Skip
+                }
+            }
+        }
+        return arr.toString();
+    }
+
+    private static boolean removeById(List<Bill> all, String id) {
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i).id.equals(id)) {
+                all.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== TIMELINE SOURCE (used by ReminderEngine) ====================
+
+    /**
+     * Earliest pending bill reminder, or Long.MAX_VALUE if none.
+     */
+    static long nextFireAt(Context context) {
+        long next = Long.MAX_VALUE;
+        synchronized (lock) {
+            for (Bill b : load(context)) {
+                if (b.nextFireAt > 0 && b.nextFireAt < next) next = b.nextFireAt;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Recompute every bill's next reminder from now (boot, clock change, app start).
+     */
+    static void rescheduleAll(Context context) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            for (Bill b : load(context)) {
+                if (b.nextFireAt == 0 || b.nextFireAt > now + DUE_TOLERANCE_MS) schedule(b, now);
+            }
+            save(context);
+        }
+    }
+
+    /**
+     * Show every bill reminder that is due and advance those bills. Caller re-arms the alarm.
+     */
+    static void fireDue(Context context) {
+        List<Bill> due = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            for (Bill b : load(context)) {
+                if (b.nextFireAt > 0 && b.nextFireAt <= now + DUE_TOLERANCE_MS) {
+                    due.add(copy(b));
+                    schedule(b, Math.max(now, b.nextFireAt));
+                }
+            }
+            if (!due.isEmpty()) save(context);
+        }
+        if (due.isEmpty()) return;
+        BudgetNotificationHelper.createNotificationChannels(context);
+        for (Bill b : due) {
+            showReminder(context, b);
+        }
+    }
+
+    private static Bill copy(Bill b) {
+        try {
+            return Bill.fromJson(b.toJson());
+        } catch (Exception e) {
+            return b;
+        }
+    }
+
+    // ==================== OCCURRENCES ====================
+
+    /**
+     * Set nextFireAt / nextDueAt to the first reminder strictly after 'after'.
+     * Looks at a constant number of cycles around 'after' - no walking from the start date.
+     */
+    static void schedule(Bill b, long after) {
+        b.nextFireAt = 0;
+        b.nextDueAt = 0;
+
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(after);
+        int monthsSinceStart = (cal.get(Calendar.YEAR) - b.startYear) * 12
+                + cal.get(Calendar.MONTH) - (b.startMonth - 1);
+        int maxLead = 0;
+        for (int d : b.leadDays) maxLead = Math.max(maxLead, d);
+        // Leads reach back at most maxLead days, so a cycle's first reminder can fall into the
+        // previous cycle's months; start one cycle early to cover it
+        int leadCycles = maxLead / (28 * b.intervalMonths) + 1;
+        int firstCycle = Math.max(0, Math.floorDiv(monthsSinceStart, b.intervalMonths) - leadCycles);
+
+        for (int k = firstCycle; k <= firstCycle + leadCycles + 2; k++) {
+            long due = dueDate(b, k);
+            if (b.endAt > 0 && due > b.endAt) break;
+            if (due <= b.paidThroughDue) continue;
+            long best = Long.MAX_VALUE;
+            for (int lead : b.leadDays) {
+                long fire = due - lead * DAY_MS;
+                if (fire > after && fire < best) best = fire;
+            }
+            if (best != Long.MAX_VALUE) {
+                b.nextFireAt = best;
+                b.nextDueAt = due;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Due date/time of the k-th cycle, with month-end and weekend rules applied.
+     */
+    static long dueDate(Bill b, int cycle) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(b.startYear, b.startMonth - 1, 1, b.hour, 0, 0);
+        cal.add(Calendar.MONTH, cycle * b.intervalMonths);
+
+        int lastDay = cal.getActualMaximum(Calendar.DAY_OF_MONTH);
+        cal.set(Calendar.DAY_OF_MONTH, b.dayOfMonth == 0 ? lastDay : Math.min(b.dayOfMonth, lastDay));
+
+        int dow = cal.get(Calendar.DAY_OF_WEEK);
+        if ("previous".equals(b.weekendRule)) {
+            if (dow == Calendar.SATURDAY) cal.add(Calendar.DAY_OF_MONTH, -1);
+            else if (dow == Calendar.SUNDAY) cal.add(Calendar.DAY_OF_MONTH, -2);
+        } else if ("next".equals(b.weekendRule)) {
+            if (dow == Calendar.SATURDAY) cal.add(Calendar.DAY_OF_MONTH, 2);
+            else if (dow == Calendar.SUNDAY) cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    // ==================== NOTIFICATION ====================
+
+    private static void showReminder(Context context, Bill b) {
+        long daysLeft = Math.max(0, Math.round((b.nextDueAt - b.nextFireAt) / (double) DAY_MS));
+        String dueOn = new SimpleDateFormat("d MMM", Locale.US).format(new Date(b.nextDueAt));
+        String what;
+        switch (b.kind) {
+            case "card":
+                what = "card payment";
+                break;
+            case "subscription":
+                what = "subscription";
+                break;
+            default:
+                what = "EMI";
+        }
+        String title = daysLeft == 0
+                ? b.name + " " + what + " due today"
+                : b.name + " " + what + " due in " + daysLeft + (daysLeft == 1 ? " day" : " days");
+        String body = (b.amount > 0 ? formatAmount(b.amount) + " due on " : "Due on ") + dueOn;
+
+        int notifId = NOTIF_ID_BASE + (b.id.hashCode() & 0xFFF);
+        Intent openApp = new Intent(context, MainActivity.class);
+        openApp.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pi = PendingIntent.getActivity(context, notifId, openApp,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context,
+                BudgetNotificationHelper.CHANNEL_EMI)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(body)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(body))
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(pi)
+                .setAutoCancel(true);
+
+        try {
+            NotificationManagerCompat.from(context).notify(NOTIF_TAG, notifId, builder.build());
+        } catch (Exception e) {
+            // Permission not granted
+        }
+    }
+
+    private static String formatAmount(double amount) {
+        NumberFormat nf = NumberFormat.getNumberInstance(new Locale("en", "IN"));
+        nf.setMaximumFractionDigits(2);
+        return "₹" + nf.format(amount);
+    }
+
+    // ==================== PERSISTENCE ====================
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(ReminderReceiver.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static List<Bill> load(Context context) {
+        if (bills != null) return bills;
+        bills = new ArrayList<>();
+        SharedPreferences prefs = prefs(context);
+        String stored = prefs.getString(KEY_BILLS, "[]");
+        try {
+            JSONArray arr = new JSONArray(stored);
+            for (int i = 0; i < arr.length(); i++) {
+                bills.add(Bill.fromJson(arr.getJSONObject(i)));
+            }
+        } catch (Exception e) {
+            // Corrupt: run on an empty list, but keep the stored one and never save over it
+            bills.clear();
+            corrupt = true;
+            if (!stored.equals(prefs.getString(KEY_BILLS_CORRUPT, null))) {
+                prefs.edit().putString(KEY_BILLS_CORRUPT, stored).apply();
+            }
+            DiagnosticLog.record(TAG, "load", e);
+        }
+        return bills;
+    }
+
+    private static void save(Context context) {
+        if (corrupt) return;
+        JSONArray arr = new JSONArray();
+        for (Bill b : bills) {
+            try {
+                arr.put(b.toJson());
+            } catch (Exception e) {
+                // Skip
+            }
+        }
+        prefs(context).edit().putString(KEY_BILLS, arr.toString()).apply();
+    }
+}
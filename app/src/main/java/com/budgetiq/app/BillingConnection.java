@@ -0,0 +1,281 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.android.billingclient.api.BillingClient;
+import com.android.billingclient.api.BillingClientStateListener;
+import com.android.billingclient.api.BillingResult;
+import com.android.billingclient.api.ProductDetails;
+import com.android.billingclient.api.Purchase;
+import com.android.billingclient.api.PurchasesUpdatedListener;
+import com.android.billingclient.api.QueryProductDetailsParams;
+import com.android.billingclient.api.QueryPurchasesParams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Owns the BillingClient connection for BillingManager.
+ *
+ * - Reconnects automatically after a disconnect or a retryable setup failure, with
+ *   exponential backoff and jitter (BILLING_UNAVAILABLE is not retried).
+ * - Purchase and product queries are coalesced: while one is in flight, further callers
+ *   wait for it and all get the same result. Queries made while disconnected run once
+ *   the connection is back.
+ * - ProductDetails are kept in memory for PRODUCT_TTL_MS; an expired entry is still
+ *   returned by peekProductDetails() while a refresh runs.
+ *
+ * All state lives on the main thread; public methods may be called from any thread.
+ */
+final class BillingConnection {
+
+    private static final String TAG = "BillingConnection";
+    private static final long BASE_RECONNECT_MS = 1000;
+    private static final long MAX_RECONNECT_MS = 5 * 60 * 1000;
+    static final long PRODUCT_TTL_MS = 6 * 60 * 60 * 1000;
+
+    interface Listener {
+        /** Every connection attempt result; ok == true once connected. */
+        void onSetupFinished(boolean ok);
+    }
+
+    interface PurchasesCallback {
+        void onResult(BillingResult result, List<Purchase> purchases);
+    }
+
+    interface ProductCallback {
+        /** details is null if the product couldn't be loaded. */
+        void onResult(ProductDetails details);
+    }
+
+    private final BillingClient client;
+    private final String productId;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+
+    // Main thread only (ready and the product cache are also read from other threads)
+    private boolean connecting = false;
+    private boolean closed = false;
+    private int reconnectAttempts = 0;
+    private final Runnable reconnect = this::connect;
+    private final List<PurchasesCallback> purchaseWaiters = new ArrayList<>();
+    private final List<ProductCallback> productWaiters = new ArrayList<>();
+    private boolean purchasesInFlight = false;
+    private boolean productInFlight = false;
+
+    private volatile ProductDetails productDetails;
+    private volatile long productLoadedAt;
+    private volatile boolean ready = false;
+
+    BillingConnection(Context context, String productId, PurchasesUpdatedListener purchasesListener,
+                      Listener listener) {
+        this.productId = productId;
+        this.listener = listener;
+        this.client = BillingClient.newBuilder(context)
+                .setListener(purchasesListener)
+                .enablePendingPurchases()
+                .build();
+    }
+
+    BillingClient client() {
+        return client;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    // ==================== CONNECTION ====================
+
+    /**
+     * Connect now if not connected or connecting (also cuts a pending backoff short).
+     */
+    void connect() {
+        runOnMain(() -> {
+            if (closed || ready || connecting) return;
+            handler.removeCallbacks(reconnect);
+            connecting = true;
+            client.startConnection(new BillingClientStateListener() {
+                @Override
+                public void onBillingSetupFinished(@NonNull BillingResult billingResult) {
+                    runOnMain(() -> onSetupFinished(billingResult));
+                }
+
+                @Override
+                public void onBillingServiceDisconnected() {
+                    runOnMain(() -> onDisconnected());
+                }
+            });
+        });
+    }
+
+    private void onSetupFinished(BillingResult result) {
+        connecting = false;
+        if (result.getResponseCode() == BillingClient.BillingResponseCode.OK) {
+            Log.d(TAG, "Billing client connected");
+            ready = true;
+            reconnectAttempts = 0;
+            listener.onSetupFinished(true);
+            // Run whatever was asked for while disconnected
+            if (!purchaseWaiters.isEmpty() && !purchasesInFlight) startPurchasesQuery();
+            if (!productWaiters.isEmpty() && !productInFlight) startProductQuery();
+            return;
+        }
+
+        Log.e(TAG, "Billing setup failed: " + result.getDebugMessage());
+        DiagnosticLog.record(TAG, "setup", result.getResponseCode());
+        listener.onSetupFinished(false);
+        if (result.getResponseCode() == BillingClient.BillingResponseCode.BILLING_UNAVAILABLE) {
+            // Play Store missing or too old - retrying won't help
+            failWaiters(result);
+            return;
+        }
+        scheduleReconnect();
+    }
+
+    private void onDisconnected() {
+        Log.d(TAG, "Billing service disconnected");
+        ready = false;
+        connecting = false;
+        purchasesInFlight = false;
+        productInFlight = false;
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        if (closed) return;
+        long cap = Math.min(MAX_RECONNECT_MS, BASE_RECONNECT_MS << Math.min(reconnectAttempts, 20));
+        long delay = cap / 2 + (long) (random.nextDouble() * cap / 2);
+        reconnectAttempts++;
+        Log.d(TAG, "Reconnecting in " + delay + " ms (attempt " + reconnectAttempts + ")");
+        handler.removeCallbacks(reconnect);
+        handler.postDelayed(reconnect, delay);
+    }
+
+    void end() {
+        runOnMain(() -> {
+            closed = true;
+            handler.removeCallbacks(reconnect);
+            ready = false;
+            client.endConnection();
+        });
+    }
+
+    // ==================== PURCHASES ====================
+
+    /**
+     * Query active subscriptions; joins an in-flight query if there is one.
+     */
+    void queryPurchases(PurchasesCallback callback) {
+        runOnMain(() -> {
+            purchaseWaiters.add(callback);
+            if (!ready) {
+                connect();
+                return;
+            }
+            if (!purchasesInFlight) startPurchasesQuery();
+        });
+    }
+
+    private void startPurchasesQuery() {
+        purchasesInFlight = true;
+        client.queryPurchasesAsync(
+                QueryPurchasesParams.newBuilder()
+                        .setProductType(BillingClient.ProductType.SUBS)
+                        .build(),
+                (result, purchases) -> runOnMain(() -> {
+                    purchasesInFlight = false;
+                    List<PurchasesCallback> waiters = new ArrayList<>(purchaseWaiters);
+                    purchaseWaiters.clear();
+                    for (PurchasesCallback cb : waiters) cb.onResult(result, purchases);
+                }));
+    }
+
+    // ==================== PRODUCT DETAILS ====================
+
+    /**
+     * Last loaded ProductDetails (possibly expired), refreshing in the background when
+     * missing or older than PRODUCT_TTL_MS.
+     */
+    ProductDetails peekProductDetails() {
+        if (productDetails == null || SystemClock.elapsedRealtime() - productLoadedAt > PRODUCT_TTL_MS) {
+            getProductDetails(details -> { });
+        }
+        return productDetails;
+    }
+
+    /**
+     * Fresh ProductDetails from the cache, or loaded (joining an in-flight load).
+     */
+    void getProductDetails(ProductCallback callback) {
+        runOnMain(() -> {
+            ProductDetails cached = productDetails;
+            if (cached != null && SystemClock.elapsedRealtime() - productLoadedAt <= PRODUCT_TTL_MS) {
+                callback.onResult(cached);
+                return;
+            }
+            productWaiters.add(callback);
+            if (!ready) {
+                connect();
+                return;
+            }
+            if (!productInFlight) startProductQuery();
+        });
+    }
+
+    private void startProductQuery() {
+        productInFlight = true;
+        QueryProductDetailsParams params = QueryProductDetailsParams.newBuilder()
+                .setProductList(Collections.singletonList(
+                        QueryProductDetailsParams.Product.newBuilder()
+                                .setProductId(productId)
+                                .setProductType(BillingClient.ProductType.SUBS)
+                                .build()))
+                .build();
+
+        client.queryProductDetailsAsync(params, (result, list) -> runOnMain(() -> {
+            productInFlight = false;
+            ProductDetails details = null;
+            if (result.getResponseCode() == BillingClient.BillingResponseCode.OK && !list.isEmpty()) {
+                details = list.get(0);
+                productDetails = details;
+                productLoadedAt = SystemClock.elapsedRealtime();
+                Log.d(TAG, "Product loaded: " + details.getName());
+            } else {
+                Log.e(TAG, "Product query failed: " + result.getDebugMessage());
+                DiagnosticLog.record(TAG, "queryProduct", result.getResponseCode());
+            }
+            List<ProductCallback> waiters = new ArrayList<>(productWaiters);
+            productWaiters.clear();
+            for (ProductCallback cb : waiters) cb.onResult(details);
+        }));
+    }
+
+    // ==================== HELPERS ====================
+
+    private void failWaiters(BillingResult result) {
+        List<PurchasesCallback> purchases = new ArrayList<>(purchaseWaiters);
+        purchaseWaiters.clear();
+        for (PurchasesCallback cb : purchases) cb.onResult(result, Collections.emptyList());
+        List<ProductCallback> products = new ArrayList<>(productWaiters);
+        productWaiters.clear();
+        for (ProductCallback cb : products) cb.onResult(null);
+    }
+
+    private void runOnMain(Runnable r) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            r.run();
+        } else {
+            handler.post(r);
+        }
+    }
+}
@@ -8,119 +8,83 @@ import androidx.annotation.NonNull;
 
 import com.android.billingclient.api.AcknowledgePurchaseParams;
 import com.android.billingclient.api.BillingClient;
-import com.android.billingclient.api.BillingClientStateListener;
 import com.android.billingclient.api.BillingFlowParams;
 import com.android.billingclient.api.BillingResult;
 import com.android.billingclient.api.ProductDetails;
 import com.android.billingclient.api.Purchase;
 import com.android.billingclient.api.PurchasesUpdatedListener;
-import com.android.billingclient.api.QueryProductDetailsParams;
-import com.android.billingclient.api.QueryPurchasesParams;
 
 import org.json.JSONObject;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Google Play Billing v7 integration via JavaScript bridge.
  * Exposed to WebView as window.BudgetIQBilling
+ *
+ * The last known status lives in EntitlementCache: the page reads it synchronously on
+ * load with getCachedStatus(), and onSubscriptionStatus is only pushed when a background
+ * reconcile changes it (or the page asked explicitly via checkSubscription()).
+ * Connection handling, reconnects and query coalescing live in BillingConnection.
  */
 public class BillingManager implements PurchasesUpdatedListener {
 
     private static final String TAG = "BillingManager";
     private static final String PRODUCT_ID = "sub_pro_149";
-    private static final String VERIFY_URL = "https://optioninsights.in/api/v1/endpoints/billing.php";
+    static final String PREFS_NAME = "budgetiq_billing";
 
     private final MainActivity activity;
-    private BillingClient billingClient;
-    private ProductDetails productDetails;
-    private boolean isConnected = false;
+    private final BillingConnection connection;
+    private final Set<String> acknowledging = new HashSet<>(); // Main thread only
 
     public BillingManager(MainActivity activity) {
         this.activity = activity;
-        initBillingClient();
+        VerificationQueue.get(activity); // Resumes verifications left from earlier sessions
+        StartupTracer.begin(StartupTracer.BILLING_CONNECT);
+        connection = new BillingConnection(activity, PRODUCT_ID, this, this::onSetupFinished);
+        connection.connect();
     }
 
-    private void initBillingClient() {
-        billingClient = BillingClient.newBuilder(activity)
-                .setListener(this)
-                .enablePendingPurchases()
-                .build();
-
-        startConnection();
-    }
-
-    private void startConnection() {
-        billingClient.startConnection(new BillingClientStateListener() {
-            @Override
-            public void onBillingSetupFinished(@NonNull BillingResult billingResult) {
-                if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                    isConnected = true;
-                    Log.d(TAG, "Billing client connected");
-                    queryProduct();
-                    queryExistingPurchases();
-                } else {
-                    Log.e(TAG, "Billing setup failed: " + billingResult.getDebugMessage());
-                }
-            }
-
-            @Override
-            public void onBillingServiceDisconnected() {
-                isConnected = false;
-                Log.d(TAG, "Billing service disconnected");
-            }
+    private void onSetupFinished(boolean ok) {
+        StartupTracer.end(StartupTracer.BILLING_CONNECT);
+        if (!ok) return;
+        // Also runs after every reconnect, so the page hears about changes made meanwhile
+        connection.getProductDetails(details -> {
+            if (details != null) notifyWebView("onBillingReady", "true");
         });
+        queryExistingPurchases(false);
     }
 
-    private void queryProduct() {
-        List<QueryProductDetailsParams.Product> productList = new ArrayList<>();
-        productList.add(
-                QueryProductDetailsParams.Product.newBuilder()
-                        .setProductId(PRODUCT_ID)
-                        .setProductType(BillingClient.ProductType.SUBS)
-                        .build()
-        );
-
-        QueryProductDetailsParams params = QueryProductDetailsParams.newBuilder()
-                .setProductList(productList)
-                .build();
-
-        billingClient.queryProductDetailsAsync(params, (billingResult, list) -> {
-            if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK && !list.isEmpty()) {
-                productDetails = list.get(0);
-                Log.d(TAG, "Product loaded: " + productDetails.getName());
-                notifyWebView("onBillingReady", "true");
-            } else {
-                Log.e(TAG, "Product query failed: " + billingResult.getDebugMessage());
-            }
-        });
-    }
-
-    private void queryExistingPurchases() {
-        billingClient.queryPurchasesAsync(
-                QueryPurchasesParams.newBuilder()
-                        .setProductType(BillingClient.ProductType.SUBS)
-                        .build(),
-                (billingResult, purchases) -> {
-                    if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
-                        boolean hasActive = false;
-                        for (Purchase purchase : purchases) {
-                            if (purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED) {
-                                hasActive = true;
-                                if (!purchase.isAcknowledged()) {
-                                    acknowledgePurchase(purchase);
-                                }
-                            }
+    /**
+     * Reconcile the entitlement cache with Play. The page is told only if the status
+     * changed, unless it asked for the answer (alwaysNotify). Concurrent calls share
+     * one query (see BillingConnection).
+     */
+    private void queryExistingPurchases(boolean alwaysNotify) {
+        connection.queryPurchases((billingResult, purchases) -> {
+            if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
+                List<String> activeTokens = new ArrayList<>();
+                for (Purchase purchase : purchases) {
+                    if (purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED) {
+                        activeTokens.add(purchase.getPurchaseToken());
+                        if (!purchase.isAcknowledged()) {
+                            acknowledgePurchase(purchase);
                         }
-                        notifyWebView("onSubscriptionStatus",
-                                hasActive ? "'active'" : "'none'");
                     }
                 }
-        );
+                EntitlementCache cache = EntitlementCache.get(activity);
+                if (cache.reconcile(activeTokens) || alwaysNotify) {
+                    notifyWebView("onSubscriptionStatus", "'" + cache.getStatus() + "'");
+                }
+            } else if (alwaysNotify) {
+                notifyWebView("onSubscriptionStatus",
+                        "'" + EntitlementCache.get(activity).getStatus() + "'");
+            }
+        });
     }
 
     /**
@@ -130,12 +94,13 @@ public class BillingManager implements PurchasesUpdatedListener {
     @JavascriptInterface
     public void launchSubscription() {
         activity.runOnUiThread(() -> {
-            if (!isConnected) {
-                startConnection();
+            if (!connection.isReady()) {
+                connection.connect();
                 notifyWebView("onPurchaseFailed", "'Billing service not connected. Please try again.'");
                 return;
             }
 
+            ProductDetails productDetails = connection.peekProductDetails();
             if (productDetails == null) {
                 notifyWebView("onPurchaseFailed", "'Subscription product not available yet. Please try again.'");
                 return;
@@ -163,7 +128,7 @@ public class BillingManager implements PurchasesUpdatedListener {
                     .setProductDetailsParamsList(productDetailsParamsList)
                     .build();
 
-            billingClient.launchBillingFlow(activity, billingFlowParams);
+            connection.client().launchBillingFlow(activity, billingFlowParams);
         });
     }
 
@@ -173,11 +138,22 @@ public class BillingManager implements PurchasesUpdatedListener {
      */
     @JavascriptInterface
     public void checkSubscription() {
-        if (!isConnected) {
-            notifyWebView("onSubscriptionStatus", "'unknown'");
+        if (!connection.isReady()) {
+            // Last known status now; the query runs once reconnected and reports changes only
+            notifyWebView("onSubscriptionStatus", "'" + EntitlementCache.get(activity).getStatus() + "'");
+            queryExistingPurchases(false);
             return;
         }
-        queryExistingPurchases();
+        queryExistingPurchases(true);
+    }
+
+    /**
+     * JS bridge: Last known subscription status, available immediately on page load
+     * Called from web: BudgetIQBilling.getCachedStatus() → {status, active, stale, checkedAt}
+     */
+    @JavascriptInterface
+    public String getCachedStatus() {
+        return EntitlementCache.get(activity).toJson();
     }
 
     /**
@@ -186,6 +162,7 @@ public class BillingManager implements PurchasesUpdatedListener {
      */
     @JavascriptInterface
     public String getProductInfo() {
+        ProductDetails productDetails = connection.peekProductDetails();
         if (productDetails == null) return "{}";
         try {
             JSONObject info = new JSONObject();
@@ -208,6 +185,7 @@ public class BillingManager implements PurchasesUpdatedListener {
             }
             return info.toString();
         } catch (Exception e) {
+            DiagnosticLog.record(TAG, "getProductInfo", e);
             return "{}";
         }
     }
@@ -217,7 +195,7 @@ public class BillingManager implements PurchasesUpdatedListener {
      */
     @JavascriptInterface
     public boolean isAvailable() {
-        return isConnected && productDetails != null;
+        return connection.isReady() && connection.peekProductDetails() != null;
     }
 
     @Override
@@ -231,6 +209,7 @@ public class BillingManager implements PurchasesUpdatedListener {
         } else if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.USER_CANCELED) {
             notifyWebView("onPurchaseFailed", "'User cancelled'");
         } else {
+            DiagnosticLog.record(TAG, "onPurchasesUpdated", billingResult.getResponseCode());
             notifyWebView("onPurchaseFailed",
                     "'" + billingResult.getDebugMessage() + "'");
         }
@@ -238,6 +217,9 @@ public class BillingManager implements PurchasesUpdatedListener {
 
     private void handlePurchase(Purchase purchase) {
         if (purchase.getPurchaseState() == Purchase.PurchaseState.PURCHASED) {
+            EntitlementCache.get(activity).reconcile(
+                    Collections.singletonList(purchase.getPurchaseToken()));
+
             // Verify on backend
             verifyOnBackend(purchase);
 
@@ -254,6 +236,7 @@ public class BillingManager implements PurchasesUpdatedListener {
                 result.put("orderId", purchase.getOrderId());
                 notifyWebView("onPurchaseSuccess", result.toString());
             } catch (Exception e) {
+                DiagnosticLog.record(TAG, "handlePurchase", e);
                 notifyWebView("onPurchaseSuccess", "'" + purchase.getPurchaseToken() + "'");
             }
         } else if (purchase.getPurchaseState() == Purchase.PurchaseState.PENDING) {
@@ -262,44 +245,26 @@ public class BillingManager implements PurchasesUpdatedListener {
     }
 
     private void acknowledgePurchase(Purchase purchase) {
+        String token = purchase.getPurchaseToken();
+        if (!acknowledging.add(token)) return; // Already in flight (shared query results)
         AcknowledgePurchaseParams params = AcknowledgePurchaseParams.newBuilder()
-                .setPurchaseToken(purchase.getPurchaseToken())
+                .setPurchaseToken(token)
                 .build();
 
-        billingClient.acknowledgePurchase(params, billingResult -> {
+        connection.client().acknowledgePurchase(params, billingResult -> {
+            activity.runOnUiThread(() -> acknowledging.remove(token));
             if (billingResult.getResponseCode() == BillingClient.BillingResponseCode.OK) {
                 Log.d(TAG, "Purchase acknowledged");
+            } else {
+                DiagnosticLog.record(TAG, "acknowledgePurchase", billingResult.getResponseCode());
             }
         });
     }
 
     private void verifyOnBackend(Purchase purchase) {
-        new Thread(() -> {
-            try {
-                URL url = new URL(VERIFY_URL);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-
-                JSONObject body = new JSONObject();
-                body.put("action", "verify_purchase");
-                body.put("purchase_token", purchase.getPurchaseToken());
-                body.put("product_id", PRODUCT_ID);
-                body.put("order_id", purchase.getOrderId());
-                body.put("package_name", activity.getPackageName());
-
-                OutputStream os = conn.getOutputStream();
-                os.write(body.toString().getBytes("UTF-8"));
-                os.close();
-
-                int code = conn.getResponseCode();
-                Log.d(TAG, "Backend verification response: " + code);
-                conn.disconnect();
-            } catch (Exception e) {
-                Log.e(TAG, "Backend verification failed: " + e.getMessage());
-            }
-        }).start();
+        // Persisted and retried until the backend has it (see VerificationQueue)
+        VerificationQueue.get(activity).enqueue(
+                purchase.getPurchaseToken(), PRODUCT_ID, purchase.getOrderId());
     }
 
     private void notifyWebView(String callback, String args) {
@@ -313,8 +278,6 @@ public class BillingManager implements PurchasesUpdatedListener {
     }
 
     public void destroy() {
-        if (billingClient != null) {
-            billingClient.endConnection();
-        }
+        connection.end();
     }
 }
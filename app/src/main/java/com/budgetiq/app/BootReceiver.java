@@ -3,17 +3,24 @@ package com.budgetiq.app;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 
 /**
- * Re-schedules daily reminder alarms after device reboot.
+ * Re-arms the reminder timeline after device reboot or a clock/timezone change.
  * Alarms are cleared on reboot, so this receiver re-registers them.
  */
 public class BootReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            ReminderReceiver.createChannel(context);
-            ReminderScheduler.scheduleAll(context);
+        long start = SystemClock.uptimeMillis();
+        String action = intent.getAction();
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            AppExecutors.runAsync(this, context, start, () -> {
+                ReminderReceiver.createChannel(context);
+                ReminderScheduler.scheduleAll(context);
+            });
         }
     }
 }
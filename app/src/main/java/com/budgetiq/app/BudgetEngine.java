@@ -0,0 +1,451 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.webkit.JavascriptInterface;
+
+import com.budgetiq.core.Transaction;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Native budget limits with running totals, so threshold alerts fire for transactions
+ * captured while the app (and WebView) is closed.
+ * Exposed to WebView as window.BudgetIQBudget
+ *
+ * Every debit stored by TransactionNotificationListener is added to the budgets of its
+ * category plus the overall ("*") budgets. Budgets are indexed by category, so each
+ * transaction touches only the budgets it counts against. Totals reset when the period
+ * rolls over; an alert fires once per threshold per period.
+ *
+ * Captured transactions have no category; it comes from the transaction's "category"
+ * field if set, else the first merchant keyword rule that matches, else "uncategorized".
+ *
+ * JS API:
+ *   window.BudgetIQBudget.setBudgets(json) → replaces all budgets
+ *       json: [{id, category ("*" = all spending), period: "daily"|"weekly"|"monthly",
+ *               limit, thresholds: [0.8, 1.0], spent? (seed from the web app's own totals)}]
+ *   window.BudgetIQBudget.setBudget(json) → add or replace one budget
+ *   window.BudgetIQBudget.removeBudget(id)
+ *   window.BudgetIQBudget.getBudgets() → JSON array (with spent / periodStart)
+ *   window.BudgetIQBudget.setCategoryRules(json) → {"swiggy": "Food", "uber": "Transport"}
+ *   window.BudgetIQBudget.addSpend(category, amount) → expense logged manually in the app
+ *
+ * An unreadable stored budget array is copied to budgets_v1.corrupt and never saved over;
+ * the engine then runs without budgets for the life of the process.
+ */
+public class BudgetEngine {
+
+    private static final String TAG = "BudgetEngine";
+
+    public static final String PERIOD_DAILY = "daily";
+    public static final String PERIOD_WEEKLY = "weekly";
+    public static final String PERIOD_MONTHLY = "monthly";
+
+    static final String CATEGORY_ALL = "*";
+    static final String CATEGORY_UNCATEGORIZED = "uncategorized";
+
+    private static final String PREFS_NAME = "budgetiq_budgets";
+    private static final String KEY_BUDGETS = "budgets_v1";
+    private static final String KEY_BUDGETS_CORRUPT = KEY_BUDGETS + ".corrupt";
+    private static final String KEY_RULES = "category_rules";
+
+    private static final Object lock = new Object();
+    private static Map<String, List<Budget>> byCategory; // Guarded by lock; loaded once per process
+    private static Map<String, String> categoryRules;    // Lowercase merchant keyword -> category
+    private static boolean corrupt; // Guarded by lock; stored budgets unreadable - never overwrite them
+
+    private final Context context;
+
+    public BudgetEngine(Context context) {
+        this.context = context;
+    }
+
+    // ==================== MODEL ====================
+
+    static class Budget {
+        String id;
+        String category = CATEGORY_ALL;
+        String period = PERIOD_MONTHLY;
+        double limit;
+        double[] thresholds = {0.8, 1.0}; // Ascending fractions of the limit
+        double spent;
+        long periodStart;
+        int alertedLevel;                 // Number of thresholds already alerted this period
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("category", category);
+            json.put("period", period);
+            json.put("limit", limit);
+            JSONArray t = new JSONArray();
+            for (double d : thresholds) t.put(d);
+            json.put("thresholds", t);
+            json.put("spent", spent);
+            json.put("periodStart", periodStart);
+            json.put("alertedLevel", alertedLevel);
+            return json;
+        }
+
+        static Budget fromJson(JSONObject json) {
+            Budget b = new Budget();
+            b.id = json.optString("id");
+            b.category = json.optString("category", CATEGORY_ALL);
+            b.period = json.optString("period", PERIOD_MONTHLY);
+            b.limit = Math.max(0, json.optDouble("limit", 0));
+            JSONArray t = json.optJSONArray("thresholds");
+            if (t != null && t.length() > 0) {
+                b.thresholds = new double[t.length()];
+                for (int i = 0; i < t.length(); i++) b.thresholds[i] = t.optDouble(i, 1.0);
+                Arrays.sort(b.thresholds);
+            }
+            b.spent = Math.max(0, json.optDouble("spent", 0));
+            b.periodStart = json.optLong("periodStart", 0);
+            b.alertedLevel = json.optInt("alertedLevel", 0);
+            return b;
+        }
+    }
+
+    // ==================== JS BRIDGE ====================
+
+    @JavascriptInterface
+    public void setBudgets(String json) {
+        try {
+            JSONArray arr = new JSONArray(json);
+            synchronized (lock) {
+                load(context);
+                byCategory.clear();
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < arr.length(); i++) {
+                    index(prepare(arr.getJSONObject(i), now));
+                }
+                save(context);
+            }
+        } catch (Exception e) {
+            // Ignore malformed input
+        }
+    }
+
+    @JavascriptInterface
+    public void setBudget(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            synchronized (lock) {
+                load(context);
+                removeLocked(obj.optString("id"));
+                index(prepare(obj, System.currentTimeMillis()));
+                save(context);
+            }
+        } catch (Exception e) {
+            // Ignore malformed input
+        }
+    }
+
+    @JavascriptInterface
+    public void removeBudget(String id) {
+        synchronized (lock) {
+            load(context);
+            if (removeLocked(id)) save(context);
+        }
+    }
+
+    @JavascriptInterface
+    public String getBudgets() {
+        JSONArray arr = new JSONArray();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            for (List<Budget> list : load(context).values()) {
+                for (Budget b : list) {
+                    try {
+                        rollPeriod(b, now);
+                        arr.put(b.toJson());
+                    } catch (Exception e) {
+                        // Skip
+                    }
+                }
+            }
+        }
+        return arr.toString();
+    }
+
+    @JavascriptInterface
+    public void setCategoryRules(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            Map<String, String> rules = new HashMap<>();
+            Iterator<String> keys = obj.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                rules.put(key.toLowerCase(Locale.ROOT), obj.getString(key));
+            }
+            synchronized (lock) {
+                categoryRules = rules;
+                prefs(context).edit().putString(KEY_RULES, obj.toString()).apply();
+            }
+        } catch (Exception e) {
+            // Ignore malformed input
+        }
+    }
+
+    @JavascriptInterface
+    public void addSpend(String category, double amount) {
+        addSpend(context, category, amount, System.currentTimeMillis());
+    }
+
+    // ==================== ENGINE ====================
+
+    /**
+     * Count a newly stored transaction against its budgets. Credits are ignored.
+     */
+    static void onTransaction(Context context, Transaction txn) {
+        if (!txn.isDebit()) return;
+        String category = txn.getCategory();
+        if (category.isEmpty()) category = categorize(context, txn.getMerchant());
+        addSpend(context, category, txn.getAmount(), txn.getTimestamp());
+    }
+
+    static void addSpend(Context context, String category, double amount, long at) {
+        if (amount <= 0) return;
+        List<Budget> crossed = new ArrayList<>();
+        synchronized (lock) {
+            Map<String, List<Budget>> all = load(context);
+            boolean changed = apply(all.get(CATEGORY_ALL), amount, at, crossed);
+            if (category != null && !CATEGORY_ALL.equals(category)) {
+                changed |= apply(all.get(category), amount, at, crossed);
+            }
+            if (changed) save(context);
+        }
+        for (Budget b : crossed) {
+            showAlert(context, b);
+        }
+    }
+
+    /**
+     * Re-attribute an already counted debit after the user categorized it from a notification,
+     * or take it out of the totals entirely (toCategory null: ignored / personal). Overall
+     * budgets only change in the latter case.
+     */
+    static void moveSpend(Context context, String fromCategory, String toCategory, double amount, long at) {
+        if (amount <= 0 || (toCategory != null && toCategory.equals(fromCategory))) return;
+        List<Budget> crossed = new ArrayList<>();
+        synchronized (lock) {
+            Map<String, List<Budget>> all = load(context);
+            boolean changed = false;
+            if (toCategory == null) {
+                changed = apply(all.get(CATEGORY_ALL), -amount, at, crossed);
+            }
+            if (fromCategory != null && !CATEGORY_ALL.equals(fromCategory)) {
+                changed |= apply(all.get(fromCategory), -amount, at, crossed);
+            }
+            if (toCategory != null && !CATEGORY_ALL.equals(toCategory)) {
+                changed |= apply(all.get(toCategory), amount, at, crossed);
+            }
+            if (changed) save(context);
+        }
+        for (Budget b : crossed) {
+            showAlert(context, b);
+        }
+    }
+
+    /**
+     * Add the amount (negative for corrections) to each budget in the list; collects copies
+     * of those that crossed a new threshold. Returns true if anything changed.
+     */
+    private static boolean apply(List<Budget> list, double amount, long at, List<Budget> crossed) {
+        if (list == null || list.isEmpty()) return false;
+        for (Budget b : list) {
+            rollPeriod(b, at);
+            if (at < b.periodStart) continue; // Older than the current period
+            b.spent = Math.max(0, b.spent + amount);
+            int level = b.alertedLevel;
+            while (level < b.thresholds.length && b.limit > 0
+                    && b.spent >= b.limit * b.thresholds[level]) {
+                level++;
+            }
+            if (level > b.alertedLevel) {
+                b.alertedLevel = level;
+                crossed.add(copy(b));
+            }
+        }
+        return true;
+    }
+
+    private static void rollPeriod(Budget b, long now) {
+        long start = periodStart(b.period, now);
+        if (start > b.periodStart) {
+            b.periodStart = start;
+            b.spent = 0;
+            b.alertedLevel = 0;
+        }
+    }
+
+    static long periodStart(String period, long at) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(at);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        switch (period) {
+            case PERIOD_DAILY:
+                break;
+            case PERIOD_WEEKLY:
+                int delta = (cal.get(Calendar.DAY_OF_WEEK) - cal.getFirstDayOfWeek() + 7) % 7;
+                cal.add(Calendar.DAY_OF_YEAR, -delta);
+                break;
+            default:
+                cal.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    static String categorize(Context context, String merchant) {
+        if (merchant == null || merchant.isEmpty()) return CATEGORY_UNCATEGORIZED;
+        String lower = merchant.toLowerCase(Locale.ROOT);
+        synchronized (lock) {
+            loadRules(context);
+            for (Map.Entry<String, String> rule : categoryRules.entrySet()) {
+                if (lower.contains(rule.getKey())) return rule.getValue();
+            }
+        }
+        return CATEGORY_UNCATEGORIZED;
+    }
+
+    private static Budget prepare(JSONObject json, long now) {
+        Budget b = Budget.fromJson(json);
+        if (b.id.isEmpty()) b.id = "b" + now;
+        long start = periodStart(b.period, now);
+        if (b.periodStart != start) {
+            b.periodStart = start;
+            b.alertedLevel = 0;
+        }
+        // Don't re-alert thresholds the seeded total has already passed
+        while (b.alertedLevel < b.thresholds.length && b.limit > 0
+                && b.spent >= b.limit * b.thresholds[b.alertedLevel]) {
+            b.alertedLevel++;
+        }
+        return b;
+    }
+
+    private static void index(Budget b) {
+        List<Budget> list = byCategory.get(b.category);
+        if (list == null) {
+            list = new ArrayList<>();
+            byCategory.put(b.category, list);
+        }
+        list.add(b);
+    }
+
+    private static boolean removeLocked(String id) {
+        for (List<Budget> list : byCategory.values()) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i).id.equals(id)) {
+                    list.remove(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Budget copy(Budget b) {
+        try {
+            return Budget.fromJson(b.toJson());
+        } catch (Exception e) {
+            return b;
+        }
+    }
+
+    // ==================== NOTIFICATION ====================
+
+    private static void showAlert(Context context, Budget b) {
+        String name = CATEGORY_ALL.equals(b.category) ? "Overall" : b.category;
+        String periodName = PERIOD_DAILY.equals(b.period) ? "today"
+                : PERIOD_WEEKLY.equals(b.period) ? "this week" : "this month";
+        int pct = (int) Math.round(b.spent * 100 / b.limit);
+        String title = b.spent >= b.limit
+                ? name + " budget exceeded"
+                : name + " budget " + pct + "% used";
+        String body = formatAmount(b.spent) + " of " + formatAmount(b.limit) + " spent " + periodName;
+
+        // Shares the budget channel's aggregation and rate limit with web-app alerts
+        BudgetNotificationHelper.createNotificationChannels(context);
+        BudgetNotificationHelper.post(context, BudgetNotificationHelper.CHANNEL_BUDGET, title, body);
+    }
+
+    private static String formatAmount(double amount) {
+        NumberFormat nf = NumberFormat.getNumberInstance(new Locale("en", "IN"));
+        nf.setMaximumFractionDigits(0);
+        return "₹" + nf.format(amount);
+    }
+
+    // ==================== PERSISTENCE ====================
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static Map<String, List<Budget>> load(Context context) {
+        if (byCategory != null) return byCategory;
+        byCategory = new HashMap<>();
+        SharedPreferences prefs = prefs(context);
+        String stored = prefs.getString(KEY_BUDGETS, "[]");
+        try {
+            JSONArray arr = new JSONArray(stored);
+            for (int i = 0; i < arr.length(); i++) {
+                index(Budget.fromJson(arr.getJSONObject(i)));
+            }
+        } catch (Exception e) {
+            // Corrupt: run without budgets, but keep the stored ones and never save over them
+            byCategory.clear();
+            corrupt = true;
+            if (!stored.equals(prefs.getString(KEY_BUDGETS_CORRUPT, null))) {
+                prefs.edit().putString(KEY_BUDGETS_CORRUPT, stored).apply();
+            }
+            DiagnosticLog.record(TAG, "load", e);
+        }
+        return byCategory;
+    }
+
+    private static void loadRules(Context context) {
+        if (categoryRules != null) return;
+        categoryRules = new HashMap<>();
+        try {
+            JSONObject obj = new JSONObject(prefs(context).getString(KEY_RULES, "{}"));
+            Iterator<String> keys = obj.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                categoryRules.put(key.toLowerCase(Locale.ROOT), obj.getString(key));
+            }
+        } catch (Exception e) {
+            // Corrupt - no rules
+        }
+    }
+
+    private static void save(Context context) {
+        if (corrupt) return;
+        JSONArray arr = new JSONArray();
+        for (List<Budget> list : byCategory.values()) {
+            for (Budget b : list) {
+                try {
+                    arr.put(b.toJson());
+                } catch (Exception e) {
+                    // Skip
+                }
+            }
+        }
+        prefs(context).edit().putString(KEY_BUDGETS, arr.toString()).apply();
+    }
+}
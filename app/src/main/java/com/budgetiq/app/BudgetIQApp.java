@@ -11,7 +11,17 @@ public class BudgetIQApp extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        StartupTracer.begin(StartupTracer.APP_ONCREATE);
+        // First, so a crash anywhere after this flushes the diagnostic events
+        DiagnosticLog.install(this);
         // Initialize App Open Ad manager
         new AppOpenAdManager(this);
+        StartupTracer.end(StartupTracer.APP_ONCREATE);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        MemoryGovernor.onTrimMemory(this, level);
     }
 }
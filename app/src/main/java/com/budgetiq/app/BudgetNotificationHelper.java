@@ -6,30 +6,94 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
 import android.webkit.JavascriptInterface;
 
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * JavaScript bridge for sending local notifications (budget alerts, reminders).
  * Exposed to WebView as window.BudgetIQNotify
+ *
+ * Alerts are aggregated per channel: calls within DEBOUNCE_MS are flushed together,
+ * and each channel has ONE notification that is updated in place - a single alert is
+ * shown as-is, more become an InboxStyle summary ("5 new alerts" + latest lines).
+ * Flushes are rate limited by a per-channel token bucket; when it's empty the flush is
+ * deferred and keeps collecting. PendingIntents are created once per channel.
  */
 public class BudgetNotificationHelper {
 
-    private static final String CHANNEL_BUDGET = "budget_alerts";
-    private static final String CHANNEL_EMI = "emi_reminders";
-    private static final String CHANNEL_TRANSACTION = "transactions";
+    static final String CHANNEL_BUDGET = "budget_alerts";
+    static final String CHANNEL_EMI = "emi_reminders";
+    static final String CHANNEL_TRANSACTION = "transactions";
+
+    private static final String GROUP_PREFIX = "com.budgetiq.group.";
+    private static final int NOTIF_ID_BUDGET = 100;
+    private static final int NOTIF_ID_EMI = 101;
+    private static final int NOTIF_ID_TRANSACTION = 102;
+    private static final long DEBOUNCE_MS = 400;
+    private static final int BUCKET_CAPACITY = 3;
+    private static final long TOKEN_REFILL_MS = 20 * 1000;
+    private static final int MAX_LINES = 6; // InboxStyle shows at most ~6 lines
+
+    private static volatile boolean channelsCreated = false;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Map<String, ChannelState> states = new HashMap<>(); // Guarded by states
 
     private final Context context;
-    private int notificationId = 100;
+
+    /**
+     * Aggregation state of one channel.
+     */
+    private static class ChannelState {
+        final String channel;
+        final int notifId;
+        final ArrayDeque<String[]> lines = new ArrayDeque<>(); // Latest {title, message}
+        int total;             // Alerts in the current notification (0 = none showing)
+        int pending;           // Alerts since the last flush
+        boolean flushScheduled;
+        double tokens = BUCKET_CAPACITY;
+        long lastRefill = SystemClock.elapsedRealtime();
+        PendingIntent contentIntent;
+
+        ChannelState(String channel, int notifId) {
+            this.channel = channel;
+            this.notifId = notifId;
+        }
+
+        /** Returns 0 if a token was taken, else ms until one is available. */
+        long takeToken() {
+            long now = SystemClock.elapsedRealtime();
+            tokens = Math.min(BUCKET_CAPACITY, tokens + (now - lastRefill) / (double) TOKEN_REFILL_MS);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * TOKEN_REFILL_MS);
+        }
+    }
 
     public BudgetNotificationHelper(Context context) {
         this.context = context;
-        createNotificationChannels();
+        createNotificationChannels(context);
     }
 
-    private void createNotificationChannels() {
+    /**
+     * Also called natively (bill reminders, budget engine) when the WebView isn't running.
+     */
+    static void createNotificationChannels(Context context) {
+        if (channelsCreated) return; // Once per process
+        channelsCreated = true;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationManager nm = context.getSystemService(NotificationManager.class);
 
@@ -60,7 +124,7 @@ public class BudgetNotificationHelper {
      */
     @JavascriptInterface
     public void budgetAlert(String title, String message) {
-        sendNotification(CHANNEL_BUDGET, title, message, R.mipmap.ic_launcher);
+        post(context, CHANNEL_BUDGET, title, message);
     }
 
     /**
@@ -69,7 +133,7 @@ public class BudgetNotificationHelper {
      */
     @JavascriptInterface
     public void emiReminder(String title, String message) {
-        sendNotification(CHANNEL_EMI, title, message, R.mipmap.ic_launcher);
+        post(context, CHANNEL_EMI, title, message);
     }
 
     /**
@@ -78,7 +142,7 @@ public class BudgetNotificationHelper {
      */
     @JavascriptInterface
     public void transactionDetected(String title, String message) {
-        sendNotification(CHANNEL_TRANSACTION, title, message, R.mipmap.ic_launcher);
+        post(context, CHANNEL_TRANSACTION, title, message);
     }
 
     /**
@@ -99,27 +163,117 @@ public class BudgetNotificationHelper {
         }
     }
 
-    private void sendNotification(String channel, String title, String message, int icon) {
+    // ==================== AGGREGATION ====================
+
+    /**
+     * Queue an alert on a channel. Safe from any thread; also used by native senders
+     * (budget engine) so their alerts share the channel's aggregation and rate limit.
+     */
+    static void post(Context context, String channel, String title, String message) {
+        Context app = context.getApplicationContext();
+        ChannelState state;
+        boolean schedule;
+        synchronized (states) {
+            state = states.get(channel);
+            if (state == null) {
+                state = new ChannelState(channel, notifIdFor(channel));
+                states.put(channel, state);
+            }
+            state.lines.addFirst(new String[]{title != null ? title : "", message != null ? message : ""});
+            while (state.lines.size() > MAX_LINES) state.lines.removeLast();
+            state.pending++;
+            schedule = !state.flushScheduled;
+            state.flushScheduled = true;
+        }
+        if (schedule) {
+            ChannelState s = state;
+            handler.postDelayed(() -> flush(app, s), DEBOUNCE_MS);
+        }
+    }
+
+    /**
+     * Fixed per channel, so a channel keeps its notification across process restarts.
+     */
+    private static int notifIdFor(String channel) {
+        switch (channel) {
+            case CHANNEL_EMI: return NOTIF_ID_EMI;
+            case CHANNEL_TRANSACTION: return NOTIF_ID_TRANSACTION;
+            default: return NOTIF_ID_BUDGET;
+        }
+    }
+
+    private static void flush(Context context, ChannelState state) {
+        NotificationCompat.Builder builder;
+        synchronized (states) {
+            long wait = state.takeToken();
+            if (wait > 0) {
+                // Rate limited: keep collecting, one update when a token is back
+                handler.postDelayed(() -> flush(context, state), wait);
+                return;
+            }
+            state.flushScheduled = false;
+            if (state.total > 0 && !isShowing(context, state.notifId)) {
+                state.total = 0; // Dismissed by the user since the last update
+            }
+            state.total += state.pending;
+            state.pending = 0;
+            builder = buildNotification(context, state);
+        }
+
         try {
+            NotificationManagerCompat.from(context).notify(state.notifId, builder.build());
+        } catch (Exception e) {
+            // Permission might not be granted
+        }
+    }
+
+    private static NotificationCompat.Builder buildNotification(Context context, ChannelState state) {
+        if (state.contentIntent == null) {
             Intent intent = new Intent(context, MainActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                    context, 0, intent,
+            state.contentIntent = PendingIntent.getActivity(context, state.notifId, intent,
                     PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, state.channel)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setGroup(GROUP_PREFIX + state.channel)
+                .setContentIntent(state.contentIntent)
+                .setAutoCancel(true);
 
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, channel)
-                    .setSmallIcon(icon)
-                    .setContentTitle(title)
+        String[] latest = state.lines.peekFirst();
+        if (state.total <= 1 || latest == null) {
+            String title = latest != null ? latest[0] : "";
+            String message = latest != null ? latest[1] : "";
+            return builder.setContentTitle(title)
                     .setContentText(message)
-                    .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
-                    .setPriority(NotificationCompat.PRIORITY_DEFAULT)
-                    .setContentIntent(pendingIntent)
-                    .setAutoCancel(true);
+                    .setStyle(new NotificationCompat.BigTextStyle().bigText(message));
+        }
+
+        NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle();
+        int shown = 0;
+        for (String[] line : state.lines) {
+            if (shown++ == Math.min(state.total, MAX_LINES)) break;
+            inbox.addLine(line[0].isEmpty() ? line[1] : line[0] + ": " + line[1]);
+        }
+        String summary = state.total + " new alerts";
+        if (state.total > MAX_LINES) inbox.setSummaryText("+" + (state.total - MAX_LINES) + " more");
+        return builder.setContentTitle(summary)
+                .setContentText(latest[0].isEmpty() ? latest[1] : latest[0])
+                .setNumber(state.total)
+                .setStyle(inbox.setBigContentTitle(summary));
+    }
 
-            NotificationManagerCompat nm = NotificationManagerCompat.from(context);
-            nm.notify(notificationId++, builder.build());
+    private static boolean isShowing(Context context, int notifId) {
+        try {
+            NotificationManager nm = context.getSystemService(NotificationManager.class);
+            for (StatusBarNotification sbn : nm.getActiveNotifications()) {
+                if (sbn.getId() == notifId && sbn.getTag() == null) return true;
+            }
+            return false;
         } catch (Exception e) {
-            // Permission might not be granted
+            return true;
         }
     }
 }
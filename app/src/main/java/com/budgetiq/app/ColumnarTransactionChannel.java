@@ -0,0 +1,92 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Base64;
+import android.webkit.WebView;
+
+import androidx.annotation.NonNull;
+import androidx.webkit.JavaScriptReplyProxy;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import com.budgetiq.core.ColumnarTransactionEncoder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Message channel for bulk transaction loads in columnar binary form
+ * (see ColumnarTransactionEncoder). Injected as window.BudgetIQColumnar.
+ *
+ * JS API:
+ *   BudgetIQColumnar.onmessage = (e) => decode(e.data);   // ArrayBuffer
+ *   BudgetIQColumnar.postMessage('recent:30');            // last 30 days
+ *   BudgetIQColumnar.postMessage('unprocessed:1718000000000');
+ *
+ * On WebView versions without ArrayBuffer messages the reply is the same
+ * payload as a string: "b64:" + base64.
+ */
+public class ColumnarTransactionChannel implements WebViewCompat.WebMessageListener {
+
+    private static final String TAG = "ColumnarChannel";
+
+    static final String JS_OBJECT_NAME = "BudgetIQColumnar";
+
+    private final Context context;
+
+    public ColumnarTransactionChannel(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Attach to a WebView; no-op if the WebView doesn't support message listeners.
+     */
+    public static void install(WebView webView, Context context, String... allowedOrigins) {
+        if (!WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)) return;
+        Set<String> origins = new HashSet<>();
+        for (String origin : allowedOrigins) {
+            // Origin rules must not end with a slash
+            origins.add(origin.endsWith("/") ? origin.substring(0, origin.length() - 1) : origin);
+        }
+        WebViewCompat.addWebMessageListener(webView, JS_OBJECT_NAME, origins,
+                new ColumnarTransactionChannel(context));
+    }
+
+    @Override
+    public void onPostMessage(@NonNull WebView view, @NonNull WebMessageCompat message,
+                              @NonNull Uri sourceOrigin, boolean isMainFrame,
+                              @NonNull JavaScriptReplyProxy replyProxy) {
+        String request = message.getType() == WebMessageCompat.TYPE_STRING ? message.getData() : null;
+        if (request == null) return;
+
+        long since;
+        boolean unprocessedOnly;
+        try {
+            if (request.startsWith("recent:")) {
+                int days = Integer.parseInt(request.substring(7));
+                since = System.currentTimeMillis() - ((long) days * 24 * 60 * 60 * 1000);
+                unprocessedOnly = false;
+            } else if (request.startsWith("unprocessed:")) {
+                since = Long.parseLong(request.substring(12));
+                unprocessedOnly = true;
+            } else {
+                return;
+            }
+        } catch (NumberFormatException e) {
+            DiagnosticLog.record(TAG, "parseRequest", e);
+            return;
+        }
+
+        // The store is capped and already parsed in memory, so encoding here is cheap
+        byte[] payload = ColumnarTransactionEncoder.encode(
+                TransactionStore.get(context).getSince(since, unprocessedOnly));
+
+        if (WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER)) {
+            replyProxy.postMessage(payload);
+        } else {
+            replyProxy.postMessage("b64:" + Base64.encodeToString(payload, Base64.NO_WRAP));
+        }
+    }
+}
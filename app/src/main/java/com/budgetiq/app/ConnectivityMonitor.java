@@ -0,0 +1,134 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide network state, kept current by a default-network callback
+ * instead of querying ConnectivityManager on every call.
+ *
+ * State is a single atomic int (bit flags), so reads are lock-free from any thread.
+ * Listeners are told about transitions on the main thread.
+ */
+public final class ConnectivityMonitor {
+
+    public interface Listener {
+        /**
+         * @param online    network is connected and validated (has working internet)
+         * @param metered   network is metered (typically cellular)
+         */
+        void onConnectivityChanged(boolean online, boolean metered);
+    }
+
+    private static final int FLAG_CONNECTED = 1;
+    private static final int FLAG_VALIDATED = 1 << 1;
+    private static final int FLAG_METERED = 1 << 2;
+
+    private static volatile ConnectivityMonitor instance;
+
+    private final AtomicInteger state = new AtomicInteger(0);
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static ConnectivityMonitor get(Context context) {
+        if (instance == null) {
+            synchronized (ConnectivityMonitor.class) {
+                if (instance == null) {
+                    instance = new ConnectivityMonitor(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectivityMonitor(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+
+        // Seed with the current state so the first reads are correct before any callback
+        Network active = cm.getActiveNetwork();
+        if (active != null) {
+            update(flagsFor(cm.getNetworkCapabilities(active)));
+        }
+
+        cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities caps) {
+                update(flagsFor(caps));
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                update(0);
+            }
+        });
+    }
+
+    private static int flagsFor(NetworkCapabilities caps) {
+        if (caps == null || !caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) return 0;
+        int flags = FLAG_CONNECTED;
+        if (caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) flags |= FLAG_VALIDATED;
+        if (!caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) flags |= FLAG_METERED;
+        return flags;
+    }
+
+    private void update(int flags) {
+        int previous = state.getAndSet(flags);
+        if (isOnline(previous) == isOnline(flags) && isMetered(previous) == isMetered(flags)) return;
+
+        boolean online = isOnline(flags);
+        boolean metered = isMetered(flags);
+        mainHandler.post(() -> {
+            for (Listener l : listeners) {
+                l.onConnectivityChanged(online, metered);
+            }
+        });
+    }
+
+    private static boolean isOnline(int flags) {
+        return (flags & FLAG_CONNECTED) != 0 && (flags & FLAG_VALIDATED) != 0;
+    }
+
+    private static boolean isMetered(int flags) {
+        return (flags & FLAG_METERED) != 0;
+    }
+
+    /**
+     * Connected to a network (may not be validated yet). Matches the old getActiveNetworkInfo check.
+     */
+    public boolean isConnected() {
+        return (state.get() & FLAG_CONNECTED) != 0;
+    }
+
+    /**
+     * Connected and validated: the network actually reaches the internet.
+     */
+    public boolean isOnline() {
+        return isOnline(state.get());
+    }
+
+    /**
+     * Metered (cellular, metered Wi-Fi). Prefetching should be turned down.
+     */
+    public boolean isMetered() {
+        int flags = state.get();
+        return (flags & FLAG_CONNECTED) == 0 || isMetered(flags);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,255 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of structured diagnostic events for catch blocks that used to swallow
+ * errors. Recording takes no lock and allocates nothing: a slot is claimed with one atomic
+ * increment and filled with references the caller already holds (TAG, a stage literal,
+ * the exception's class) plus a code and the monotonic time. The newest CAPACITY events
+ * are kept; older ones are overwritten.
+ *
+ * Nothing touches disk until a flush: on demand (bridge) or from the uncaught exception
+ * handler installed by BudgetIQApp, so the last events before a crash survive it. Flushes
+ * append new events to files/diagnostics/events.log, rotated to events.log.1 past
+ * MAX_FILE_BYTES. dumpsys of the notification listener prints the retained events but
+ * does not flush.
+ *
+ * Each slot is a seqlock: a writer clears the slot's published sequence, fills the
+ * fields, then publishes seq + 1; a reader reads the sequence, the fields, and the
+ * sequence again, and skips the event unless both reads match. The fields are atomic
+ * arrays read with volatile gets, which keeps the field reads ordered before the
+ * re-check (VarHandle.acquireFence() would do the same but needs API 33; minSdk is 24).
+ * Diagnostics are best effort: a slot lapped mid-read is skipped and counted as missed.
+ *
+ * JS: window.BudgetIQDebug.getDiagnosticEvents() → [{at, source, stage, error, code, thread}]
+ *     window.BudgetIQDebug.flushDiagnostics() → {written, dropped, file}
+ */
+public final class DiagnosticLog {
+
+    private static final String TAG = "DiagnosticLog";
+
+    private static final int CAPACITY = 512; // Power of two: slot = sequence & MASK
+    private static final int MASK = CAPACITY - 1;
+    private static final String DIR = "diagnostics";
+    private static final String FILE = "events.log";
+    private static final long MAX_FILE_BYTES = 256 * 1024;
+
+    private static final AtomicLong sequence = new AtomicLong();
+    // sequence + 1 of the event currently in each slot (0 = never written)
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray times = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray threads = new AtomicLongArray(CAPACITY);
+    private static final AtomicReferenceArray<String> sources = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicReferenceArray<String> stages = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicReferenceArray<Class<?>> errors = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicIntegerArray codes = new AtomicIntegerArray(CAPACITY);
+
+    private static volatile File dir;
+    private static long flushedUpTo; // Guarded by DiagnosticLog.class
+
+    private DiagnosticLog() {}
+
+    /**
+     * Set up the flush directory and flush on crash. Call once from Application.onCreate.
+     */
+    public static void install(Context context) {
+        dir = new File(context.getApplicationContext().getFilesDir(), DIR);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            try {
+                record(TAG, "uncaught", e);
+                flush("crash in " + thread.getName(), e);
+            } catch (Throwable t) {
+                // Ignore - never get in the way of the crash
+            }
+            if (previous != null) previous.uncaughtException(thread, e);
+        });
+    }
+
+    // ==================== RECORDING ====================
+
+    /**
+     * Record a caught exception.
+     * @param source the caller's TAG
+     * @param stage a string literal naming what was being done
+     */
+    public static void record(String source, String stage, Throwable error) {
+        write(source, stage, error != null ? error.getClass() : null, 0);
+    }
+
+    /**
+     * Record a failure without an exception (e.g. a billing response code).
+     */
+    public static void record(String source, String stage, int code) {
+        write(source, stage, null, code);
+    }
+
+    private static void write(String source, String stage, Class<?> error, int code) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & MASK);
+        // Unpublish first (volatile): a reader that sees any new field then fails its re-check
+        published.set(slot, 0);
+        times.lazySet(slot, SystemClock.elapsedRealtimeNanos());
+        threads.lazySet(slot, Thread.currentThread().getId());
+        sources.lazySet(slot, source);
+        stages.lazySet(slot, stage);
+        errors.lazySet(slot, error);
+        codes.lazySet(slot, code);
+        published.lazySet(slot, seq + 1); // Release: the fields are visible before this
+    }
+
+    // ==================== READING ====================
+
+    private interface EventVisitor {
+        void visit(long seq, long elapsedNanos, long thread, String source, String stage,
+                   Class<?> error, int code) throws Exception;
+    }
+
+    /**
+     * Visit the retained events with sequence >= from, oldest first.
+     * @return how many events in [from, end) were overwritten before they could be read
+     */
+    private static long forEach(long from, long end, EventVisitor visitor) throws Exception {
+        long start = Math.max(from, end - CAPACITY);
+        long missed = start - from;
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & MASK);
+            if (published.get(slot) != seq + 1) {
+                missed++;
+                continue;
+            }
+            // Volatile reads, so none of them can move after the re-check below
+            long time = times.get(slot);
+            long thread = threads.get(slot);
+            String source = sources.get(slot);
+            String stage = stages.get(slot);
+            Class<?> error = errors.get(slot);
+            int code = codes.get(slot);
+            if (published.get(slot) != seq + 1) {
+                missed++; // Overwritten while reading
+                continue;
+            }
+            visitor.visit(seq, time, thread, source, stage, error, code);
+        }
+        return missed;
+    }
+
+    /**
+     * Retained events as JSON, oldest first, with wall-clock times.
+     */
+    public static String toJson() {
+        try {
+            JSONArray events = new JSONArray();
+            long nowWall = System.currentTimeMillis();
+            long nowElapsed = SystemClock.elapsedRealtimeNanos();
+            forEach(0, sequence.get(), (seq, time, thread, source, stage, error, code) -> {
+                JSONObject event = new JSONObject();
+                event.put("at", nowWall - (nowElapsed - time) / 1_000_000);
+                event.put("source", source);
+                event.put("stage", stage);
+                event.put("error", error != null ? error.getSimpleName() : "");
+                event.put("code", code);
+                event.put("thread", thread);
+                events.put(event);
+            });
+            return events.toString();
+        } catch (Exception e) {
+            return "[]";
+        }
+    }
+
+    /**
+     * Retained events as text, for dumpsys.
+     */
+    public static void dump(PrintWriter pw, String prefix) {
+        try {
+            long end = sequence.get();
+            pw.println(prefix + "Diagnostic events: " + end + " recorded, last "
+                    + Math.min(end, CAPACITY) + " kept");
+            long nowWall = System.currentTimeMillis();
+            long nowElapsed = SystemClock.elapsedRealtimeNanos();
+            forEach(0, end, (seq, time, thread, source, stage, error, code) ->
+                    pw.println(prefix + "  " + line(nowWall, nowElapsed, time, thread, source, stage, error, code)));
+        } catch (Exception e) {
+            // Ignore
+        }
+    }
+
+    // ==================== FLUSH ====================
+
+    /**
+     * Append events recorded since the last flush to the log file.
+     * @return {written, dropped, file}
+     */
+    public static String flush() {
+        return flush("on demand", null);
+    }
+
+    private static synchronized String flush(String reason, Throwable crash) {
+        File directory = dir;
+        if (directory == null) return "{}";
+        try {
+            if (!directory.exists() && !directory.mkdirs()) return "{}";
+            File file = new File(directory, FILE);
+            if (file.length() > MAX_FILE_BYTES) {
+                File old = new File(directory, FILE + ".1");
+                if (old.exists()) old.delete();
+                file.renameTo(old);
+            }
+
+            long end = sequence.get();
+            long nowWall = System.currentTimeMillis();
+            long nowElapsed = SystemClock.elapsedRealtimeNanos();
+            long[] written = new long[1];
+            long dropped;
+            try (PrintWriter pw = new PrintWriter(new FileWriter(file, true))) {
+                pw.println("--- " + formatTime(nowWall) + " flush (" + reason + ") ---");
+                dropped = forEach(flushedUpTo, end, (seq, time, thread, source, stage, error, code) -> {
+                    pw.println(line(nowWall, nowElapsed, time, thread, source, stage, error, code));
+                    written[0]++;
+                });
+                if (dropped > 0) pw.println(dropped + " events overwritten before this flush");
+                if (crash != null) crash.printStackTrace(pw);
+            }
+            flushedUpTo = end;
+
+            JSONObject result = new JSONObject();
+            result.put("written", written[0]);
+            result.put("dropped", dropped);
+            result.put("file", file.getAbsolutePath());
+            return result.toString();
+        } catch (Exception e) {
+            Log.e(TAG, "Flush failed: " + e.getMessage());
+            return "{}";
+        }
+    }
+
+    private static String line(long nowWall, long nowElapsed, long time, long thread, String source,
+                               String stage, Class<?> error, int code) {
+        return formatTime(nowWall - (nowElapsed - time) / 1_000_000)
+                + " tid=" + thread + " " + source + " " + stage
+                + (error != null ? " " + error.getName() : "")
+                + (code != 0 ? " code=" + code : "");
+    }
+
+    private static String formatTime(long wallMillis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date(wallMillis));
+    }
+}
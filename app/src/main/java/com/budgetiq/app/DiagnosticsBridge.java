@@ -0,0 +1,92 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.webkit.JavascriptInterface;
+
+/**
+ * JavaScript bridge for native diagnostics.
+ * Exposed to WebView as window.BudgetIQDebug
+ *
+ * JS API:
+ *   window.BudgetIQDebug.getStartupReport() → JSON string (this launch's cold-start phases)
+ *   window.BudgetIQDebug.getMemoryEvents() → JSON string (trim / renderer-death counters)
+ *   window.BudgetIQDebug.getReminderStats() → JSON string {fired, reworded, skipped}
+ *   window.BudgetIQDebug.getVerificationQueue() → JSON string {depth, oldestAt, nextAttemptAt, lastError}
+ *   window.BudgetIQDebug.getAdInventory() → JSON string {format: {state, ageMs, requested, filled, failed, shown, wasted, lastError}}
+ *   window.BudgetIQDebug.getPipelineMetrics() → JSON string {uptimeMs, counters: {name: n}, latency: {stage: {count, meanUs, p50Us, p90Us, p99Us, maxUs}}}
+ *   window.BudgetIQDebug.getDiagnosticEvents() → JSON string [{at, source, stage, error, code, thread}]
+ *   window.BudgetIQDebug.flushDiagnostics() → JSON string {written, dropped, file}
+ */
+public class DiagnosticsBridge {
+
+    private final Context context;
+
+    public DiagnosticsBridge(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Cold-start report for the current process, "{}" until first paint.
+     */
+    @JavascriptInterface
+    public String getStartupReport() {
+        return StartupTracer.getLastReport();
+    }
+
+    /**
+     * How often each trim level and renderer death has happened on this install.
+     */
+    @JavascriptInterface
+    public String getMemoryEvents() {
+        return MemoryGovernor.getEventCounts(context);
+    }
+
+    /**
+     * How many reminders were shown, reworded or skipped because of recent activity.
+     */
+    @JavascriptInterface
+    public String getReminderStats() {
+        return ReminderReceiver.getStats(context);
+    }
+
+    /**
+     * Purchases still waiting for backend verification.
+     */
+    @JavascriptInterface
+    public String getVerificationQueue() {
+        return VerificationQueue.get(context).getStats();
+    }
+
+    /**
+     * Ad pool state per format, with counts of loads that were shown vs. wasted.
+     */
+    @JavascriptInterface
+    public String getAdInventory() {
+        return AdInventory.get(context).getStats();
+    }
+
+    /**
+     * Notification pipeline counters (seen, filtered, parsed, duplicate, stored, failed)
+     * and per-stage latency since the process started.
+     */
+    @JavascriptInterface
+    public String getPipelineMetrics() {
+        return TransactionNotificationListener.getMetrics();
+    }
+
+    /**
+     * Recent caught errors and failure codes from the in-memory ring, oldest first.
+     */
+    @JavascriptInterface
+    public String getDiagnosticEvents() {
+        return DiagnosticLog.toJson();
+    }
+
+    /**
+     * Write events recorded since the last flush to the diagnostics file (for bug reports).
+     */
+    @JavascriptInterface
+    public String flushDiagnostics() {
+        return DiagnosticLog.flush();
+    }
+}
@@ -0,0 +1,137 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Last known subscription entitlement, persisted so it is available synchronously at
+ * startup - before Play Billing connects and answers queryPurchases.
+ *
+ * BillingManager reconciles it whenever purchases are queried. The entry records a
+ * fingerprint of the active purchase tokens, so a reconcile that finds the same
+ * purchases is recognised as "no change" and nothing is pushed to the page.
+ *
+ * Entries older than TTL_MS are reported as stale (still usable, needs a refresh);
+ * an "active" entry older than GRACE_MS no longer counts as subscribed, so a lapsed
+ * subscription can't be kept alive forever by staying offline.
+ */
+public final class EntitlementCache {
+
+    public static final String STATUS_ACTIVE = "active";
+    public static final String STATUS_NONE = "none";
+    public static final String STATUS_UNKNOWN = "unknown";
+
+    static final long TTL_MS = 24L * 60 * 60 * 1000;        // 1 day
+    static final long GRACE_MS = 7L * 24 * 60 * 60 * 1000;  // 7 days
+
+    private static final String KEY_STATUS = "entitlement_status";
+    private static final String KEY_CHECKED_AT = "entitlement_checked_at";
+    private static final String KEY_TOKEN_FINGERPRINT = "entitlement_token_fp";
+    // Written by older versions; read once to seed the cache
+    private static final String KEY_LEGACY_ACTIVE = "subscription_active";
+
+    private static volatile EntitlementCache instance;
+
+    private final SharedPreferences prefs;
+    private volatile String status;
+    private volatile long checkedAt;
+    private volatile String tokenFingerprint;
+
+    public static EntitlementCache get(Context context) {
+        if (instance == null) {
+            synchronized (EntitlementCache.class) {
+                if (instance == null) {
+                    instance = new EntitlementCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private EntitlementCache(Context context) {
+        prefs = context.getSharedPreferences(BillingManager.PREFS_NAME, Context.MODE_PRIVATE);
+        status = prefs.getString(KEY_STATUS, null);
+        checkedAt = prefs.getLong(KEY_CHECKED_AT, 0);
+        tokenFingerprint = prefs.getString(KEY_TOKEN_FINGERPRINT, "");
+        if (status == null) {
+            // Seed from the old flag; checkedAt 0 marks it stale so it gets reconciled
+            status = !prefs.contains(KEY_LEGACY_ACTIVE) ? STATUS_UNKNOWN
+                    : prefs.getBoolean(KEY_LEGACY_ACTIVE, false) ? STATUS_ACTIVE : STATUS_NONE;
+            checkedAt = status.equals(STATUS_ACTIVE) ? System.currentTimeMillis() - TTL_MS : 0;
+        }
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isStale() {
+        return System.currentTimeMillis() - checkedAt > TTL_MS;
+    }
+
+    /**
+     * Whether to treat the user as subscribed right now (ads, pro features).
+     */
+    public boolean isActive() {
+        return STATUS_ACTIVE.equals(status) && System.currentTimeMillis() - checkedAt < GRACE_MS;
+    }
+
+    /**
+     * Snapshot for the page: {status, active, stale, checkedAt}.
+     */
+    public String toJson() {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("status", status);
+            json.put("active", isActive());
+            json.put("stale", isStale());
+            json.put("checkedAt", checkedAt);
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    /**
+     * Record the result of a successful purchases query.
+     * @param activeTokens purchase tokens of all PURCHASED subscriptions
+     * @return true if the status changed (the page should be told)
+     */
+    public synchronized boolean reconcile(List<String> activeTokens) {
+        String newStatus = activeTokens.isEmpty() ? STATUS_NONE : STATUS_ACTIVE;
+        String fingerprint = fingerprint(activeTokens);
+        // Same purchases as last time: nothing changed, only the check time moves
+        boolean changed = !newStatus.equals(status) || !fingerprint.equals(tokenFingerprint);
+        boolean statusChanged = !newStatus.equals(status);
+
+        status = newStatus;
+        tokenFingerprint = fingerprint;
+        checkedAt = System.currentTimeMillis();
+
+        SharedPreferences.Editor editor = prefs.edit().putLong(KEY_CHECKED_AT, checkedAt);
+        if (changed || !prefs.contains(KEY_STATUS)) {
+            editor.putString(KEY_STATUS, status)
+                    .putString(KEY_TOKEN_FINGERPRINT, fingerprint)
+                    .remove(KEY_LEGACY_ACTIVE);
+        }
+        editor.apply();
+        return statusChanged;
+    }
+
+    private static String fingerprint(List<String> tokens) {
+        if (tokens.isEmpty()) return "";
+        String[] sorted = tokens.toArray(new String[0]);
+        Arrays.sort(sorted);
+        try {
+            return AppShellManager.sha256(String.join("\n", sorted).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            return String.valueOf(String.join("\n", sorted).hashCode());
+        }
+    }
+}
@@ -6,19 +6,20 @@ import android.app.Activity;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.Settings;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.webkit.CookieManager;
+import android.webkit.RenderProcessGoneDetail;
 import android.webkit.ValueCallback;
 import android.webkit.WebChromeClient;
 import android.webkit.WebResourceError;
 import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -32,88 +33,105 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
-import com.google.android.gms.ads.MobileAds;
+public class MainActivity extends AppCompatActivity implements ConnectivityMonitor.Listener {
 
-public class MainActivity extends AppCompatActivity {
-
-    private static final String BASE_URL = "https://optioninsights.in/welcome/";
+    static final String ORIGIN = "https://optioninsights.in/";
+    private static final String BASE_URL = ORIGIN + "welcome/";
     private static final int FILE_CHOOSER_REQUEST = 1001;
     private static final int NOTIFICATION_PERMISSION_REQUEST = 1004;
+    private static final long SPLASH_TIMEOUT_MS = 4000; // Safety net if first paint never comes
+    private static final String STATE_URL = "webview_url";
 
     private WebView webView;
     private ProgressBar progressBar;
     private SwipeRefreshLayout swipeRefresh;
     private LinearLayout offlineLayout;
+    private View splashOverlay;
     private ValueCallback<Uri[]> filePathCallback;
 
     // Billing & Ads managers
     private BillingManager billingManager;
     private AdManager adManager;
+    private WebAssetCache webAssetCache;
+    private AppShellManager appShell;
+    private ConnectivityMonitor connectivity;
+    private boolean offlineFallback = false; // Offline screen/shell shown because the network was down
     private boolean swipeRefreshAllowed = true;
+    private String lastUrl; // Restored after a renderer death
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer.begin(StartupTracer.MAIN_ONCREATE);
         setContentView(R.layout.activity_main);
 
-        // Initialize AdMob
-        MobileAds.initialize(this, initializationStatus -> {});
-
         webView = findViewById(R.id.webView);
         progressBar = findViewById(R.id.progressBar);
         swipeRefresh = findViewById(R.id.swipeRefresh);
         offlineLayout = findViewById(R.id.offlineLayout);
         Button retryButton = findViewById(R.id.retryButton);
+        splashOverlay = findViewById(R.id.splashOverlay);
+
+        // Keep the splash up until the page paints (fresh launches only)
+        if (savedInstanceState == null) {
+            splashOverlay.setVisibility(View.VISIBLE);
+            splashOverlay.postDelayed(this::dismissSplash, SPLASH_TIMEOUT_MS);
+        }
+
+        connectivity = ConnectivityMonitor.get(this);
+        connectivity.addListener(this);
+
+        // Native disk cache for static JS/CSS/fonts
+        webAssetCache = new WebAssetCache(this, ORIGIN);
+        appShell = new AppShellManager(this, ORIGIN);
 
         // Initialize billing and ads
         billingManager = new BillingManager(this);
         adManager = new AdManager(this);
 
         // Setup WebView
+        StartupTracer.begin(StartupTracer.SETUP_WEBVIEW);
         setupWebView();
+        StartupTracer.end(StartupTracer.SETUP_WEBVIEW);
 
         // Swipe to refresh - only when WebView is at the very top
         swipeRefresh.setColorSchemeColors(0xFF17C8D8, 0xFF7C3AED);
         swipeRefresh.setOnRefreshListener(() -> {
             if (isNetworkAvailable()) {
-                webView.reload();
+                reloadPage();
             } else {
                 swipeRefresh.setRefreshing(false);
                 showOffline();
             }
         });
-        // Disable pull-to-refresh when page has inner scrollable content (overflow:auto divs)
-        // The web page can call window.BudgetIQSwipe.setEnabled(false) to disable
-        webView.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
-            swipeRefresh.setEnabled(scrollY == 0 && swipeRefreshAllowed);
-        });
-        webView.addJavascriptInterface(new Object() {
-            @android.webkit.JavascriptInterface
-            public void setEnabled(boolean enabled) {
-                runOnUiThread(() -> {
-                    swipeRefreshAllowed = enabled;
-                    swipeRefresh.setEnabled(enabled);
-                });
-            }
-        }, "BudgetIQSwipe");
-
         // Retry button
         retryButton.setOnClickListener(v -> {
             if (isNetworkAvailable()) {
                 hideOffline();
-                webView.reload();
+                reloadPage();
             }
         });
 
         // Re-schedule any active reminders
+        StartupTracer.begin(StartupTracer.REMINDER_SCHEDULE);
         ReminderScheduler.scheduleAll(this);
-
-        // Load URL
+        StartupTracer.end(StartupTracer.REMINDER_SCHEDULE);
+
+        // Load URL. Online this still waits on the origin for the HTML document (static assets
+        // come from WebAssetCache); the local app shell is the offline fallback only, so
+        // captured transactions stay visible without a network.
+        // After process death, reopen the page the user was on (history isn't kept)
+        String savedUrl = savedInstanceState != null ? savedInstanceState.getString(STATE_URL) : null;
+        if (savedUrl == null || !savedUrl.startsWith(ORIGIN)) savedUrl = BASE_URL;
         if (isNetworkAvailable()) {
-            webView.loadUrl(BASE_URL);
+            webView.loadUrl(savedUrl);
+            if (!connectivity.isMetered()) {
+                appShell.refreshInBackground();
+            }
         } else {
-            showOffline();
+            showOfflineShell();
         }
+        StartupTracer.end(StartupTracer.MAIN_ONCREATE);
     }
 
     /**
@@ -143,12 +161,34 @@ public class MainActivity extends AppCompatActivity {
         CookieManager.getInstance().setAcceptCookie(true);
         CookieManager.getInstance().setAcceptThirdPartyCookies(webView, true);
 
+        // Disable pull-to-refresh when page has inner scrollable content (overflow:auto divs)
+        // The web page can call window.BudgetIQSwipe.setEnabled(false) to disable
+        webView.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            swipeRefresh.setEnabled(scrollY == 0 && swipeRefreshAllowed);
+        });
+        webView.addJavascriptInterface(new Object() {
+            @android.webkit.JavascriptInterface
+            public void setEnabled(boolean enabled) {
+                runOnUiThread(() -> {
+                    swipeRefreshAllowed = enabled;
+                    swipeRefresh.setEnabled(enabled);
+                });
+            }
+        }, "BudgetIQSwipe");
+
         // Add JS bridges
         webView.addJavascriptInterface(new NotificationBridge(this), "BudgetIQSms");
         webView.addJavascriptInterface(new BudgetNotificationHelper(this), "BudgetIQNotify");
         webView.addJavascriptInterface(new ReminderScheduler(this), "BudgetIQReminder");
+        webView.addJavascriptInterface(new BillCalendar(this), "BudgetIQBills");
+        webView.addJavascriptInterface(new BudgetEngine(this), "BudgetIQBudget");
         webView.addJavascriptInterface(billingManager, "BudgetIQBilling");
         webView.addJavascriptInterface(adManager, "BudgetIQAds");
+        webView.addJavascriptInterface(new DiagnosticsBridge(this), "BudgetIQDebug");
+
+        // Binary message channel for bulk transaction loads
+        ColumnarTransactionChannel.install(webView, this, ORIGIN,
+                "https://" + AppShellManager.SHELL_HOST);
 
         webView.setWebViewClient(new WebViewClient() {
             @Override
@@ -161,28 +201,70 @@ public class MainActivity extends AppCompatActivity {
                 progressBar.setVisibility(View.GONE);
                 swipeRefresh.setRefreshing(false);
                 hideOffline();
+                if (!AppShellManager.isShellUrl(url)) offlineFallback = false;
+                lastUrl = url;
+
+                // Ad SDK init is deferred until the page is up (no-op after the first call)
+                AdInitScheduler.start(MainActivity.this);
 
                 // Notify WebView that native bridges are available
                 view.evaluateJavascript(
                         "if(window.onNativeBridgeReady) window.onNativeBridgeReady();", null);
             }
 
+            @Override
+            public void onPageCommitVisible(WebView view, String url) {
+                // Content is committed; wait for it to actually reach the screen
+                view.postVisualStateCallback(0, new WebView.VisualStateCallback() {
+                    @Override
+                    public void onComplete(long requestId) {
+                        StartupTracer.mark(StartupTracer.FIRST_PAINT);
+                        dismissSplash();
+                    }
+                });
+            }
+
             @Override
             public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
                 if (request.isForMainFrame()) {
+                    dismissSplash();
                     progressBar.setVisibility(View.GONE);
                     swipeRefresh.setRefreshing(false);
                     if (!isNetworkAvailable()) {
-                        showOffline();
+                        if (AppShellManager.isShellUrl(request.getUrl().toString())) {
+                            showOffline();
+                        } else {
+                            showOfflineShell();
+                        }
                     }
                 }
             }
 
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                WebResourceResponse shell = appShell.intercept(request.getUrl());
+                if (shell != null) return shell;
+                WebResourceResponse cached = webAssetCache.intercept(request);
+                return cached != null ? cached : super.shouldInterceptRequest(view, request);
+            }
+
+            @Override
+            public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+                MemoryGovernor.onRendererGone(MainActivity.this, detail.didCrash());
+                if (view != webView || isFinishing()) {
+                    // Stale WebView (already replaced) - just clean it up
+                    view.destroy();
+                    return true;
+                }
+                recreateWebView();
+                return true;
+            }
+
             @Override
             public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
                 String url = request.getUrl().toString();
                 // Keep navigation within our domain
-                if (url.contains("optioninsights.in")) {
+                if (url.contains("optioninsights.in") || AppShellManager.isShellUrl(url)) {
                     return false;
                 }
                 // Open external links in browser
@@ -259,12 +341,99 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private boolean isNetworkAvailable() {
-        ConnectivityManager cm = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        return activeNetwork != null && activeNetwork.isConnected();
+        return connectivity.isConnected();
+    }
+
+    /**
+     * ConnectivityMonitor callback (main thread): reload once the network is validated again.
+     */
+    @Override
+    public void onConnectivityChanged(boolean online, boolean metered) {
+        if (!online || !offlineFallback || webView == null) return;
+        offlineFallback = false;
+        hideOffline();
+        reloadPage();
+    }
+
+    /**
+     * Reload the remote app; from the offline shell (or a page that never loaded) go to BASE_URL.
+     */
+    private void reloadPage() {
+        String url = webView.getUrl();
+        if (url == null || AppShellManager.isShellUrl(url)) {
+            webView.loadUrl(BASE_URL);
+        } else {
+            webView.reload();
+        }
+    }
+
+    /**
+     * The renderer is gone and the WebView is unusable: swap in a fresh one at the same
+     * place in the layout and reload the last page.
+     */
+    private void recreateWebView() {
+        WebView dead = webView;
+        String url = lastUrl != null ? lastUrl : dead.getUrl();
+        try {
+            ViewGroup parent = (ViewGroup) dead.getParent();
+            ViewGroup.LayoutParams params = dead.getLayoutParams();
+            int index = parent.indexOfChild(dead);
+            parent.removeView(dead);
+            dead.destroy();
+
+            webView = new WebView(this);
+            webView.setId(R.id.webView);
+            parent.addView(webView, index, params);
+            setupWebView();
+
+            if (url != null && (isNetworkAvailable() || AppShellManager.isShellUrl(url))) {
+                webView.loadUrl(url);
+            } else if (isNetworkAvailable()) {
+                webView.loadUrl(BASE_URL);
+            } else {
+                showOfflineShell();
+            }
+            MemoryGovernor.recordRecovery(this, true);
+        } catch (Exception e) {
+            MemoryGovernor.recordRecovery(this, false);
+            recreate();
+        }
+    }
+
+    /**
+     * Release the renderer's in-memory resource cache. Process-wide trimming (ads,
+     * transaction cache) is done by MemoryGovernor from BudgetIQApp.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (webView != null && MemoryGovernor.shouldReleaseCaches(level)) {
+            webView.clearCache(false); // RAM cache only, disk cache stays
+        }
+    }
+
+    private void dismissSplash() {
+        if (splashOverlay == null || splashOverlay.getVisibility() != View.VISIBLE) return;
+        StartupTracer.finishLaunch(this);
+        AdInitScheduler.start(this);
+        splashOverlay.animate().alpha(0f).setDuration(200)
+                .withEndAction(() -> splashOverlay.setVisibility(View.GONE));
+    }
+
+    /**
+     * Serve the locally bundled app shell instead of the remote page.
+     */
+    private void showOfflineShell() {
+        hideOffline();
+        offlineFallback = true;
+        String current = webView.getUrl();
+        if (!AppShellManager.isShellUrl(current)) {
+            webView.loadUrl(AppShellManager.SHELL_URL);
+        }
     }
 
     private void showOffline() {
+        offlineFallback = true;
         offlineLayout.setVisibility(View.VISIBLE);
         webView.setVisibility(View.GONE);
     }
@@ -331,10 +500,23 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // Only the current URL: WebView.saveState() carries the whole back/forward list and
+        // can exceed the Binder transaction limit on long sessions
+        String url = webView != null ? webView.getUrl() : null;
+        if (url != null && url.startsWith(ORIGIN)) {
+            outState.putString(STATE_URL, url);
+        }
+    }
+
     @Override
     protected void onDestroy() {
+        if (connectivity != null) connectivity.removeListener(this);
         if (billingManager != null) billingManager.destroy();
         if (adManager != null) adManager.destroy();
+        if (webAssetCache != null) webAssetCache.shutdown();
         if (webView != null) webView.destroy();
         super.onDestroy();
     }
@@ -0,0 +1,122 @@
+package com.budgetiq.app;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Central handling of memory pressure for the WebView host.
+ *
+ * Components that hold releasable memory (WebView RAM cache, loaded ads, the parsed
+ * transaction cache) register here; MainActivity forwards onTrimMemory. Trim events and
+ * renderer deaths are counted in prefs so field reports show how often they happen.
+ *
+ * JS: window.BudgetIQDebug.getMemoryEvents() → {"trim_running_low":3,"renderer_killed":1,...}
+ */
+public final class MemoryGovernor {
+
+    public interface Releasable {
+        void onTrimMemory(int level);
+    }
+
+    private static final String PREFS_NAME = "budgetiq_diagnostics";
+    private static final String KEY_PREFIX = "mem_";
+
+    private static final CopyOnWriteArrayList<Releasable> components = new CopyOnWriteArrayList<>();
+
+    private MemoryGovernor() {}
+
+    public static void register(Releasable component) {
+        components.addIfAbsent(component);
+    }
+
+    public static void unregister(Releasable component) {
+        components.remove(component);
+    }
+
+    /**
+     * Caches that are cheap to rebuild: drop as soon as the system reports pressure.
+     */
+    public static boolean shouldReleaseCaches(int level) {
+        return level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+    }
+
+    /**
+     * Expensive objects (loaded ads): only drop when we're close to being killed.
+     */
+    public static boolean shouldReleaseExpensive(int level) {
+        return level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+    }
+
+    public static void onTrimMemory(Context context, int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) return; // Not pressure
+        record(context, "trim_" + levelName(level));
+        if (shouldReleaseCaches(level)) {
+            TransactionStore.get(context).trimMemory();
+        }
+        for (Releasable component : components) {
+            component.onTrimMemory(level);
+        }
+    }
+
+    /**
+     * @param crashed true if the renderer crashed, false if the system killed it for memory
+     */
+    public static void onRendererGone(Context context, boolean crashed) {
+        record(context, crashed ? "renderer_crashed" : "renderer_killed");
+    }
+
+    public static void recordRecovery(Context context, boolean success) {
+        record(context, success ? "renderer_recovered" : "renderer_recovery_failed");
+    }
+
+    public static String getEventCounts(Context context) {
+        try {
+            JSONObject json = new JSONObject();
+            for (Map.Entry<String, ?> e : prefs(context).getAll().entrySet()) {
+                if (e.getKey().startsWith(KEY_PREFIX)) {
+                    json.put(e.getKey().substring(KEY_PREFIX.length()), e.getValue());
+                }
+            }
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    private static void record(Context context, String event) {
+        SharedPreferences prefs = prefs(context);
+        String key = KEY_PREFIX + event;
+        prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static String levelName(int level) {
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+                return "running_moderate";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+                return "running_low";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+                return "running_critical";
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                return "background";
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+                return "moderate";
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                return "complete";
+            default:
+                return String.valueOf(level);
+        }
+    }
+}
@@ -2,12 +2,12 @@ package com.budgetiq.app;
 
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.provider.Settings;
 import android.webkit.JavascriptInterface;
 
+import com.budgetiq.core.TransactionJson;
+
 import org.json.JSONArray;
-import org.json.JSONObject;
 
 /**
  * JavaScript bridge for accessing detected transactions from notifications.
@@ -15,8 +15,7 @@ import org.json.JSONObject;
  */
 public class NotificationBridge {
 
-    private static final String PREFS_NAME = "budgetiq_transactions";
-    private static final String KEY_TRANSACTIONS = "pending_transactions";
+    private static final String TAG = "NotificationBridge";
 
     private final Context context;
 
@@ -47,24 +46,7 @@ public class NotificationBridge {
      */
     @JavascriptInterface
     public String getUnprocessedTransactions(long lastProcessedTimestamp) {
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String stored = prefs.getString(KEY_TRANSACTIONS, "[]");
-            JSONArray all = new JSONArray(stored);
-            JSONArray result = new JSONArray();
-
-            for (int i = 0; i < all.length(); i++) {
-                JSONObject txn = all.getJSONObject(i);
-                if (txn.getLong("timestamp") > lastProcessedTimestamp
-                        && !txn.optBoolean("processed", false)) {
-                    result.put(txn);
-                }
-            }
-
-            return result.toString();
-        } catch (Exception e) {
-            return "[]";
-        }
+        return TransactionJson.toJson(TransactionStore.get(context).getSince(lastProcessedTimestamp, true));
     }
 
     /**
@@ -72,52 +54,48 @@ public class NotificationBridge {
      */
     @JavascriptInterface
     public String getRecentTransactions(int days) {
+        long since = System.currentTimeMillis() - ((long) days * 24 * 60 * 60 * 1000);
+        return TransactionJson.toJson(TransactionStore.get(context).getSince(since, false));
+    }
+
+    /**
+     * Mark transactions as processed (by timestamps)
+     */
+    @JavascriptInterface
+    public void markProcessed(String timestampsJson) {
         try {
-            long since = System.currentTimeMillis() - ((long) days * 24 * 60 * 60 * 1000);
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String stored = prefs.getString(KEY_TRANSACTIONS, "[]");
-            JSONArray all = new JSONArray(stored);
-            JSONArray result = new JSONArray();
-
-            for (int i = 0; i < all.length(); i++) {
-                JSONObject txn = all.getJSONObject(i);
-                if (txn.getLong("timestamp") > since) {
-                    result.put(txn);
-                }
-            }
-
-            return result.toString();
+            TransactionStore.get(context).markProcessed(toTimestamps(timestampsJson));
         } catch (Exception e) {
-            return "[]";
+            DiagnosticLog.record(TAG, "markProcessed", e);
         }
     }
 
     /**
-     * Mark transactions as processed (by timestamps)
+     * Transactions categorized / ignored / marked personal from a notification while the
+     * app was closed. Each has userAction ("category" | "ignore" | "personal"), actionAt and
+     * category (for "category"). Call ackActions with their timestamps once applied.
      */
     @JavascriptInterface
-    public void markProcessed(String timestampsJson) {
+    public String getPendingActions() {
+        return TransactionJson.toJson(TransactionStore.get(context).getPendingSync());
+    }
+
+    @JavascriptInterface
+    public void ackActions(String timestampsJson) {
         try {
-            JSONArray timestamps = new JSONArray(timestampsJson);
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String stored = prefs.getString(KEY_TRANSACTIONS, "[]");
-            JSONArray all = new JSONArray(stored);
-
-            for (int i = 0; i < all.length(); i++) {
-                JSONObject txn = all.getJSONObject(i);
-                long ts = txn.getLong("timestamp");
-                for (int j = 0; j < timestamps.length(); j++) {
-                    if (timestamps.getLong(j) == ts) {
-                        txn.put("processed", true);
-                        break;
-                    }
-                }
-            }
-
-            prefs.edit().putString(KEY_TRANSACTIONS, all.toString()).apply();
+            TransactionStore.get(context).ackSynced(toTimestamps(timestampsJson));
         } catch (Exception e) {
-            // Ignore
+            DiagnosticLog.record(TAG, "ackActions", e);
+        }
+    }
+
+    private static long[] toTimestamps(String json) throws Exception {
+        JSONArray arr = new JSONArray(json);
+        long[] timestamps = new long[arr.length()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = arr.getLong(i);
         }
+        return timestamps;
     }
 
     private boolean isNotificationListenerEnabled() {
@@ -0,0 +1,426 @@
+package com.budgetiq.app;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Timeline-based reminder engine.
+ *
+ * Any number of reminders with daily / weekly / monthly recurrence are kept in a priority
+ * queue ordered by next fire time. Only ONE alarm is armed, for the head of the queue; when
+ * it goes off every reminder that is due is fired in the same wakeup and the alarm is re-armed
+ * for the new head.
+ *
+ * Bill reminders (BillCalendar) share the same alarm: the armed time is the earliest of
+ * both, and ReminderReceiver fires due bills in the same wakeup.
+ *
+ * Reminders are persisted as a JSON array in the "budgetiq_reminders" prefs. The legacy
+ * morning/afternoon/evening slots are reminders with those ids (migrated on first load).
+ * An unreadable array is copied to reminders_v2.corrupt and never saved over; the engine
+ * then runs on an empty list for the life of the process.
+ *
+ * The legacy slots are "log your expenses" nudges, so before showing one the receiver asks
+ * activityAction(): if enough was captured or logged since the previous slot (TransactionStore's
+ * activity index) the reminder is skipped or reworded instead.
+ */
+public final class ReminderEngine {
+
+    private static final String TAG = "ReminderEngine";
+
+    public static final String RECUR_DAILY = "daily";
+    public static final String RECUR_WEEKLY = "weekly";
+    public static final String RECUR_MONTHLY = "monthly";
+
+    static final String ACTION_TICK = "com.budgetiq.REMINDER_TICK";
+    static final String[] LEGACY_SLOTS = {"morning", "afternoon", "evening"};
+
+    private static final String KEY_REMINDERS = "reminders_v2";
+    private static final String KEY_REMINDERS_CORRUPT = KEY_REMINDERS + ".corrupt";
+    private static final int RC_TIMELINE = 310;
+    private static final long DUE_TOLERANCE_MS = 60 * 1000; // Fire items due within the next minute too
+
+    public static final int ACTION_SHOW = 0;
+    public static final int ACTION_REWORD = 1;
+    public static final int ACTION_SKIP = 2;
+
+    // Activity window for a slot: since the previous enabled slot today, at most this long
+    private static final long MAX_ACTIVITY_WINDOW_MS = 6 * 60 * 60 * 1000;
+    // Something logged this recently makes a nudge pointless regardless of count
+    private static final long RECENT_ACTIVITY_MS = 30 * 60 * 1000;
+    private static final int SKIP_MIN_ACTIVITIES = 2;
+
+    private static final Object lock = new Object();
+    private static List<Reminder> reminders; // Guarded by lock; loaded once per process
+    private static boolean corrupt; // Guarded by lock; stored list unreadable - never overwrite it
+
+    private ReminderEngine() {}
+
+    // ==================== MODEL ====================
+
+    public static class Reminder {
+        String id;
+        String title = "";
+        String body = "";
+        int hour;
+        int minute;
+        String recurrence = RECUR_DAILY;
+        int dayOfWeek = Calendar.MONDAY; // weekly
+        int dayOfMonth = 1;              // monthly; clamped to the month's last day
+        boolean enabled = true;
+        long nextAt;                     // Next fire time (epoch ms), 0 = not scheduled
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("title", title);
+            json.put("body", body);
+            json.put("hour", hour);
+            json.put("minute", minute);
+            json.put("recurrence", recurrence);
+            json.put("dayOfWeek", dayOfWeek);
+            json.put("dayOfMonth", dayOfMonth);
+            json.put("enabled", enabled);
+            json.put("nextAt", nextAt);
+            return json;
+        }
+
+        static Reminder fromJson(JSONObject json) {
+            Reminder r = new Reminder();
+            r.id = json.optString("id");
+            r.title = json.optString("title", "");
+            r.body = json.optString("body", "");
+            r.hour = json.optInt("hour", 8);
+            r.minute = json.optInt("minute", 0);
+            r.recurrence = json.optString("recurrence", RECUR_DAILY);
+            r.dayOfWeek = json.optInt("dayOfWeek", Calendar.MONDAY);
+            r.dayOfMonth = json.optInt("dayOfMonth", 1);
+            r.enabled = json.optBoolean("enabled", true);
+            r.nextAt = json.optLong("nextAt", 0);
+            return r;
+        }
+
+        public boolean isLegacySlot() {
+            for (String slot : LEGACY_SLOTS) {
+                if (slot.equals(id)) return true;
+            }
+            return false;
+        }
+    }
+
+    // ==================== PUBLIC API ====================
+
+    /**
+     * Add or replace a reminder (matched by id) and re-arm the timeline.
+     */
+    public static void upsert(Context context, Reminder reminder) {
+        synchronized (lock) {
+            List<Reminder> all = load(context);
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).id.equals(reminder.id)) {
+                    all.remove(i);
+                    break;
+                }
+            }
+            reminder.nextAt = reminder.enabled ? nextOccurrence(reminder, System.currentTimeMillis()) : 0;
+            all.add(reminder);
+            save(context);
+            armNext(context);
+        }
+    }
+
+    public static void remove(Context context, String id) {
+        synchronized (lock) {
+            List<Reminder> all = load(context);
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).id.equals(id)) {
+                    all.remove(i);
+                    save(context);
+                    break;
+                }
+            }
+            armNext(context);
+        }
+    }
+
+    public static void setEnabled(Context context, String id, boolean enabled) {
+        synchronized (lock) {
+            Reminder r = find(context, id);
+            if (r == null) return;
+            r.enabled = enabled;
+            r.nextAt = enabled ? nextOccurrence(r, System.currentTimeMillis()) : 0;
+            save(context);
+            armNext(context);
+        }
+    }
+
+    public static Reminder find(Context context, String id) {
+        synchronized (lock) {
+            for (Reminder r : load(context)) {
+                if (r.id.equals(id)) return r;
+            }
+            return null;
+        }
+    }
+
+    public static JSONArray toJson(Context context) {
+        JSONArray arr = new JSONArray();
+        synchronized (lock) {
+            for (Reminder r : load(context)) {
+                try {
+                    arr.put(r.toJson());
+                } catch (Exception e) {
+                    // Skip
+                }
+            }
+        }
+        return arr;
+    }
+
+    /**
+     * Re-arm the alarm after another timeline source (BillCalendar) changed.
+     */
+    public static void rearm(Context context) {
+        synchronized (lock) {
+            load(context);
+            armNext(context);
+        }
+    }
+
+    /**
+     * Recompute every next fire time from now and arm the alarm (app start, boot, time change).
+     */
+    public static void rescheduleAll(Context context) {
+        BillCalendar.rescheduleAll(context);
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            for (Reminder r : load(context)) {
+                // Keep an overdue time so it still fires once on the next tick
+                if (r.enabled && (r.nextAt == 0 || r.nextAt > now + DUE_TOLERANCE_MS)) {
+                    r.nextAt = nextOccurrence(r, now);
+                } else if (!r.enabled) {
+                    r.nextAt = 0;
+                }
+            }
+            save(context);
+            armNext(context);
+        }
+    }
+
+    /**
+     * Called from ReminderReceiver when the timeline alarm goes off.
+     * Returns every reminder that is due; their next occurrences are already advanced
+     * and the alarm re-armed.
+     */
+    public static List<Reminder> collectDue(Context context) {
+        List<Reminder> due = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            PriorityQueue<Reminder> queue = buildQueue(load(context));
+            while (!queue.isEmpty() && queue.peek().nextAt <= now + DUE_TOLERANCE_MS) {
+                Reminder r = queue.poll();
+                due.add(r);
+                r.nextAt = nextOccurrence(r, Math.max(now, r.nextAt));
+            }
+            save(context);
+            armNext(context);
+        }
+        return due;
+    }
+
+    // ==================== ACTIVITY SUPPRESSION ====================
+
+    /**
+     * Decide how to present a due reminder given recent activity: ACTION_SHOW, ACTION_REWORD
+     * (something was logged, but not much) or ACTION_SKIP. Custom reminders always show.
+     */
+    public static int activityAction(Context context, Reminder reminder, long now) {
+        if (!reminder.isLegacySlot()) return ACTION_SHOW;
+        TransactionStore store = TransactionStore.get(context);
+        if (now - store.lastActivityAt() < RECENT_ACTIVITY_MS) return ACTION_SKIP;
+
+        int count = store.activityCountSince(activityWindowStart(context, reminder, now));
+        if (count >= SKIP_MIN_ACTIVITIES) return ACTION_SKIP;
+        return count > 0 ? ACTION_REWORD : ACTION_SHOW;
+    }
+
+    /**
+     * Start of the "current window" for a slot: the latest other enabled slot time that
+     * has already passed today, bounded by MAX_ACTIVITY_WINDOW_MS.
+     */
+    static long activityWindowStart(Context context, Reminder reminder, long now) {
+        long start = now - MAX_ACTIVITY_WINDOW_MS;
+        synchronized (lock) {
+            Calendar cal = Calendar.getInstance();
+            for (Reminder other : load(context)) {
+                if (!other.enabled || !other.isLegacySlot() || other.id.equals(reminder.id)) continue;
+                cal.setTimeInMillis(now);
+                cal.set(Calendar.HOUR_OF_DAY, other.hour);
+                cal.set(Calendar.MINUTE, other.minute);
+                cal.set(Calendar.SECOND, 0);
+                cal.set(Calendar.MILLISECOND, 0);
+                long at = cal.getTimeInMillis();
+                if (at < now && at > start) start = at;
+            }
+        }
+        return start;
+    }
+
+    // ==================== TIMELINE ====================
+
+    private static PriorityQueue<Reminder> buildQueue(List<Reminder> all) {
+        PriorityQueue<Reminder> queue = new PriorityQueue<>(Math.max(1, all.size()),
+                (a, b) -> Long.compare(a.nextAt, b.nextAt));
+        for (Reminder r : all) {
+            if (r.enabled && r.nextAt > 0) queue.add(r);
+        }
+        return queue;
+    }
+
+    /**
+     * Arm the single alarm for the earliest pending reminder or bill (or cancel it if none).
+     */
+    private static void armNext(Context context) {
+        long next = BillCalendar.nextFireAt(context);
+        for (Reminder r : reminders) {
+            if (r.enabled && r.nextAt > 0 && r.nextAt < next) next = r.nextAt;
+        }
+
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (am == null) return;
+        PendingIntent pi = timelineIntent(context);
+        if (next == Long.MAX_VALUE) {
+            am.cancel(pi);
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !am.canScheduleExactAlarms()) {
+            // Exact alarms not granted: inexact but still Doze-safe
+            am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pi);
+        } else {
+            am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next, pi);
+        }
+    }
+
+    private static PendingIntent timelineIntent(Context context) {
+        Intent intent = new Intent(context, ReminderReceiver.class);
+        intent.setAction(ACTION_TICK);
+        return PendingIntent.getBroadcast(context, RC_TIMELINE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * First occurrence of the reminder strictly after the given time.
+     */
+    static long nextOccurrence(Reminder r, long after) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(after);
+        cal.set(Calendar.HOUR_OF_DAY, r.hour);
+        cal.set(Calendar.MINUTE, r.minute);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+
+        switch (r.recurrence) {
+            case RECUR_WEEKLY:
+                int delta = (r.dayOfWeek - cal.get(Calendar.DAY_OF_WEEK) + 7) % 7;
+                cal.add(Calendar.DAY_OF_YEAR, delta);
+                if (cal.getTimeInMillis() <= after) cal.add(Calendar.DAY_OF_YEAR, 7);
+                break;
+            case RECUR_MONTHLY:
+                setDayOfMonthClamped(cal, r.dayOfMonth);
+                if (cal.getTimeInMillis() <= after) {
+                    cal.set(Calendar.DAY_OF_MONTH, 1);
+                    cal.add(Calendar.MONTH, 1);
+                    setDayOfMonthClamped(cal, r.dayOfMonth);
+                }
+                break;
+            default:
+                if (cal.getTimeInMillis() <= after) cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    private static void setDayOfMonthClamped(Calendar cal, int dayOfMonth) {
+        cal.set(Calendar.DAY_OF_MONTH, Math.min(dayOfMonth, cal.getActualMaximum(Calendar.DAY_OF_MONTH)));
+    }
+
+    // ==================== PERSISTENCE ====================
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(ReminderReceiver.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static List<Reminder> load(Context context) {
+        if (reminders != null) return reminders;
+        reminders = new ArrayList<>();
+        SharedPreferences prefs = prefs(context);
+        String stored = prefs.getString(KEY_REMINDERS, null);
+        if (stored == null) {
+            migrateLegacySlots(context, prefs);
+            return reminders;
+        }
+        try {
+            JSONArray arr = new JSONArray(stored);
+            for (int i = 0; i < arr.length(); i++) {
+                reminders.add(Reminder.fromJson(arr.getJSONObject(i)));
+            }
+        } catch (Exception e) {
+            // Corrupt: run on an empty list, but keep the stored one and never save over it
+            reminders.clear();
+            corrupt = true;
+            if (!stored.equals(prefs.getString(KEY_REMINDERS_CORRUPT, null))) {
+                prefs.edit().putString(KEY_REMINDERS_CORRUPT, stored).apply();
+            }
+            DiagnosticLog.record(TAG, "load", e);
+        }
+        return reminders;
+    }
+
+    private static void save(Context context) {
+        if (corrupt) return;
+        prefs(context).edit().putString(KEY_REMINDERS, toJsonLocked().toString()).apply();
+    }
+
+    private static JSONArray toJsonLocked() {
+        JSONArray arr = new JSONArray();
+        for (Reminder r : reminders) {
+            try {
+                arr.put(r.toJson());
+            } catch (Exception e) {
+                // Skip
+            }
+        }
+        return arr;
+    }
+
+    /**
+     * One-time import of the old per-slot prefs, cancelling their per-slot alarms.
+     */
+    private static void migrateLegacySlots(Context context, SharedPreferences prefs) {
+        long now = System.currentTimeMillis();
+        for (String slot : LEGACY_SLOTS) {
+            Reminder r = new Reminder();
+            r.id = slot;
+            r.enabled = prefs.getBoolean(slot + "_enabled", false);
+            r.hour = prefs.getInt(slot + "_hour", ReminderScheduler.getDefaultHour(slot));
+            r.minute = prefs.getInt(slot + "_minute", 0);
+            r.title = prefs.getString(slot + "_title", "");
+            r.body = prefs.getString(slot + "_body", "");
+            r.nextAt = r.enabled ? nextOccurrence(r, now) : 0;
+            reminders.add(r);
+        }
+        ReminderScheduler.cancelLegacyAlarms(context);
+        save(context);
+    }
+}
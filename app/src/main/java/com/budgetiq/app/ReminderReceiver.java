@@ -8,16 +8,28 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Build;
+import android.os.SystemClock;
 
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
+import org.json.JSONObject;
+
+import java.util.List;
+
 /**
- * BroadcastReceiver that fires at scheduled times to show daily reminder notifications.
- * Supports 3 reminder slots: morning, afternoon, evening.
+ * BroadcastReceiver for the reminder timeline alarm (see ReminderEngine).
+ * Shows every reminder that is due; the 3 default slots (morning, afternoon, evening)
+ * get random messages from their pools unless a custom message is set.
+ *
+ * Default slots are skipped or reworded when the user already logged enough recently
+ * (ReminderEngine.activityAction). Shown / reworded / skipped counts are kept in the
+ * diagnostics prefs (see getStats).
  */
 public class ReminderReceiver extends BroadcastReceiver {
 
+    private static final String TAG = "ReminderReceiver";
+
     static final String CHANNEL_REMINDERS = "daily_reminders";
     static final String PREFS_NAME = "budgetiq_reminders";
     static final String EXTRA_SLOT = "reminder_slot";
@@ -26,6 +38,12 @@ public class ReminderReceiver extends BroadcastReceiver {
     static final int NOTIF_ID_MORNING = 200;
     static final int NOTIF_ID_AFTERNOON = 201;
     static final int NOTIF_ID_EVENING = 202;
+    static final int NOTIF_ID_CUSTOM_BASE = 2000;
+
+    private static final String DIAG_PREFS = "budgetiq_diagnostics";
+    private static final String KEY_FIRED = "rem_fired";
+    private static final String KEY_REWORDED = "rem_reworded";
+    private static final String KEY_SKIPPED = "rem_skipped";
 
     // Default messages per slot
     private static final String[][] MORNING_MESSAGES = {
@@ -52,28 +70,53 @@ public class ReminderReceiver extends BroadcastReceiver {
             {"Before You Sleep", "Quick check - did you track all expenses today?"}
     };
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        createChannel(context);
-
-        String slot = intent.getStringExtra(EXTRA_SLOT);
-        if (slot == null) slot = "morning";
+    // Used when a transaction was already logged in the slot's window
+    private static final String[][] FOLLOW_UP_MESSAGES = {
+            {"Nice Tracking!", "You've logged a transaction recently. Anything else to add?"},
+            {"Almost Done", "One expense logged so far - any others since?"},
+            {"Keep It Going", "Good start today. Log any remaining expenses."}
+    };
 
-        // Check if this slot is enabled
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        if (!prefs.getBoolean(slot + "_enabled", false)) return;
+    private static volatile boolean channelCreated = false;
 
-        // Check for custom message
-        String customTitle = prefs.getString(slot + "_title", "");
-        String customBody = prefs.getString(slot + "_body", "");
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long start = SystemClock.uptimeMillis();
+        AppExecutors.runAsync(this, context, start, () -> {
+            createChannel(context);
+
+            // One wakeup fires everything that is due (legacy per-slot alarms land here too).
+            // Bills first: collecting due reminders re-arms the alarm for both.
+            BillCalendar.fireDue(context);
+            List<ReminderEngine.Reminder> due = ReminderEngine.collectDue(context);
+            long now = System.currentTimeMillis();
+            int fired = 0, reworded = 0, skipped = 0;
+            for (ReminderEngine.Reminder reminder : due) {
+                int action = ReminderEngine.activityAction(context, reminder, now);
+                if (action == ReminderEngine.ACTION_SKIP) {
+                    skipped++;
+                    continue;
+                }
+                if (action == ReminderEngine.ACTION_REWORD) reworded++;
+                fired++;
+                showReminder(context, reminder, action == ReminderEngine.ACTION_REWORD);
+            }
+            if (!due.isEmpty()) recordStats(context, fired, reworded, skipped);
+        });
+    }
 
+    private static void showReminder(Context context, ReminderEngine.Reminder reminder, boolean followUp) {
+        String slot = reminder.id;
         String title;
         String body;
-        int notifId;
 
-        if (!customTitle.isEmpty() && !customBody.isEmpty()) {
-            title = customTitle;
-            body = customBody;
+        if (followUp) {
+            int idx = (int) (Math.random() * FOLLOW_UP_MESSAGES.length);
+            title = FOLLOW_UP_MESSAGES[idx][0];
+            body = FOLLOW_UP_MESSAGES[idx][1];
+        } else if (!reminder.title.isEmpty() && !reminder.body.isEmpty()) {
+            title = reminder.title;
+            body = reminder.body;
         } else {
             // Pick a random message from the slot's pool
             String[][] messages;
@@ -88,11 +131,15 @@ public class ReminderReceiver extends BroadcastReceiver {
                     messages = MORNING_MESSAGES;
             }
             int idx = (int) (Math.random() * messages.length);
-            title = messages[idx][0];
-            body = messages[idx][1];
+            title = reminder.title.isEmpty() ? messages[idx][0] : reminder.title;
+            body = reminder.body.isEmpty() ? messages[idx][1] : reminder.body;
         }
 
+        int notifId;
         switch (slot) {
+            case "morning":
+                notifId = NOTIF_ID_MORNING;
+                break;
             case "afternoon":
                 notifId = NOTIF_ID_AFTERNOON;
                 break;
@@ -100,7 +147,8 @@ public class ReminderReceiver extends BroadcastReceiver {
                 notifId = NOTIF_ID_EVENING;
                 break;
             default:
-                notifId = NOTIF_ID_MORNING;
+                // Stable per reminder so a repeat replaces the previous one
+                notifId = NOTIF_ID_CUSTOM_BASE + (slot.hashCode() & 0xFFF);
         }
 
         // Build and show notification
@@ -123,20 +171,47 @@ public class ReminderReceiver extends BroadcastReceiver {
             nm.notify(notifId, builder.build());
         } catch (Exception e) {
             // Permission not granted
+            DiagnosticLog.record(TAG, "notify", e);
         }
+    }
 
-        // Re-schedule for next day
-        ReminderScheduler.scheduleSlot(context, slot);
+    private static void recordStats(Context context, int fired, int reworded, int skipped) {
+        SharedPreferences prefs = context.getSharedPreferences(DIAG_PREFS, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putInt(KEY_FIRED, prefs.getInt(KEY_FIRED, 0) + fired)
+                .putInt(KEY_REWORDED, prefs.getInt(KEY_REWORDED, 0) + reworded)
+                .putInt(KEY_SKIPPED, prefs.getInt(KEY_SKIPPED, 0) + skipped)
+                .apply();
+    }
+
+    /**
+     * Lifetime reminder counts as JSON: {fired, reworded, skipped}. "fired" includes reworded.
+     */
+    static String getStats(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(DIAG_PREFS, Context.MODE_PRIVATE);
+        try {
+            JSONObject json = new JSONObject();
+            json.put("fired", prefs.getInt(KEY_FIRED, 0));
+            json.put("reworded", prefs.getInt(KEY_REWORDED, 0));
+            json.put("skipped", prefs.getInt(KEY_SKIPPED, 0));
+            return json.toString();
+        } catch (Exception e) {
+            DiagnosticLog.record(TAG, "getStats", e);
+            return "{}";
+        }
     }
 
     static void createChannel(Context context) {
+        if (channelCreated) return; // Once per process
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationManager nm = context.getSystemService(NotificationManager.class);
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_REMINDERS, "Daily Reminders",
                     NotificationManager.IMPORTANCE_DEFAULT);
             channel.setDescription("Daily budget tracking reminders");
-            nm.createNotificationChannel(channel);
+            nm.createNotificationChannel(channel); // Idempotent, so a racing second call is harmless
         }
+        // Only now: a concurrent receiver must not skip ahead and post to a missing channel
+        channelCreated = true;
     }
 }
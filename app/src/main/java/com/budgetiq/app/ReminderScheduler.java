@@ -4,34 +4,37 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.os.Build;
 import android.webkit.JavascriptInterface;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.Calendar;
-
 /**
- * JavaScript bridge for scheduling daily reminder notifications.
+ * JavaScript bridge for scheduling reminder notifications.
  * Exposed to WebView as window.BudgetIQReminder
  *
- * Supports 3 reminder slots: morning, afternoon, evening.
- * Each slot has: enabled (bool), hour (0-23), minute (0-59), custom title/body.
+ * Backed by ReminderEngine: any number of reminders, one alarm for the next due one.
+ * The original 3 slots (morning, afternoon, evening) are reminders with those ids.
  *
  * JS API:
  *   window.BudgetIQReminder.setReminder(slot, hour, minute)
  *   window.BudgetIQReminder.setCustomMessage(slot, title, body)
  *   window.BudgetIQReminder.cancelReminder(slot)
- *   window.BudgetIQReminder.getSettings() → JSON string
+ *   window.BudgetIQReminder.getSettings() → JSON string (3 slots)
  *   window.BudgetIQReminder.enableDefaults() → enables 3 default reminders
+ *   window.BudgetIQReminder.addReminder(json) → id
+ *       json: {id?, title, body, hour, minute, recurrence: "daily"|"weekly"|"monthly",
+ *              dayOfWeek (1=Sun..7=Sat), dayOfMonth (1-31)}
+ *   window.BudgetIQReminder.removeReminder(id)
+ *   window.BudgetIQReminder.listReminders() → JSON array
+ *   window.BudgetIQReminder.logActivity() → call when the user logs an expense manually,
+ *       so the next default reminder can be skipped or reworded
  */
 public class ReminderScheduler {
 
-    private static final String PREFS = ReminderReceiver.PREFS_NAME;
     private final Context context;
 
-    // Request codes for PendingIntents (unique per slot)
+    // Request codes of the old per-slot PendingIntents (cancelled on migration)
     private static final int RC_MORNING = 300;
     private static final int RC_AFTERNOON = 301;
     private static final int RC_EVENING = 302;
@@ -41,20 +44,18 @@ public class ReminderScheduler {
     }
 
     /**
-     * Enable a reminder at the specified time.
+     * Enable a daily reminder at the specified time.
      * @param slot "morning", "afternoon", or "evening"
      * @param hour 0-23
      * @param minute 0-59
      */
     @JavascriptInterface
     public void setReminder(String slot, int hour, int minute) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        prefs.edit()
-                .putBoolean(slot + "_enabled", true)
-                .putInt(slot + "_hour", hour)
-                .putInt(slot + "_minute", minute)
-                .apply();
-        scheduleSlot(context, slot);
+        ReminderEngine.Reminder r = copyOf(slot);
+        r.enabled = true;
+        r.hour = hour;
+        r.minute = minute;
+        ReminderEngine.upsert(context, r);
     }
 
     /**
@@ -63,11 +64,10 @@ public class ReminderScheduler {
      */
     @JavascriptInterface
     public void setCustomMessage(String slot, String title, String body) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        prefs.edit()
-                .putString(slot + "_title", title)
-                .putString(slot + "_body", body)
-                .apply();
+        ReminderEngine.Reminder r = copyOf(slot);
+        r.title = title != null ? title : "";
+        r.body = body != null ? body : "";
+        ReminderEngine.upsert(context, r);
     }
 
     /**
@@ -75,31 +75,24 @@ public class ReminderScheduler {
      */
     @JavascriptInterface
     public void cancelReminder(String slot) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        prefs.edit().putBoolean(slot + "_enabled", false).apply();
-
-        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pi = getPendingIntent(context, slot);
-        if (am != null && pi != null) {
-            am.cancel(pi);
-        }
+        ReminderEngine.setEnabled(context, slot, false);
     }
 
     /**
-     * Get current reminder settings as JSON.
+     * Get current reminder settings (3 slots) as JSON.
      */
     @JavascriptInterface
     public String getSettings() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
         try {
             JSONObject json = new JSONObject();
-            for (String slot : new String[]{"morning", "afternoon", "evening"}) {
+            for (String slot : ReminderEngine.LEGACY_SLOTS) {
+                ReminderEngine.Reminder r = copyOf(slot);
                 JSONObject s = new JSONObject();
-                s.put("enabled", prefs.getBoolean(slot + "_enabled", false));
-                s.put("hour", prefs.getInt(slot + "_hour", getDefaultHour(slot)));
-                s.put("minute", prefs.getInt(slot + "_minute", 0));
-                s.put("title", prefs.getString(slot + "_title", ""));
-                s.put("body", prefs.getString(slot + "_body", ""));
+                s.put("enabled", r.enabled);
+                s.put("hour", r.hour);
+                s.put("minute", r.minute);
+                s.put("title", r.title);
+                s.put("body", r.body);
                 json.put(slot, s);
             }
             return json.toString();
@@ -124,52 +117,88 @@ public class ReminderScheduler {
      */
     @JavascriptInterface
     public boolean hasActiveReminders() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        return prefs.getBoolean("morning_enabled", false)
-                || prefs.getBoolean("afternoon_enabled", false)
-                || prefs.getBoolean("evening_enabled", false);
+        try {
+            JSONArray all = ReminderEngine.toJson(context);
+            for (int i = 0; i < all.length(); i++) {
+                if (all.getJSONObject(i).optBoolean("enabled", false)) return true;
+            }
+        } catch (Exception e) {
+            // Ignore
+        }
+        return false;
     }
 
-    // ---- Static scheduling logic (also used by BootReceiver & ReminderReceiver) ----
-
-    static void scheduleSlot(Context context, String slot) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
-        if (!prefs.getBoolean(slot + "_enabled", false)) return;
+    /**
+     * Add (or replace, if the id exists) a recurring reminder. Returns its id.
+     */
+    @JavascriptInterface
+    public String addReminder(String json) {
+        try {
+            JSONObject obj = new JSONObject(json);
+            if (!obj.has("id") || obj.optString("id").isEmpty()) {
+                obj.put("id", "r" + System.currentTimeMillis());
+            }
+            obj.put("nextAt", 0);
+            ReminderEngine.Reminder r = ReminderEngine.Reminder.fromJson(obj);
+            ReminderEngine.upsert(context, r);
+            return r.id;
+        } catch (Exception e) {
+            return "";
+        }
+    }
 
-        int hour = prefs.getInt(slot + "_hour", getDefaultHour(slot));
-        int minute = prefs.getInt(slot + "_minute", 0);
+    @JavascriptInterface
+    public void removeReminder(String id) {
+        ReminderEngine.remove(context, id);
+    }
 
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.HOUR_OF_DAY, hour);
-        cal.set(Calendar.MINUTE, minute);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
+    @JavascriptInterface
+    public String listReminders() {
+        return ReminderEngine.toJson(context).toString();
+    }
 
-        // If time already passed today, schedule for tomorrow
-        if (cal.getTimeInMillis() <= System.currentTimeMillis()) {
-            cal.add(Calendar.DAY_OF_YEAR, 1);
-        }
+    /**
+     * Record a manual expense log (auto-captured transactions are recorded by TransactionStore).
+     */
+    @JavascriptInterface
+    public void logActivity() {
+        TransactionStore.get(context).recordActivity(System.currentTimeMillis());
+    }
 
-        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pi = getPendingIntent(context, slot);
-
-        if (am != null && pi != null) {
-            // Use setAndAllowWhileIdle for reliable delivery in Doze mode
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, cal.getTimeInMillis(), pi);
-            } else {
-                am.set(AlarmManager.RTC_WAKEUP, cal.getTimeInMillis(), pi);
+    private ReminderEngine.Reminder copyOf(String slot) {
+        ReminderEngine.Reminder existing = ReminderEngine.find(context, slot);
+        try {
+            if (existing != null) {
+                return ReminderEngine.Reminder.fromJson(existing.toJson());
             }
+        } catch (Exception e) {
+            // Fall through to defaults
         }
+        ReminderEngine.Reminder r = new ReminderEngine.Reminder();
+        r.id = slot;
+        r.enabled = false;
+        r.hour = getDefaultHour(slot);
+        return r;
     }
 
+    // ---- Static scheduling logic (also used by BootReceiver & MainActivity) ----
+
     static void scheduleAll(Context context) {
-        for (String slot : new String[]{"morning", "afternoon", "evening"}) {
-            scheduleSlot(context, slot);
+        ReminderEngine.rescheduleAll(context);
+    }
+
+    /**
+     * Cancel the per-slot alarms armed by older versions.
+     */
+    static void cancelLegacyAlarms(Context context) {
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (am == null) return;
+        for (String slot : ReminderEngine.LEGACY_SLOTS) {
+            am.cancel(getLegacyPendingIntent(context, slot));
         }
     }
 
-    private static PendingIntent getPendingIntent(Context context, String slot) {
+    private static PendingIntent getLegacyPendingIntent(Context context, String slot) {
         Intent intent = new Intent(context, ReminderReceiver.class);
         intent.setAction("com.budgetiq.REMINDER_" + slot.toUpperCase());
         intent.putExtra(ReminderReceiver.EXTRA_SLOT, slot);
@@ -188,7 +217,7 @@ public class ReminderScheduler {
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
     }
 
-    private static int getDefaultHour(String slot) {
+    static int getDefaultHour(String slot) {
         switch (slot) {
             case "afternoon":
                 return 13;
@@ -2,21 +2,29 @@ package com.budgetiq.app;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class SplashActivity extends AppCompatActivity {
 
+    private boolean launched = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTracer.begin(StartupTracer.SPLASH);
         setContentView(R.layout.activity_splash);
 
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            startActivity(new Intent(SplashActivity.this, MainActivity.class));
-            finish();
-            overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
-        }, 1500);
+        // Load the WebView provider while the splash is on screen,
+        // then hand over to MainActivity (which keeps the splash up until first paint)
+        StartupCoordinator.prewarm(this, this::launchMain);
+    }
+
+    private void launchMain() {
+        if (launched || isFinishing()) return;
+        launched = true;
+        StartupTracer.end(StartupTracer.SPLASH);
+        startActivity(new Intent(SplashActivity.this, MainActivity.class));
+        finish();
+        overridePendingTransition(0, 0);
     }
 }
@@ -0,0 +1,56 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebSettings;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cold-start orchestration. Kicked off from SplashActivity so the expensive
+ * one-time work overlaps with the splash instead of running after it:
+ *
+ * - WebView provider loading (Chromium libraries, CookieManager) on the main thread's idle time
+ *
+ * The splash hands over to MainActivity as soon as the provider is loaded; MainActivity
+ * then keeps the same splash visuals as an overlay until the page's first paint.
+ *
+ * Safe to call more than once; each step runs at most once per process.
+ */
+public final class StartupCoordinator {
+
+    private static final String TAG = "StartupCoordinator";
+
+    private static final AtomicBoolean webViewWarmed = new AtomicBoolean(false);
+
+    private StartupCoordinator() {}
+
+    /**
+     * @param onWarm runs on the main thread once the WebView provider is loaded
+     */
+    public static void prewarm(Context context, Runnable onWarm) {
+        Context app = context.getApplicationContext();
+        // Loading the provider must happen on the main thread; do it once the splash has drawn
+        Looper.myQueue().addIdleHandler(() -> {
+            warmUpWebView(app);
+            onWarm.run();
+            return false;
+        });
+    }
+
+    /**
+     * Forces the WebView provider to load so MainActivity's WebView inflates quickly.
+     */
+    static void warmUpWebView(Context context) {
+        if (!webViewWarmed.compareAndSet(false, true)) return;
+        try {
+            WebSettings.getDefaultUserAgent(context);
+            CookieManager.getInstance();
+        } catch (Exception e) {
+            // WebView provider missing or being updated - MainActivity will surface it
+            Log.e(TAG, "WebView warm-up failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cold-start phase tracing.
+ *
+ * Each phase gets a named trace section (visible in Perfetto/systrace) and monotonic
+ * timestamps in ms relative to process start. When the first paint is reached the
+ * launch is sealed: the report is kept in memory for the debug bridge
+ * (window.BudgetIQDebug.getStartupReport()) and no further launch phases are accepted.
+ *
+ * Work deliberately deferred until after first paint (ad SDK init) is traced as a
+ * post-launch phase, which may begin after the seal. The report is appended to a rotating
+ * local file POST_LAUNCH_WAIT_MS after the seal, so those phases are in it.
+ *
+ * Report: {"v":1,"app":"2.3.0","sdk":34,"at":<wall ms>,
+ *          "phases":{"app_oncreate":[start,dur],...},"marks":{"first_paint":ms},
+ *          "post_launch":{"mobile_ads_init":[start,dur]}}   (dur -1 = still running)
+ */
+public final class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+    private static final String REPORT_FILE = "startup_reports.jsonl";
+    private static final long MAX_FILE_BYTES = 64 * 1024;
+    private static final long POST_LAUNCH_WAIT_MS = 10_000;
+
+    // Phase names
+    public static final String APP_ONCREATE = "app_oncreate";
+    public static final String SPLASH = "splash";
+    public static final String MAIN_ONCREATE = "main_oncreate";
+    public static final String SETUP_WEBVIEW = "setup_webview";
+    public static final String MOBILE_ADS_INIT = "mobile_ads_init";
+    public static final String BILLING_CONNECT = "billing_connect";
+    public static final String REMINDER_SCHEDULE = "reminder_schedule";
+    public static final String FIRST_PAINT = "first_paint";
+
+    // Phases that start after first paint on purpose; not closed by finishLaunch
+    private static final Set<String> POST_LAUNCH = new HashSet<>(Arrays.asList(MOBILE_ADS_INIT));
+
+    private static final long processStart = Process.getStartElapsedRealtime();
+    private static final Map<String, long[]> phases = new LinkedHashMap<>();
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    private static final Map<String, long[]> postLaunch = new LinkedHashMap<>();
+    private static boolean reported = false;
+    private static Context appContext; // Set when the launch is sealed
+    private static volatile String lastReport = "{}";
+
+    private StartupTracer() {}
+
+    private static long now() {
+        return SystemClock.elapsedRealtime() - processStart;
+    }
+
+    /**
+     * Start a phase. Phases may end on a different thread (e.g. billing callbacks).
+     */
+    public static void begin(String phase) {
+        synchronized (phases) {
+            if (phases.containsKey(phase) || postLaunch.containsKey(phase)) return;
+            if (!reported) {
+                phases.put(phase, new long[]{now(), -1});
+            } else if (POST_LAUNCH.contains(phase)) {
+                postLaunch.put(phase, new long[]{now(), -1});
+            } else {
+                return;
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection("BudgetIQ:" + phase, 0);
+        }
+    }
+
+    public static void end(String phase) {
+        synchronized (phases) {
+            long[] p = phases.get(phase);
+            if (p == null) p = postLaunch.get(phase);
+            if (p == null || p[1] >= 0) return;
+            p[1] = now() - p[0];
+            if (reported) lastReport = buildReport(appContext);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection("BudgetIQ:" + phase, 0);
+        }
+    }
+
+    /**
+     * Record a point-in-time event (first occurrence only).
+     */
+    public static void mark(String name) {
+        synchronized (phases) {
+            if (reported || marks.containsKey(name)) return;
+            marks.put(name, now());
+        }
+    }
+
+    /**
+     * Close out the launch: seals the launch phases and builds the report, then appends it
+     * to the rotating file once post-launch phases have had POST_LAUNCH_WAIT_MS to finish.
+     * Only the first call per process produces a report.
+     */
+    public static void finishLaunch(Context context) {
+        Context app = context.getApplicationContext();
+        synchronized (phases) {
+            if (reported) return;
+            reported = true;
+            appContext = app;
+            lastReport = buildReport(app);
+        }
+        AppExecutors.schedule(() -> {
+            String report;
+            synchronized (phases) {
+                report = buildReport(app);
+                lastReport = report;
+            }
+            append(app, report);
+        }, POST_LAUNCH_WAIT_MS);
+    }
+
+    public static String getLastReport() {
+        return lastReport;
+    }
+
+    private static String buildReport(Context context) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("v", 1);
+            json.put("app", versionName(context));
+            json.put("sdk", Build.VERSION.SDK_INT);
+            json.put("at", System.currentTimeMillis());
+
+            JSONObject ph = new JSONObject();
+            for (Map.Entry<String, long[]> e : phases.entrySet()) {
+                JSONArray pair = new JSONArray();
+                pair.put(e.getValue()[0]);
+                pair.put(e.getValue()[1]);
+                ph.put(e.getKey(), pair);
+            }
+            json.put("phases", ph);
+
+            JSONObject mk = new JSONObject();
+            for (Map.Entry<String, Long> e : marks.entrySet()) {
+                mk.put(e.getKey(), e.getValue());
+            }
+            json.put("marks", mk);
+
+            if (!postLaunch.isEmpty()) {
+                JSONObject post = new JSONObject();
+                for (Map.Entry<String, long[]> e : postLaunch.entrySet()) {
+                    JSONArray pair = new JSONArray();
+                    pair.put(e.getValue()[0]);
+                    pair.put(e.getValue()[1]);
+                    post.put(e.getKey(), pair);
+                }
+                json.put("post_launch", post);
+            }
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    private static String versionName(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return info.versionName;
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static void append(Context context, String report) {
+        try {
+            File file = new File(context.getFilesDir(), REPORT_FILE);
+            if (file.length() > MAX_FILE_BYTES) {
+                File old = new File(context.getFilesDir(), REPORT_FILE + ".1");
+                old.delete();
+                file.renameTo(old);
+            }
+            try (OutputStream out = new FileOutputStream(file, true)) {
+                out.write((report + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write startup report: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.budgetiq.app;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.RemoteInput;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.budgetiq.core.Transaction;
+
+import org.json.JSONArray;
+
+import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Actionable "transaction detected" notifications and the receiver for their actions.
+ *
+ * Captured debits get a notification with three actions: Categorize (quick-pick chips
+ * via RemoteInput, free text allowed), Personal and Ignore. The receiver writes the
+ * choice straight to TransactionStore and corrects BudgetEngine totals, without starting
+ * MainActivity or the WebView. The web app picks the changes up later through
+ * BudgetIQSms.getPendingActions().
+ *
+ * Bursts (more than BURST_THRESHOLD debits within BURST_WINDOW_MS, e.g. a batch of
+ * delayed SMS) don't get one notification each: every debit in the burst goes to the
+ * transaction channel's aggregated, rate-limited summary (BudgetNotificationHelper), and
+ * only the newest keeps an actionable notification, updated in place in one slot.
+ *
+ * All of these are posted under NOTIF_TAG, so their ids never collide with bill or
+ * reminder notifications.
+ */
+public class TransactionActionReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "TransactionActionReceiver";
+
+    static final String ACTION_CATEGORIZE = "com.budgetiq.TXN_CATEGORIZE";
+    static final String ACTION_PERSONAL = "com.budgetiq.TXN_PERSONAL";
+    static final String ACTION_IGNORE = "com.budgetiq.TXN_IGNORE";
+
+    private static final String EXTRA_TIMESTAMP = "txn_timestamp";
+    private static final String EXTRA_NOTIF_ID = "notif_id";
+    private static final String KEY_CATEGORY = "category";
+
+    private static final String KEY_RECENT_CATEGORIES = "recent_categories";
+    private static final String[] DEFAULT_CATEGORIES = {"Food", "Shopping", "Transport", "Bills", "Groceries"};
+    private static final int MAX_QUICK_PICKS = 5;
+    private static final String NOTIF_TAG = "transaction";
+    private static final int NOTIF_ID_BASE = 5000;
+    private static final int NOTIF_ID_BURST = NOTIF_ID_BASE - 1; // Newest debit of a burst
+    private static final int BURST_THRESHOLD = 2;
+    private static final long BURST_WINDOW_MS = 2 * 60 * 1000;
+
+    // elapsedRealtime of recent actionable posts, guarded by itself
+    private static final ArrayDeque<Long> recentPosts = new ArrayDeque<>();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long start = SystemClock.uptimeMillis();
+        String action = intent.getAction();
+        long timestamp = intent.getLongExtra(EXTRA_TIMESTAMP, 0);
+        int notifId = intent.getIntExtra(EXTRA_NOTIF_ID, 0);
+        String category = null;
+        if (ACTION_CATEGORIZE.equals(action)) {
+            Bundle input = RemoteInput.getResultsFromIntent(intent);
+            CharSequence chosen = input != null ? input.getCharSequence(KEY_CATEGORY) : null;
+            if (chosen == null || chosen.toString().trim().isEmpty()) return;
+            category = chosen.toString().trim();
+        } else if (!ACTION_PERSONAL.equals(action) && !ACTION_IGNORE.equals(action)) {
+            return;
+        }
+
+        String chosenCategory = category;
+        AppExecutors.runAsync(this, context, start, () -> {
+            handleAction(context, action, timestamp, chosenCategory);
+            NotificationManagerCompat.from(context).cancel(NOTIF_TAG, notifId);
+        });
+    }
+
+    private static void handleAction(Context context, String action, long timestamp, String category) {
+        String userAction = ACTION_CATEGORIZE.equals(action) ? "category"
+                : ACTION_PERSONAL.equals(action) ? "personal" : "ignore";
+        Transaction before = TransactionStore.get(context).applyAction(timestamp, userAction, category);
+        if (before == null || !before.isDebit()) return;
+
+        // Undo or move what BudgetEngine counted when the transaction was captured
+        String previous = before.getUserAction();
+        String counted = null; // null: already taken out by an earlier ignore / personal
+        if (previous.isEmpty() || "category".equals(previous)) {
+            counted = before.getCategory();
+            if (counted.isEmpty()) counted = BudgetEngine.categorize(context, before.getMerchant());
+        }
+        double amount = before.getAmount();
+        if (counted == null) {
+            if (category != null) BudgetEngine.addSpend(context, category, amount, timestamp);
+        } else {
+            BudgetEngine.moveSpend(context, counted, category, amount, timestamp);
+        }
+        if (category != null) rememberCategory(context, category);
+    }
+
+    // ==================== NOTIFICATION ====================
+
+    static boolean isAppInForeground() {
+        try {
+            return ProcessLifecycleOwner.get().getLifecycle().getCurrentState()
+                    .isAtLeast(Lifecycle.State.STARTED);
+        } catch (Exception e) {
+            DiagnosticLog.record(TAG, "isAppInForeground", e);
+            return false;
+        }
+    }
+
+    /**
+     * Post the actionable notification for a newly captured debit (or, during a burst,
+     * add it to the summary and move the single actionable slot to it).
+     */
+    static void showActionable(Context context, Transaction txn) {
+        if (!txn.isDebit()) return;
+        long timestamp = txn.getTimestamp();
+
+        String merchant = txn.getMerchant();
+        String title = formatAmount(txn.getAmount()) + " spent"
+                + (merchant.isEmpty() ? "" : " at " + merchant);
+
+        boolean burst = isBurst();
+        int notifId;
+        if (burst) {
+            BudgetNotificationHelper.post(context, BudgetNotificationHelper.CHANNEL_TRANSACTION,
+                    title, "Open BudgetIQ to categorize");
+            notifId = NOTIF_ID_BURST;
+        } else {
+            notifId = NOTIF_ID_BASE + ((int) (timestamp ^ (timestamp >>> 32)) & 0xFFF);
+        }
+
+        String account = txn.getAccount();
+        String body = "Tap a category to file it" + (account.isEmpty() ? "" : " (" + account + ")");
+
+        RemoteInput remoteInput = new RemoteInput.Builder(KEY_CATEGORY)
+                .setLabel("Category")
+                .setChoices(quickPicks(context))
+                .setAllowFreeFormInput(true)
+                .build();
+        NotificationCompat.Action categorize = new NotificationCompat.Action.Builder(
+                R.mipmap.ic_launcher, "Categorize",
+                actionIntent(context, ACTION_CATEGORIZE, timestamp, notifId, 0, true))
+                .addRemoteInput(remoteInput)
+                .setAllowGeneratedReplies(false)
+                .build();
+
+        Intent openApp = new Intent(context, MainActivity.class);
+        openApp.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, notifId, openApp,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        BudgetNotificationHelper.createNotificationChannels(context);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context,
+                BudgetNotificationHelper.CHANNEL_TRANSACTION)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(body)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true)
+                .setOnlyAlertOnce(burst) // The burst slot is updated in place; don't re-alert
+                .addAction(categorize)
+                .addAction(R.mipmap.ic_launcher, "Personal",
+                        actionIntent(context, ACTION_PERSONAL, timestamp, notifId, 1, false))
+                .addAction(R.mipmap.ic_launcher, "Ignore",
+                        actionIntent(context, ACTION_IGNORE, timestamp, notifId, 2, false));
+
+        try {
+            NotificationManagerCompat.from(context).notify(NOTIF_TAG, notifId, builder.build());
+        } catch (Exception e) {
+            // Permission not granted
+            DiagnosticLog.record(TAG, "showActionable", e);
+        }
+    }
+
+    /**
+     * Count this post; true once more than BURST_THRESHOLD fall within BURST_WINDOW_MS.
+     */
+    private static boolean isBurst() {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (recentPosts) {
+            while (!recentPosts.isEmpty() && now - recentPosts.peekFirst() > BURST_WINDOW_MS) {
+                recentPosts.removeFirst();
+            }
+            recentPosts.addLast(now);
+            if (recentPosts.size() > BURST_THRESHOLD + 1) recentPosts.removeFirst();
+            return recentPosts.size() > BURST_THRESHOLD;
+        }
+    }
+
+    private static PendingIntent actionIntent(Context context, String action, long timestamp,
+                                              int notifId, int index, boolean mutable) {
+        Intent intent = new Intent(context, TransactionActionReceiver.class);
+        intent.setAction(action);
+        intent.putExtra(EXTRA_TIMESTAMP, timestamp);
+        intent.putExtra(EXTRA_NOTIF_ID, notifId);
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        // RemoteInput results are filled into the intent, so it must be mutable
+        if (mutable && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            flags |= PendingIntent.FLAG_MUTABLE;
+        } else if (!mutable) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.getBroadcast(context, notifId * 4 + index, intent, flags);
+    }
+
+    // ==================== QUICK PICKS ====================
+
+    /**
+     * Most recently used categories first, topped up with defaults.
+     */
+    private static CharSequence[] quickPicks(Context context) {
+        List<String> picks = new ArrayList<>();
+        try {
+            JSONArray recent = new JSONArray(prefs(context).getString(KEY_RECENT_CATEGORIES, "[]"));
+            for (int i = 0; i < recent.length() && picks.size() < MAX_QUICK_PICKS; i++) {
+                picks.add(recent.getString(i));
+            }
+        } catch (Exception e) {
+            // Fall back to defaults
+            DiagnosticLog.record(TAG, "quickPicks", e);
+        }
+        for (String def : DEFAULT_CATEGORIES) {
+            if (picks.size() >= MAX_QUICK_PICKS) break;
+            if (!picks.contains(def)) picks.add(def);
+        }
+        return picks.toArray(new CharSequence[0]);
+    }
+
+    private static void rememberCategory(Context context, String category) {
+        SharedPreferences prefs = prefs(context);
+        JSONArray updated = new JSONArray();
+        updated.put(category);
+        try {
+            JSONArray recent = new JSONArray(prefs.getString(KEY_RECENT_CATEGORIES, "[]"));
+            for (int i = 0; i < recent.length() && updated.length() < MAX_QUICK_PICKS; i++) {
+                if (!category.equals(recent.getString(i))) updated.put(recent.getString(i));
+            }
+        } catch (Exception e) {
+            // Start over
+            DiagnosticLog.record(TAG, "rememberCategory", e);
+        }
+        prefs.edit().putString(KEY_RECENT_CATEGORIES, updated.toString()).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(TransactionStore.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static String formatAmount(double amount) {
+        NumberFormat nf = NumberFormat.getNumberInstance(new Locale("en", "IN"));
+        nf.setMaximumFractionDigits(2);
+        return "₹" + nf.format(amount);
+    }
+}
@@ -0,0 +1,176 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.budgetiq.core.JsonTransactionRepository;
+import com.budgetiq.core.KeyValueStore;
+import com.budgetiq.core.Transaction;
+import com.budgetiq.core.TransactionRepository;
+
+import java.util.List;
+
+/**
+ * Local store for detected transactions, shared by TransactionNotificationListener
+ * (writer) and NotificationBridge (reader).
+ *
+ * Android adapter over the core JsonTransactionRepository: the same SharedPreferences
+ * JSON array as before, parsed once and cached in memory (with a dedup index) so bridge
+ * queries don't re-parse it each time. The cache can be dropped under memory pressure
+ * (see MemoryGovernor) and is rebuilt on next access.
+ *
+ * A small "last activity" index (the last ACTIVITY_SLOTS activity times, auto-captured
+ * or logged in the web app) answers "was anything recorded recently?" in O(1),
+ * without touching the transaction array. Used by reminder suppression.
+ */
+public class TransactionStore implements TransactionRepository {
+
+    static final String PREFS_NAME = "budgetiq_transactions";
+    static final String KEY_TRANSACTIONS = "pending_transactions";
+    private static final int MAX_TRANSACTIONS = 100;
+    private static final String KEY_ACTIVITY = "recent_activity";
+    private static final int ACTIVITY_SLOTS = 8;
+
+    private static volatile TransactionStore instance;
+
+    private final SharedPreferences prefs;
+    private final JsonTransactionRepository repository;
+    private long[] activity;  // Ring of recent activity times, guarded by this
+    private int activityHead;
+
+    public static TransactionStore get(Context context) {
+        if (instance == null) {
+            synchronized (TransactionStore.class) {
+                if (instance == null) {
+                    instance = new TransactionStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private TransactionStore(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.repository = new JsonTransactionRepository(new KeyValueStore() {
+            @Override
+            public String get(String key) {
+                return prefs.getString(key, null);
+            }
+
+            @Override
+            public void put(String key, String value) {
+                prefs.edit().putString(key, value).apply();
+            }
+        }, KEY_TRANSACTIONS, MAX_TRANSACTIONS);
+    }
+
+    @Override
+    public boolean add(Transaction txn) {
+        if (!repository.add(txn)) return false;
+        recordActivity(txn.getTimestamp());
+        return true;
+    }
+
+    @Override
+    public List<Transaction> getSince(long sinceTimestamp, boolean unprocessedOnly) {
+        return repository.getSince(sinceTimestamp, unprocessedOnly);
+    }
+
+    @Override
+    public void markProcessed(long[] timestamps) {
+        repository.markProcessed(timestamps);
+    }
+
+    /**
+     * Apply a user action from a transaction notification (see TransactionActionReceiver).
+     * The transaction is flagged syncPending until the web app acknowledges it.
+     * Returns a copy of the transaction as it was before, or null if not found.
+     */
+    @Override
+    public Transaction applyAction(long timestamp, String action, String category) {
+        Transaction before = repository.applyAction(timestamp, action, category);
+        if (before != null) recordActivity(System.currentTimeMillis());
+        return before;
+    }
+
+    @Override
+    public List<Transaction> getPendingSync() {
+        return repository.getPendingSync();
+    }
+
+    @Override
+    public void ackSynced(long[] timestamps) {
+        repository.ackSynced(timestamps);
+    }
+
+    @Override
+    public int size() {
+        return repository.size();
+    }
+
+    // ==================== ACTIVITY INDEX ====================
+
+    /**
+     * Note that the user recorded something (captured transaction or manual log in the web app).
+     */
+    public synchronized void recordActivity(long at) {
+        loadActivity();
+        activity[activityHead] = at;
+        activityHead = (activityHead + 1) % ACTIVITY_SLOTS;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ACTIVITY_SLOTS; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(activity[(activityHead + i) % ACTIVITY_SLOTS]);
+        }
+        prefs.edit().putString(KEY_ACTIVITY, sb.toString()).apply();
+    }
+
+    /**
+     * Newest activity time. Not the last one recorded: a delayed or reposted notification
+     * carries an older post time than an action taken since.
+     */
+    public synchronized long lastActivityAt() {
+        loadActivity();
+        long latest = 0;
+        for (long at : activity) {
+            if (at > latest) latest = at;
+        }
+        return latest;
+    }
+
+    /**
+     * Number of activities at or after 'since' (saturates at ACTIVITY_SLOTS).
+     */
+    public synchronized int activityCountSince(long since) {
+        loadActivity();
+        int count = 0;
+        for (long at : activity) {
+            if (at >= since && at > 0) count++;
+        }
+        return count;
+    }
+
+    private void loadActivity() {
+        if (activity != null) return;
+        activity = new long[ACTIVITY_SLOTS];
+        activityHead = 0;
+        String stored = prefs.getString(KEY_ACTIVITY, "");
+        if (stored.isEmpty()) return;
+        // Stored oldest first, so replaying leaves the head after the newest
+        for (String part : stored.split(",")) {
+            try {
+                activity[activityHead] = Long.parseLong(part);
+                activityHead = (activityHead + 1) % ACTIVITY_SLOTS;
+            } catch (NumberFormatException e) {
+                // Skip
+            }
+        }
+    }
+
+    /**
+     * Drop the parsed in-memory copy; it's reloaded from prefs on next access.
+     */
+    public void trimMemory() {
+        repository.trimMemory();
+    }
+}
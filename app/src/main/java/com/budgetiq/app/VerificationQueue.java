@@ -0,0 +1,476 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Durable queue of purchases waiting for backend verification.
+ *
+ * Purchases are persisted in the billing prefs (written on the background executor right
+ * after they are enqueued), so a verification survives network failures and process death.
+ * The queue is drained on the shared background executor:
+ *
+ * - A purchase is removed only when the response body confirms it. One purchase per
+ *   request uses the original "verify_purchase" body and is confirmed by
+ *   {"success": true}; a 2xx without it is retried like a server error.
+ * - Batching ("verify_purchases" with up to MAX_BATCH purchases) is off until the backend
+ *   advertises it with "batch_supported": true in a verify_purchase response. A batch
+ *   response must list per-purchase results:
+ *     {"results": [{"purchase_token": "...", "success": true}, ...]}
+ *   Purchases not confirmed there are retried. A batch answered with a 4xx or without
+ *   "results" turns batching off again and the purchases go one per request right away.
+ * - 5xx, 408, 429, unconfirmed 2xx and network errors retry with exponential backoff and
+ *   full jitter; other 4xx are permanent and dropped. Entries older than MAX_AGE_MS are
+ *   dropped.
+ * - Response bodies are always read to the end and the connection is not disconnected,
+ *   so HttpURLConnection's keep-alive pool reuses the socket across requests.
+ * - Nothing is sent while offline; draining resumes on the next connectivity change.
+ * - An unreadable stored queue is copied to verify_queue.corrupt and never persisted
+ *   over; new purchases are still verified, but only held in memory.
+ *
+ * The endpoint, prefs, executor, wake scheduler and online check are constructor
+ * parameters so the queue can be pointed at a local HTTP stub (see VerificationQueueTest).
+ */
+public class VerificationQueue implements ConnectivityMonitor.Listener {
+
+    private static final String TAG = "VerificationQueue";
+    static final String DEFAULT_ENDPOINT = "https://optioninsights.in/api/v1/endpoints/billing.php";
+
+    private static final String KEY_QUEUE = "verify_queue";
+    private static final String KEY_QUEUE_CORRUPT = KEY_QUEUE + ".corrupt";
+    private static final String KEY_BATCH_SUPPORTED = "verify_batch_supported";
+    private static final int MAX_BATCH = 10;
+    private static final long BASE_BACKOFF_MS = 5 * 1000;
+    private static final long MAX_BACKOFF_MS = 30 * 60 * 1000;
+    private static final long MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 15 * 1000;
+    private static final int READ_TIMEOUT_MS = 20 * 1000;
+
+    private static volatile VerificationQueue instance;
+
+    private final SharedPreferences prefs;
+    private final String endpoint;
+    private final String packageName;
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final BooleanSupplier online;
+    private final Random random = new Random();
+    private final Object persistLock = new Object(); // Orders prefs writes; taken before this
+
+    // Guarded by this
+    private final List<Item> items = new ArrayList<>();
+    private boolean draining = false;
+    private long wakeAt = 0;
+    private boolean batchSupported = false;
+    private String lastError = "";
+    private boolean corrupt = false; // Stored queue unreadable - never persist over it
+
+    /** Runs work on the executor after a delay; AppExecutors.schedule in the app. */
+    interface Scheduler {
+        void schedule(Runnable work, long delayMs);
+    }
+
+    static class Item {
+        String token;
+        String productId;
+        String orderId;
+        int attempts;
+        long enqueuedAt;
+        long nextAttemptAt;
+
+        JSONObject toJson() throws Exception {
+            JSONObject json = new JSONObject();
+            json.put("token", token);
+            json.put("productId", productId);
+            json.put("orderId", orderId);
+            json.put("attempts", attempts);
+            json.put("enqueuedAt", enqueuedAt);
+            json.put("nextAttemptAt", nextAttemptAt);
+            return json;
+        }
+
+        static Item fromJson(JSONObject json) {
+            Item item = new Item();
+            item.token = json.optString("token");
+            item.productId = json.optString("productId");
+            item.orderId = json.optString("orderId");
+            item.attempts = json.optInt("attempts", 0);
+            item.enqueuedAt = json.optLong("enqueuedAt", System.currentTimeMillis());
+            item.nextAttemptAt = json.optLong("nextAttemptAt", 0);
+            return item;
+        }
+    }
+
+    public static VerificationQueue get(Context context) {
+        if (instance == null) {
+            synchronized (VerificationQueue.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    ConnectivityMonitor monitor = ConnectivityMonitor.get(app);
+                    VerificationQueue queue = new VerificationQueue(
+                            app.getSharedPreferences(BillingManager.PREFS_NAME, Context.MODE_PRIVATE),
+                            DEFAULT_ENDPOINT, app.getPackageName(),
+                            AppExecutors.background(), AppExecutors::schedule, monitor::isConnected);
+                    monitor.addListener(queue);
+                    queue.kick(); // Anything left over from a previous process
+                    instance = queue;
+                }
+            }
+        }
+        return instance;
+    }
+
+    VerificationQueue(SharedPreferences prefs, String endpoint, String packageName,
+                      Executor executor, Scheduler scheduler, BooleanSupplier online) {
+        this.prefs = prefs;
+        this.endpoint = endpoint;
+        this.packageName = packageName;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.online = online;
+        load();
+    }
+
+    // ==================== PUBLIC API ====================
+
+    /**
+     * Persist a purchase for verification and start draining. Duplicate tokens are ignored.
+     */
+    public void enqueue(String purchaseToken, String productId, String orderId) {
+        synchronized (this) {
+            for (Item existing : items) {
+                if (existing.token.equals(purchaseToken)) return;
+            }
+            Item item = new Item();
+            item.token = purchaseToken;
+            item.productId = productId;
+            item.orderId = orderId != null ? orderId : "";
+            item.enqueuedAt = System.currentTimeMillis();
+            items.add(item);
+        }
+        // Off the caller's thread (enqueue runs on the main thread from onPurchasesUpdated)
+        executor.execute(this::persist);
+        kick();
+    }
+
+    public void kick() {
+        synchronized (this) {
+            if (draining || items.isEmpty()) return;
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    public synchronized int depth() {
+        return items.size();
+    }
+
+    /**
+     * Queue state as JSON: {depth, oldestAt, nextAttemptAt, lastError, corrupt}.
+     */
+    public synchronized String getStats() {
+        try {
+            long oldest = 0;
+            long next = 0;
+            for (Item item : items) {
+                if (oldest == 0 || item.enqueuedAt < oldest) oldest = item.enqueuedAt;
+                if (next == 0 || item.nextAttemptAt < next) next = item.nextAttemptAt;
+            }
+            JSONObject json = new JSONObject();
+            json.put("depth", items.size());
+            json.put("oldestAt", oldest);
+            json.put("nextAttemptAt", next);
+            json.put("lastError", lastError);
+            json.put("corrupt", corrupt);
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    @Override
+    public void onConnectivityChanged(boolean isOnline, boolean metered) {
+        if (isOnline) kick();
+    }
+
+    // ==================== DRAIN ====================
+
+    private void drain() {
+        while (true) {
+            List<Item> batch = new ArrayList<>();
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                dropExpired(now);
+                long nextDue = Long.MAX_VALUE;
+                int max = batchSupported ? MAX_BATCH : 1;
+                for (Item item : items) {
+                    if (item.nextAttemptAt <= now) {
+                        if (batch.size() < max) batch.add(item);
+                    } else {
+                        nextDue = Math.min(nextDue, item.nextAttemptAt);
+                    }
+                }
+                if (batch.isEmpty() || !online.getAsBoolean()) {
+                    draining = false;
+                    // Offline: the connectivity listener kicks us again
+                    if (batch.isEmpty() && nextDue != Long.MAX_VALUE) scheduleWake(nextDue - now);
+                    return;
+                }
+            }
+
+            Response response = send(batch);
+            synchronized (this) {
+                int code = response.code;
+                if (code >= 200 && code < 300) {
+                    onConfirmations(batch, response.json);
+                } else if (code >= 400 && code < 500 && code != 408 && code != 429) {
+                    if (batch.size() > 1) {
+                        // Backend doesn't take batches: retry these one by one right away
+                        batchSupported = false;
+                    } else {
+                        Log.e(TAG, "Verification rejected (" + code + "), dropping");
+                        items.removeAll(batch);
+                    }
+                } else {
+                    retryLater(batch);
+                }
+            }
+            persist();
+        }
+    }
+
+    /**
+     * A 2xx: drop the purchases the body confirms, retry the rest. Guarded by this.
+     */
+    private void onConfirmations(List<Item> batch, JSONObject json) {
+        if (batch.size() > 1) {
+            JSONArray results = json != null ? json.optJSONArray("results") : null;
+            if (results == null) {
+                // Not a batch response (e.g. {"success":false,"error":"unknown action"})
+                batchSupported = false;
+                recordError("Batch not confirmed");
+                return;
+            }
+            Set<String> confirmed = new HashSet<>();
+            for (int i = 0; i < results.length(); i++) {
+                JSONObject result = results.optJSONObject(i);
+                if (result != null && result.optBoolean("success", false)) {
+                    confirmed.add(result.optString("purchase_token"));
+                }
+            }
+            List<Item> unconfirmed = new ArrayList<>();
+            for (Item item : batch) {
+                if (confirmed.contains(item.token)) {
+                    items.remove(item);
+                } else {
+                    unconfirmed.add(item);
+                }
+            }
+            retryLater(unconfirmed);
+            if (unconfirmed.isEmpty()) lastError = "";
+            else lastError = unconfirmed.size() + " of " + batch.size() + " not confirmed";
+            return;
+        }
+
+        if (json != null && json.optBoolean("batch_supported", false)) batchSupported = true;
+        if (json != null && json.optBoolean("success", false)) {
+            items.removeAll(batch);
+            lastError = "";
+        } else {
+            retryLater(batch);
+            lastError = "Not confirmed";
+        }
+    }
+
+    /** Guarded by this. */
+    private void retryLater(List<Item> batch) {
+        long now = System.currentTimeMillis();
+        for (Item item : batch) {
+            item.attempts++;
+            item.nextAttemptAt = now + backoff(item.attempts);
+        }
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(MAX, BASE * 2^attempts)], at least BASE.
+     */
+    private long backoff(int attempts) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts, 20));
+        return Math.max(BASE_BACKOFF_MS, (long) (random.nextDouble() * cap));
+    }
+
+    private void scheduleWake(long delayMs) {
+        long at = System.currentTimeMillis() + delayMs;
+        if (wakeAt > System.currentTimeMillis() && wakeAt <= at) return; // Earlier wake pending
+        wakeAt = at;
+        scheduler.schedule(this::kick, delayMs);
+    }
+
+    private void dropExpired(long now) {
+        Iterator<Item> it = items.iterator();
+        while (it.hasNext()) {
+            if (now - it.next().enqueuedAt > MAX_AGE_MS) {
+                Log.w(TAG, "Dropping verification older than " + MAX_AGE_MS + " ms");
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * HTTP status and parsed body of a verification request.
+     */
+    private static class Response {
+        final int code;           // -1 on a network error
+        final JSONObject json;    // null if the body wasn't a JSON object
+
+        Response(int code, JSONObject json) {
+            this.code = code;
+            this.json = json;
+        }
+    }
+
+    /**
+     * POST the batch and read the whole response body.
+     */
+    private Response send(List<Item> batch) {
+        HttpURLConnection conn = null;
+        try {
+            byte[] body = requestBody(batch).getBytes(StandardCharsets.UTF_8);
+            conn = (HttpURLConnection) new URL(endpoint).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setFixedLengthStreamingMode(body.length);
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body);
+            }
+
+            int code = conn.getResponseCode();
+            // Read to the end, so the connection also goes back to the keep-alive pool
+            InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream();
+            String text = "";
+            if (in != null) {
+                try (InputStream stream = in) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[1024];
+                    int n;
+                    while ((n = stream.read(buffer)) != -1) out.write(buffer, 0, n);
+                    text = out.toString("UTF-8");
+                }
+            }
+            Log.d(TAG, "Verification of " + batch.size() + " purchase(s): " + code);
+            if (code >= 300) recordError("HTTP " + code);
+            return new Response(code, parseObject(text));
+        } catch (Exception e) {
+            Log.e(TAG, "Verification request failed: " + e.getMessage());
+            recordError(e.getClass().getSimpleName());
+            if (conn != null) conn.disconnect(); // Broken socket - don't pool it
+            return new Response(-1, null);
+        }
+    }
+
+    private static JSONObject parseObject(String text) {
+        try {
+            return new JSONObject(text);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private synchronized void recordError(String error) {
+        lastError = error;
+    }
+
+    private String requestBody(List<Item> batch) throws Exception {
+        if (batch.size() == 1) {
+            JSONObject body = purchaseJson(batch.get(0));
+            body.put("action", "verify_purchase");
+            return body.toString();
+        }
+        JSONArray purchases = new JSONArray();
+        for (Item item : batch) purchases.put(purchaseJson(item));
+        JSONObject body = new JSONObject();
+        body.put("action", "verify_purchases");
+        body.put("purchases", purchases);
+        return body.toString();
+    }
+
+    private JSONObject purchaseJson(Item item) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("purchase_token", item.token);
+        json.put("product_id", item.productId);
+        json.put("order_id", item.orderId);
+        json.put("package_name", packageName);
+        return json;
+    }
+
+    // ==================== PERSISTENCE ====================
+
+    private void load() {
+        batchSupported = prefs.getBoolean(KEY_BATCH_SUPPORTED, false);
+        String stored = prefs.getString(KEY_QUEUE, "[]");
+        try {
+            JSONArray arr = new JSONArray(stored);
+            for (int i = 0; i < arr.length(); i++) {
+                items.add(Item.fromJson(arr.getJSONObject(i)));
+            }
+        } catch (Exception e) {
+            // Corrupt: keep the purchases where they can be recovered and never persist over them
+            items.clear();
+            corrupt = true;
+            if (!stored.equals(prefs.getString(KEY_QUEUE_CORRUPT, null))) {
+                prefs.edit().putString(KEY_QUEUE_CORRUPT, stored).commit();
+            }
+            Log.e(TAG, "Stored verification queue unreadable, kept as " + KEY_QUEUE_CORRUPT);
+            DiagnosticLog.record(TAG, "load", e);
+        }
+    }
+
+    /**
+     * Write the queue as it is now. Background executor only. Snapshot and write happen
+     * under persistLock, so concurrent calls can't land an older snapshot last.
+     */
+    private void persist() {
+        synchronized (persistLock) {
+            JSONArray arr = new JSONArray();
+            boolean batch;
+            synchronized (this) {
+                if (corrupt) return;
+                for (Item item : items) {
+                    try {
+                        arr.put(item.toJson());
+                    } catch (Exception e) {
+                        // Skip
+                    }
+                }
+                batch = batchSupported;
+            }
+            // commit(): the entry must be on disk before we rely on it; the queue is tiny
+            prefs.edit()
+                    .putString(KEY_QUEUE, arr.toString())
+                    .putBoolean(KEY_BATCH_SUPPORTED, batch)
+                    .commit();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.budgetiq.app;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Size-bounded LRU disk cache for the web app's static assets (JS, CSS, fonts, images).
+ * Hooked into MainActivity's WebViewClient through shouldInterceptRequest.
+ *
+ * - Fresh entries are served straight from disk. Freshness comes from the response's
+ *   Cache-Control max-age, or FRESH_MS if it has none
+ * - Stale entries (up to STALE_WHILE_REVALIDATE_MS) are served from disk and revalidated in the background
+ * - Older entries, and entries whose response said no-cache, are revalidated before serving
+ *   using If-None-Match / If-Modified-Since
+ * - If the network is unreachable, whatever is on disk is served (except no-cache entries)
+ * - no-store and private responses aren't cached
+ *
+ * Only static file types are cached: fetches carry the user's cookies but entries are keyed
+ * by URL alone, so per-user responses (JSON API calls) must never land here. Cached
+ * responses carry the origin's own Access-Control-Allow-Origin, if it sent one.
+ *
+ * Revalidation runs on metered networks too: it is a conditional GET (a few hundred bytes
+ * when nothing changed), and skipping it would keep week-old JS/CSS running against a newly
+ * deployed page. Only speculative prefetching (app shell refresh) is held back on metered.
+ * Stale entries aren't revalidated while offline.
+ *
+ * The origin is passed in, so the cache can be pointed at a local stand-in HTTP server
+ * (see WebAssetCacheTest).
+ */
+public class WebAssetCache {
+
+    private static final String TAG = "WebAssetCache";
+    private static final String DIR_NAME = "web_assets";
+
+    private static final long DEFAULT_MAX_BYTES = 20L * 1024 * 1024;     // 20 MB on disk
+    private static final long MAX_ENTRY_BYTES = 4L * 1024 * 1024;        // Don't cache anything bigger
+    private static final long FRESH_MS = 10 * 60 * 1000;                 // 10 minutes without max-age
+    private static final long STALE_WHILE_REVALIDATE_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    private static final String[] CACHEABLE_EXTENSIONS = {
+            ".js", ".mjs", ".css", ".woff", ".woff2", ".ttf", ".otf",
+            ".png", ".jpg", ".jpeg", ".gif", ".webp", ".svg", ".ico"
+    };
+
+    private final String origin;
+    private final File dir;
+    private final long maxBytes;
+    private final ExecutorService revalidator;
+    private final ConnectivityMonitor connectivity;
+
+    // Access-ordered: eldest entry is the least recently used
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<String> revalidating = Collections.synchronizedSet(new HashSet<>());
+    private long totalBytes = 0;
+
+    public WebAssetCache(Context context, String origin) {
+        this(new File(context.getCacheDir(), DIR_NAME), origin, DEFAULT_MAX_BYTES,
+                ConnectivityMonitor.get(context));
+    }
+
+    public WebAssetCache(File dir, String origin, long maxBytes, ConnectivityMonitor connectivity) {
+        this(dir, origin, maxBytes, connectivity, Executors.newSingleThreadExecutor());
+    }
+
+    WebAssetCache(File dir, String origin, long maxBytes, ConnectivityMonitor connectivity,
+                  ExecutorService revalidator) {
+        this.dir = dir;
+        this.connectivity = connectivity;
+        this.origin = origin;
+        this.maxBytes = maxBytes;
+        this.revalidator = revalidator;
+        revalidator.execute(this::loadIndex);
+    }
+
+    /**
+     * Called from WebViewClient.shouldInterceptRequest (WebView IO thread).
+     * Returns null to let WebView handle the request itself.
+     */
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) return null;
+        if (request.getRequestHeaders().containsKey("Range")) return null;
+        Hit hit = lookup(request.getUrl().toString(), request.getRequestHeaders());
+        if (hit == null) return null;
+        return new WebResourceResponse(hit.mimeType, hit.encoding, 200, "OK", hit.headers, hit.data);
+    }
+
+    /**
+     * The cached (or freshly fetched and cached) asset for a GET of url, or null to let
+     * WebView load it itself.
+     */
+    Hit lookup(String url, Map<String, String> requestHeaders) {
+        if (!isCacheable(url)) return null;
+
+        try {
+            Entry entry = get(url);
+            if (entry != null && !entry.noCache) {
+                long age = System.currentTimeMillis() - entry.storedAt;
+                if (age < entry.freshMs) {
+                    return toHit(entry);
+                }
+                if (age < STALE_WHILE_REVALIDATE_MS) {
+                    Hit stale = toHit(entry); // Opened first, so a revalidation can't swap the body under it
+                    if (connectivity == null || connectivity.isConnected()) {
+                        revalidateAsync(url, requestHeaders);
+                    }
+                    return stale;
+                }
+            }
+
+            Entry fetched;
+            try {
+                fetched = fetch(url, entry, requestHeaders);
+            } catch (IOException e) {
+                // Offline or origin unreachable: an expired copy beats a failed load,
+                // unless the origin asked for every use to be revalidated
+                if (entry == null || entry.noCache) throw e;
+                fetched = null;
+            }
+            if (fetched != null) return toHit(fetched);
+            return entry != null && !entry.noCache ? toHit(entry) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "Intercept failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    boolean isCacheable(String url) {
+        if (url == null || !url.startsWith(origin)) return false;
+        String path = url;
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        int h = path.indexOf('#');
+        if (h >= 0) path = path.substring(0, h);
+        path = path.toLowerCase(Locale.US);
+        for (String ext : CACHEABLE_EXTENSIONS) {
+            if (path.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drop every cached asset (e.g. after a web app deploy that changes URLs in place).
+     */
+    public synchronized void clear() {
+        for (Entry entry : index.values()) {
+            deleteFiles(entry.key);
+        }
+        index.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int entryCount() {
+        return index.size();
+    }
+
+    public void shutdown() {
+        revalidator.shutdown();
+    }
+
+    // ==================== NETWORK ====================
+
+    private void revalidateAsync(String url, Map<String, String> requestHeaders) {
+        if (!revalidating.add(url)) return;
+        Map<String, String> headers = new HashMap<>(requestHeaders);
+        revalidator.execute(() -> {
+            try {
+                fetch(url, get(url), headers);
+            } catch (Exception e) {
+                Log.d(TAG, "Background revalidation failed for " + url + ": " + e.getMessage());
+            } finally {
+                revalidating.remove(url);
+            }
+        });
+    }
+
+    /**
+     * Conditional GET against the origin. Returns the up-to-date entry, or null if the
+     * response couldn't be cached (caller falls back to the stale entry or to WebView).
+     */
+    private Entry fetch(String url, Entry cached, Map<String, String> requestHeaders) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setInstanceFollowRedirects(true);
+            copyHeader(requestHeaders, conn, "User-Agent");
+            copyHeader(requestHeaders, conn, "Accept");
+            copyHeader(requestHeaders, conn, "Accept-Language");
+            String cookie = getCookie(url);
+            if (cookie != null) conn.setRequestProperty("Cookie", cookie);
+
+            if (cached != null) {
+                if (!cached.etag.isEmpty()) conn.setRequestProperty("If-None-Match", cached.etag);
+                if (!cached.lastModified.isEmpty()) {
+                    conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+
+            int code = conn.getResponseCode();
+            String cacheControl = headerOrEmpty(conn, "Cache-Control").toLowerCase(Locale.US);
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                return touch(cached, cacheControl, headerOrEmpty(conn, "ETag"));
+            }
+            if (code != HttpURLConnection.HTTP_OK) return null;
+
+            if (cacheControl.contains("no-store") || cacheControl.contains("private")) return null;
+            long length = conn.getContentLengthLong();
+            if (length > MAX_ENTRY_BYTES) return null;
+
+            Entry entry = new Entry();
+            entry.key = keyFor(url);
+            entry.url = url;
+            entry.etag = headerOrEmpty(conn, "ETag");
+            entry.lastModified = headerOrEmpty(conn, "Last-Modified");
+            entry.allowOrigin = headerOrEmpty(conn, "Access-Control-Allow-Origin");
+            parseCacheControl(cacheControl, entry);
+            parseContentType(headerOrEmpty(conn, "Content-Type"), entry);
+            entry.storedAt = System.currentTimeMillis();
+
+            if (!dir.exists()) dir.mkdirs();
+            File tmp = new File(dir, entry.key + ".tmp");
+            try (InputStream in = conn.getInputStream(); OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buf = new byte[16 * 1024];
+                long written = 0;
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    written += n;
+                    if (written > MAX_ENTRY_BYTES) {
+                        out.close();
+                        tmp.delete();
+                        return null;
+                    }
+                    out.write(buf, 0, n);
+                }
+                entry.size = written;
+            }
+            return put(entry, tmp);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static void copyHeader(Map<String, String> from, HttpURLConnection to, String name) {
+        for (Map.Entry<String, String> h : from.entrySet()) {
+            if (h.getKey().equalsIgnoreCase(name)) {
+                to.setRequestProperty(name, h.getValue());
+                return;
+            }
+        }
+    }
+
+    private static String headerOrEmpty(HttpURLConnection conn, String name) {
+        String value = conn.getHeaderField(name);
+        return value != null ? value : "";
+    }
+
+    private static String getCookie(String url) {
+        try {
+            return CookieManager.getInstance().getCookie(url);
+        } catch (Exception e) {
+            // No WebView provider (e.g. running against a stand-in server off-device)
+            return null;
+        }
+    }
+
+    /**
+     * max-age sets freshness (FRESH_MS if absent); no-cache means revalidate on every use.
+     */
+    private static void parseCacheControl(String cacheControl, Entry entry) {
+        entry.freshMs = FRESH_MS;
+        entry.noCache = false;
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim();
+            if (d.equals("no-cache")) {
+                entry.noCache = true;
+            } else if (d.startsWith("max-age=")) {
+                try {
+                    entry.freshMs = Math.max(0, Long.parseLong(d.substring(8).replace("\"", "").trim())) * 1000;
+                } catch (NumberFormatException e) {
+                    // Ignore - keep the default
+                }
+            }
+        }
+    }
+
+    private static void parseContentType(String contentType, Entry entry) {
+        entry.mimeType = "application/octet-stream";
+        entry.encoding = "";
+        if (contentType.isEmpty()) return;
+        String[] parts = contentType.split(";");
+        entry.mimeType = parts[0].trim();
+        for (int i = 1; i < parts.length; i++) {
+            String p = parts[i].trim();
+            if (p.toLowerCase(Locale.US).startsWith("charset=")) {
+                entry.encoding = p.substring(8).replace("\"", "").trim();
+            }
+        }
+    }
+
+    // ==================== DISK INDEX ====================
+
+    private synchronized Entry get(String url) {
+        Entry entry = index.get(keyFor(url));
+        if (entry == null) return null;
+        if (!bodyFile(entry.key).exists()) {
+            index.remove(entry.key);
+            totalBytes -= entry.size;
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * A 304: the entry is current again. A 304 may carry updated validators and Cache-Control.
+     */
+    private synchronized Entry touch(Entry entry, String cacheControl, String etag) {
+        entry.storedAt = System.currentTimeMillis();
+        if (!cacheControl.isEmpty()) parseCacheControl(cacheControl, entry);
+        if (!etag.isEmpty()) entry.etag = etag;
+        writeMeta(entry);
+        return entry;
+    }
+
+    private synchronized Entry put(Entry entry, File tmp) {
+        Entry old = index.remove(entry.key);
+        if (old != null) totalBytes -= old.size;
+
+        File body = bodyFile(entry.key);
+        if (!tmp.renameTo(body)) {
+            tmp.delete();
+            deleteFiles(entry.key);
+            return null;
+        }
+        writeMeta(entry);
+        index.put(entry.key, entry);
+        totalBytes += entry.size;
+        trimToSize();
+        return index.containsKey(entry.key) ? entry : null;
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> it = index.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.size;
+            deleteFiles(eldest.key);
+        }
+    }
+
+    private synchronized void loadIndex() {
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create cache dir " + dir);
+            return;
+        }
+        File[] metas = dir.listFiles((d, name) -> name.endsWith(".meta"));
+        if (metas == null) return;
+
+        // Rebuild LRU order from the body files' last access (mtime)
+        List<Entry> entries = new ArrayList<>();
+        for (File meta : metas) {
+            Entry entry = readMeta(meta);
+            if (entry == null || !bodyFile(entry.key).exists()) {
+                String key = meta.getName().replace(".meta", "");
+                deleteFiles(key);
+                continue;
+            }
+            entry.lastAccess = bodyFile(entry.key).lastModified();
+            entries.add(entry);
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+        for (Entry entry : entries) {
+            if (!index.containsKey(entry.key)) {
+                index.put(entry.key, entry);
+                totalBytes += entry.size;
+            }
+        }
+        trimToSize();
+
+        File[] leftovers = dir.listFiles((d, name) -> name.endsWith(".tmp"));
+        if (leftovers != null) {
+            for (File f : leftovers) f.delete();
+        }
+    }
+
+    private void writeMeta(Entry entry) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("url", entry.url);
+            json.put("etag", entry.etag);
+            json.put("lastModified", entry.lastModified);
+            json.put("mimeType", entry.mimeType);
+            json.put("encoding", entry.encoding);
+            json.put("allowOrigin", entry.allowOrigin);
+            json.put("freshMs", entry.freshMs);
+            json.put("noCache", entry.noCache);
+            json.put("storedAt", entry.storedAt);
+            json.put("size", entry.size);
+            try (OutputStream out = new FileOutputStream(metaFile(entry.key))) {
+                out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write meta: " + e.getMessage());
+        }
+    }
+
+    private Entry readMeta(File meta) {
+        try (InputStream in = new FileInputStream(meta)) {
+            byte[] data = new byte[(int) meta.length()];
+            int off = 0;
+            int n;
+            while (off < data.length && (n = in.read(data, off, data.length - off)) != -1) off += n;
+            JSONObject json = new JSONObject(new String(data, 0, off, StandardCharsets.UTF_8));
+            Entry entry = new Entry();
+            entry.url = json.getString("url");
+            entry.key = keyFor(entry.url);
+            entry.etag = json.optString("etag", "");
+            entry.lastModified = json.optString("lastModified", "");
+            entry.mimeType = json.optString("mimeType", "application/octet-stream");
+            entry.encoding = json.optString("encoding", "");
+            entry.allowOrigin = json.optString("allowOrigin", "");
+            entry.freshMs = json.optLong("freshMs", FRESH_MS);
+            entry.noCache = json.optBoolean("noCache", false);
+            entry.storedAt = json.optLong("storedAt", 0);
+            entry.size = json.optLong("size", 0);
+            return entry;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Hit toHit(Entry entry) throws IOException {
+        File body = bodyFile(entry.key);
+        body.setLastModified(System.currentTimeMillis());
+        Map<String, String> headers = new HashMap<>();
+        // Only what the origin sent; the cache mustn't widen CORS
+        if (!entry.allowOrigin.isEmpty()) headers.put("Access-Control-Allow-Origin", entry.allowOrigin);
+        if (!entry.etag.isEmpty()) headers.put("ETag", entry.etag);
+        return new Hit(entry.mimeType, entry.encoding.isEmpty() ? null : entry.encoding,
+                headers, new FileInputStream(body));
+    }
+
+    private File bodyFile(String key) {
+        return new File(dir, key + ".body");
+    }
+
+    private File metaFile(String key) {
+        return new File(dir, key + ".meta");
+    }
+
+    private void deleteFiles(String key) {
+        bodyFile(key).delete();
+        metaFile(key).delete();
+    }
+
+    static String keyFor(String url) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) sb.append(String.format(Locale.US, "%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static class Entry {
+        String key;
+        String url;
+        String etag = "";
+        String lastModified = "";
+        String mimeType = "application/octet-stream";
+        String encoding = "";
+        String allowOrigin = "";
+        long freshMs = FRESH_MS;
+        boolean noCache;
+        long storedAt;
+        long size;
+        long lastAccess;
+    }
+
+    /**
+     * What intercept() turns into a WebResourceResponse.
+     */
+    static final class Hit {
+        final String mimeType;
+        final String encoding;
+        final Map<String, String> headers;
+        final InputStream data;
+
+        Hit(String mimeType, String encoding, Map<String, String> headers, InputStream data) {
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.budgetiq.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.SharedPreferences;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Drives VerificationQueue against a local HTTP stub. The executor runs work inline and
+ * wakes are only recorded, so each kick() drains synchronously and deterministically.
+ */
+public class VerificationQueueTest {
+
+    private static final String KEY_QUEUE = "verify_queue";
+    private static final String KEY_BATCH_SUPPORTED = "verify_batch_supported";
+
+    private HttpServer server;
+    private final List<JSONObject> requests = new ArrayList<>();
+    private volatile Function<JSONObject, Reply> backend;
+    private final FakePrefs prefs = new FakePrefs();
+    private final List<Long> wakes = new ArrayList<>();
+    private boolean online = true;
+
+    private static class Reply {
+        final int code;
+        final String body;
+
+        Reply(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/verify", exchange -> {
+            JSONObject request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = new JSONObject(readAll(in));
+            } catch (Exception e) {
+                request = new JSONObject();
+            }
+            Reply reply;
+            synchronized (requests) {
+                requests.add(request);
+                reply = backend.apply(request);
+            }
+            byte[] bytes = reply.body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.code, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private VerificationQueue newQueue() {
+        String endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/verify";
+        return new VerificationQueue(prefs, endpoint, "com.budgetiq.app", Runnable::run,
+                (work, delayMs) -> wakes.add(delayMs), () -> online);
+    }
+
+    private static Reply json(int code, String body) {
+        return new Reply(code, body);
+    }
+
+    // ==================== SINGLE ====================
+
+    @Test
+    public void confirmedPurchaseIsRemoved() throws Exception {
+        backend = request -> json(200, "{\"success\":true}");
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(0, queue.depth());
+        assertEquals(1, requests.size());
+        JSONObject request = requests.get(0);
+        assertEquals("verify_purchase", request.getString("action"));
+        assertEquals("tok-1", request.getString("purchase_token"));
+        assertEquals("premium_monthly", request.getString("product_id"));
+        assertEquals("GPA.1", request.getString("order_id"));
+        assertEquals("com.budgetiq.app", request.getString("package_name"));
+        assertEquals(0, persisted().length());
+    }
+
+    @Test
+    public void serverErrorIsRetriedWithBackoff() throws Exception {
+        backend = request -> json(503, "");
+        VerificationQueue queue = newQueue();
+
+        long before = System.currentTimeMillis();
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(1, queue.depth());
+        assertEquals(1, requests.size());
+        JSONObject item = persisted().getJSONObject(0);
+        assertEquals(1, item.getInt("attempts"));
+        assertTrue(item.getLong("nextAttemptAt") > before);
+        assertEquals(1, wakes.size());
+        assertTrue(wakes.get(0) > 0);
+
+        // Not due yet: a kick sends nothing
+        queue.kick();
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void unconfirmedSuccessIsRetried() throws Exception {
+        backend = request -> json(200, "{\"success\":false,\"error\":\"temporarily unavailable\"}");
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(1, queue.depth());
+        assertEquals(1, persisted().getJSONObject(0).getInt("attempts"));
+    }
+
+    @Test
+    public void nonJsonSuccessIsRetried() throws Exception {
+        backend = request -> json(200, "OK");
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    public void rejectedPurchaseIsDropped() throws Exception {
+        backend = request -> json(400, "{\"success\":false,\"error\":\"invalid token\"}");
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(0, queue.depth());
+        assertEquals(1, requests.size());
+        assertEquals(0, persisted().length());
+    }
+
+    @Test
+    public void throttlingIsRetriedNotDropped() throws Exception {
+        backend = request -> json(429, "");
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    public void nothingIsSentOffline() throws Exception {
+        backend = request -> json(200, "{\"success\":true}");
+        online = false;
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+        assertEquals(1, queue.depth());
+        assertEquals(0, requests.size());
+        assertEquals(1, persisted().length());
+
+        online = true;
+        queue.onConnectivityChanged(true, false);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void duplicateTokenIsIgnored() throws Exception {
+        online = false;
+        VerificationQueue queue = newQueue();
+
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+
+        assertEquals(1, queue.depth());
+    }
+
+    // ==================== EXPIRY ====================
+
+    @Test
+    public void expiredPurchaseIsDroppedWithoutSending() throws Exception {
+        backend = request -> json(200, "{\"success\":true}");
+        long eightDaysAgo = System.currentTimeMillis() - 8L * 24 * 60 * 60 * 1000;
+        JSONArray stored = new JSONArray();
+        stored.put(item("old", eightDaysAgo));
+        stored.put(item("fresh", System.currentTimeMillis()));
+        prefs.edit().putString(KEY_QUEUE, stored.toString()).commit();
+
+        VerificationQueue queue = newQueue();
+        assertEquals(2, queue.depth());
+        queue.kick();
+
+        assertEquals(0, queue.depth());
+        assertEquals(1, requests.size());
+        assertEquals("fresh", requests.get(0).getString("purchase_token"));
+    }
+
+    // ==================== CORRUPT STORE ====================
+
+    @Test
+    public void unreadableQueueIsKeptAndNeverOverwritten() throws Exception {
+        backend = request -> json(200, "{\"success\":true}");
+        String stored = "[{\"token\":\"tok-old\",\"productId\":";
+        prefs.edit().putString(KEY_QUEUE, stored).commit();
+
+        VerificationQueue queue = newQueue();
+        assertEquals(0, queue.depth());
+        assertEquals(stored, prefs.getString(KEY_QUEUE + ".corrupt", null));
+        assertTrue(new JSONObject(queue.getStats()).getBoolean("corrupt"));
+
+        // New purchases are still verified, but the stored queue stays as it was
+        online = false;
+        queue.enqueue("tok-1", "premium_monthly", "GPA.1");
+        assertEquals(stored, prefs.getString(KEY_QUEUE, null));
+        online = true;
+        queue.kick();
+        assertEquals(0, queue.depth());
+        assertEquals(1, requests.size());
+        assertEquals(stored, prefs.getString(KEY_QUEUE, null));
+    }
+
+    // ==================== BATCH ====================
+
+    @Test
+    public void batchingStaysOffUntilAdvertised() throws Exception {
+        backend = request -> json(200, "{\"success\":true}");
+        online = false;
+        VerificationQueue queue = newQueue();
+        queue.enqueue("tok-1", "p", "o1");
+        queue.enqueue("tok-2", "p", "o2");
+        queue.enqueue("tok-3", "p", "o3");
+
+        online = true;
+        queue.kick();
+
+        assertEquals(0, queue.depth());
+        assertEquals(3, requests.size());
+        for (JSONObject request : requests) {
+            assertEquals("verify_purchase", request.getString("action"));
+        }
+        assertFalse(prefs.getBoolean(KEY_BATCH_SUPPORTED, false));
+    }
+
+    @Test
+    public void batchRemovesOnlyConfirmedTokens() throws Exception {
+        backend = request -> {
+            if ("verify_purchase".equals(request.optString("action"))) {
+                return json(200, "{\"success\":true,\"batch_supported\":true}");
+            }
+            // Confirm tok-2 and tok-4; tok-3 failed, tok-5 missing from the results
+            return json(200, "{\"results\":["
+                    + "{\"purchase_token\":\"tok-2\",\"success\":true},"
+                    + "{\"purchase_token\":\"tok-3\",\"success\":false},"
+                    + "{\"purchase_token\":\"tok-4\",\"success\":true}]}");
+        };
+        VerificationQueue queue = newQueue();
+        queue.enqueue("tok-1", "p", "o1"); // Single; the response turns batching on
+        assertTrue(prefs.getBoolean(KEY_BATCH_SUPPORTED, false));
+
+        online = false;
+        queue.enqueue("tok-2", "p", "o2");
+        queue.enqueue("tok-3", "p", "o3");
+        queue.enqueue("tok-4", "p", "o4");
+        queue.enqueue("tok-5", "p", "o5");
+        online = true;
+        queue.kick();
+
+        assertEquals(2, requests.size());
+        JSONObject batch = requests.get(1);
+        assertEquals("verify_purchases", batch.getString("action"));
+        assertEquals(4, batch.getJSONArray("purchases").length());
+
+        assertEquals(2, queue.depth());
+        JSONArray left = persisted();
+        assertEquals("tok-3", left.getJSONObject(0).getString("token"));
+        assertEquals("tok-5", left.getJSONObject(1).getString("token"));
+        assertEquals(1, left.getJSONObject(0).getInt("attempts"));
+        assertEquals(1, left.getJSONObject(1).getInt("attempts"));
+    }
+
+    @Test
+    public void rejectedBatchFallsBackToSingles() throws Exception {
+        prefs.edit().putBoolean(KEY_BATCH_SUPPORTED, true).commit();
+        backend = request -> "verify_purchases".equals(request.optString("action"))
+                ? json(400, "{\"success\":false,\"error\":\"unknown action\"}")
+                : json(200, "{\"success\":true}");
+        online = false;
+        VerificationQueue queue = newQueue();
+        queue.enqueue("tok-1", "p", "o1");
+        queue.enqueue("tok-2", "p", "o2");
+
+        online = true;
+        queue.kick();
+
+        assertEquals(0, queue.depth());
+        assertEquals(3, requests.size());
+        assertEquals("verify_purchases", requests.get(0).getString("action"));
+        assertEquals("verify_purchase", requests.get(1).getString("action"));
+        assertEquals("verify_purchase", requests.get(2).getString("action"));
+        assertFalse(prefs.getBoolean(KEY_BATCH_SUPPORTED, true));
+        assertTrue(wakes.isEmpty()); // Singles went out right away, no backoff
+    }
+
+    @Test
+    public void batchSuccessWithoutResultsFallsBackToSingles() throws Exception {
+        prefs.edit().putBoolean(KEY_BATCH_SUPPORTED, true).commit();
+        backend = request -> "verify_purchases".equals(request.optString("action"))
+                ? json(200, "{\"success\":false,\"error\":\"unknown action\"}")
+                : json(200, "{\"success\":true}");
+        online = false;
+        VerificationQueue queue = newQueue();
+        queue.enqueue("tok-1", "p", "o1");
+        queue.enqueue("tok-2", "p", "o2");
+
+        online = true;
+        queue.kick();
+
+        assertEquals(0, queue.depth());
+        assertEquals(3, requests.size());
+        assertFalse(prefs.getBoolean(KEY_BATCH_SUPPORTED, true));
+    }
+
+    // ==================== HELPERS ====================
+
+    private JSONArray persisted() throws Exception {
+        return new JSONArray(prefs.getString(KEY_QUEUE, "[]"));
+    }
+
+    private static JSONObject item(String token, long enqueuedAt) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("token", token);
+        json.put("productId", "premium_monthly");
+        json.put("orderId", "");
+        json.put("attempts", 0);
+        json.put("enqueuedAt", enqueuedAt);
+        json.put("nextAttemptAt", 0);
+        return json;
+    }
+
+    private static String readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * In-memory SharedPreferences; edits apply on commit()/apply().
+     */
+    private static class FakePrefs implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public synchronized Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            Object v = values.get(key);
+            return v != null ? (String) v : defValue;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+            Object v = values.get(key);
+            return v != null ? (Set<String>) v : defValues;
+        }
+
+        @Override
+        public synchronized int getInt(String key, int defValue) {
+            Object v = values.get(key);
+            return v != null ? (Integer) v : defValue;
+        }
+
+        @Override
+        public synchronized long getLong(String key, long defValue) {
+            Object v = values.get(key);
+            return v != null ? (Long) v : defValue;
+        }
+
+        @Override
+        public synchronized float getFloat(String key, float defValue) {
+            Object v = values.get(key);
+            return v != null ? (Float) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue) {
+            Object v = values.get(key);
+            return v != null ? (Boolean) v : defValue;
+        }
+
+        @Override
+        public synchronized boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private class FakeEditor implements Editor {
+            private final Map<String, Object> pending = new HashMap<>();
+            private final List<String> removed = new ArrayList<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                pending.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                pending.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                removed.add(key);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (FakePrefs.this) {
+                    if (clear) values.clear();
+                    for (String key : removed) values.remove(key);
+                    values.putAll(pending);
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.budgetiq.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs WebAssetCache against a local HTTP stand-in for the origin. Background
+ * revalidation runs on an executor the test owns, so it can wait for it.
+ */
+public class WebAssetCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String origin;
+    private ExecutorService revalidator;
+
+    // Path -> what the stand-in serves; guarded by assets
+    private final Map<String, Asset> assets = new HashMap<>();
+    // Requests seen, as "path If-None-Match"
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private static class Asset {
+        String body;
+        String etag;
+        String cacheControl;
+        String allowOrigin;
+
+        Asset(String body, String etag, String cacheControl) {
+            this.body = body;
+            this.etag = etag;
+            this.cacheControl = cacheControl;
+        }
+    }
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            requests.add(path + " " + ifNoneMatch);
+            Asset asset;
+            synchronized (assets) {
+                asset = assets.get(path);
+            }
+            Headers headers = exchange.getResponseHeaders();
+            if (asset == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            if (asset.etag != null) headers.set("ETag", asset.etag);
+            if (asset.cacheControl != null) headers.set("Cache-Control", asset.cacheControl);
+            if (asset.allowOrigin != null) headers.set("Access-Control-Allow-Origin", asset.allowOrigin);
+            if (asset.etag != null && asset.etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            headers.set("Content-Type", "application/javascript; charset=utf-8");
+            byte[] bytes = asset.body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        origin = "http://127.0.0.1:" + server.getAddress().getPort();
+        revalidator = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        revalidator.shutdownNow();
+    }
+
+    private WebAssetCache newCache(long maxBytes) throws Exception {
+        WebAssetCache cache = new WebAssetCache(folder.getRoot(), origin, maxBytes, null, revalidator);
+        awaitRevalidation(); // Index load
+        return cache;
+    }
+
+    private void serve(String path, Asset asset) {
+        synchronized (assets) {
+            assets.put(path, asset);
+        }
+    }
+
+    private void awaitRevalidation() throws Exception {
+        revalidator.submit(() -> { }).get();
+    }
+
+    private String get(WebAssetCache cache, String path) throws Exception {
+        WebAssetCache.Hit hit = cache.lookup(origin + path, new HashMap<>());
+        if (hit == null) return null;
+        try (InputStream in = hit.data) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+            return out.toString("UTF-8");
+        }
+    }
+
+    private int requestsFor(String path) {
+        int count = 0;
+        synchronized (requests) {
+            for (String request : requests) {
+                if (request.startsWith(path + " ")) count++;
+            }
+        }
+        return count;
+    }
+
+    // ==================== FRESHNESS ====================
+
+    @Test
+    public void freshEntryIsServedFromDisk() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "max-age=3600"));
+        WebAssetCache cache = newCache(1024 * 1024);
+
+        assertEquals("v1", get(cache, "/app.js"));
+        assertEquals("v1", get(cache, "/app.js"));
+
+        assertEquals(1, requestsFor("/app.js"));
+        assertEquals(1, cache.entryCount());
+    }
+
+    @Test
+    public void withoutMaxAgeTheDefaultFreshnessApplies() throws Exception {
+        serve("/app.css", new Asset("v1", null, null));
+        WebAssetCache cache = newCache(1024 * 1024);
+
+        get(cache, "/app.css");
+        get(cache, "/app.css");
+
+        assertEquals(1, requestsFor("/app.css"));
+    }
+
+    @Test
+    public void staleEntryIsServedThenRevalidatedInBackground() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "max-age=0"));
+        WebAssetCache cache = newCache(1024 * 1024);
+        assertEquals("v1", get(cache, "/app.js"));
+
+        // Deployed: the stale copy is served once more while the new one is fetched
+        serve("/app.js", new Asset("v2", "\"2\"", "max-age=0"));
+        assertEquals("v1", get(cache, "/app.js"));
+        awaitRevalidation();
+
+        assertTrue(requests.contains("/app.js \"1\""));
+        assertEquals("v2", get(cache, "/app.js"));
+    }
+
+    @Test
+    public void etagRevalidationKeepsTheCachedBody() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "max-age=0"));
+        WebAssetCache cache = newCache(1024 * 1024);
+        get(cache, "/app.js");
+
+        assertEquals("v1", get(cache, "/app.js"));
+        awaitRevalidation();
+
+        // 304 for the conditional request; the entry stays and is fresh-dated again
+        assertEquals(2, requestsFor("/app.js"));
+        assertTrue(requests.contains("/app.js \"1\""));
+        assertEquals("v1", get(cache, "/app.js"));
+        assertEquals(1, cache.entryCount());
+    }
+
+    @Test
+    public void noCacheIsRevalidatedBeforeEveryUse() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "no-cache, max-age=3600"));
+        WebAssetCache cache = newCache(1024 * 1024);
+        assertEquals("v1", get(cache, "/app.js"));
+
+        assertEquals("v1", get(cache, "/app.js")); // 304
+        assertEquals(2, requestsFor("/app.js"));
+        assertTrue(requests.contains("/app.js \"1\""));
+
+        serve("/app.js", new Asset("v2", "\"2\"", "no-cache"));
+        assertEquals("v2", get(cache, "/app.js")); // Not the cached v1, not even once
+    }
+
+    @Test
+    public void noCacheEntryIsNotServedWhenTheOriginIsDown() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "no-cache"));
+        WebAssetCache cache = newCache(1024 * 1024);
+        get(cache, "/app.js");
+
+        server.stop(0);
+        assertNull(get(cache, "/app.js"));
+    }
+
+    @Test
+    public void noStoreAndPrivateAreNotCached() throws Exception {
+        serve("/a.js", new Asset("a", null, "no-store"));
+        serve("/b.js", new Asset("b", null, "private, max-age=600"));
+        WebAssetCache cache = newCache(1024 * 1024);
+
+        assertNull(get(cache, "/a.js"));
+        assertNull(get(cache, "/b.js"));
+        assertEquals(0, cache.entryCount());
+    }
+
+    // ==================== SCOPE ====================
+
+    @Test
+    public void jsonAndOtherOriginsAreNotCacheable() throws Exception {
+        WebAssetCache cache = newCache(1024 * 1024);
+
+        assertFalse(cache.isCacheable(origin + "/api/v1/budget.json"));
+        assertFalse(cache.isCacheable(origin + "/index.html"));
+        assertFalse(cache.isCacheable("https://cdn.example.com/lib.js"));
+        assertTrue(cache.isCacheable(origin + "/static/app.js?v=3#x"));
+    }
+
+    @Test
+    public void corsHeadersAreOnlyWhatTheOriginSent() throws Exception {
+        Asset font = new Asset("font", null, "max-age=3600");
+        font.allowOrigin = "https://optioninsights.in";
+        serve("/font.woff2", font);
+        serve("/app.js", new Asset("js", null, "max-age=3600"));
+        WebAssetCache cache = newCache(1024 * 1024);
+
+        WebAssetCache.Hit withCors = cache.lookup(origin + "/font.woff2", new HashMap<>());
+        WebAssetCache.Hit withoutCors = cache.lookup(origin + "/app.js", new HashMap<>());
+        withCors.data.close();
+        withoutCors.data.close();
+
+        assertEquals("https://optioninsights.in", withCors.headers.get("Access-Control-Allow-Origin"));
+        assertFalse(withoutCors.headers.containsKey("Access-Control-Allow-Origin"));
+        assertEquals("application/javascript", withoutCors.mimeType);
+        assertEquals("utf-8", withoutCors.encoding);
+    }
+
+    // ==================== LRU ====================
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        String body = new String(new char[100]).replace('\0', 'x');
+        serve("/a.js", new Asset(body, null, "max-age=3600"));
+        serve("/b.js", new Asset(body, null, "max-age=3600"));
+        serve("/c.js", new Asset(body, null, "max-age=3600"));
+        WebAssetCache cache = newCache(250);
+
+        get(cache, "/a.js");
+        get(cache, "/b.js");
+        get(cache, "/a.js"); // b is now the least recently used
+        get(cache, "/c.js");
+
+        assertEquals(2, cache.entryCount());
+        assertEquals(200, cache.sizeBytes());
+        get(cache, "/a.js");
+        get(cache, "/c.js");
+        assertEquals(1, requestsFor("/a.js"));
+        assertEquals(1, requestsFor("/c.js"));
+        get(cache, "/b.js");
+        assertEquals(2, requestsFor("/b.js"));
+    }
+
+    @Test
+    public void indexSurvivesARestart() throws Exception {
+        serve("/app.js", new Asset("v1", "\"1\"", "no-cache"));
+        WebAssetCache first = newCache(1024 * 1024);
+        get(first, "/app.js");
+
+        WebAssetCache second = newCache(1024 * 1024);
+        assertEquals(1, second.entryCount());
+        get(second, "/app.js");
+        // no-cache was persisted with the entry, so the reload still revalidates
+        assertTrue(requests.contains("/app.js \"1\""));
+    }
+}
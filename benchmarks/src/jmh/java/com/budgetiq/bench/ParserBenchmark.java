@@ -0,0 +1,79 @@
+package com.budgetiq.bench;
+
+import com.budgetiq.core.Transaction;
+import com.budgetiq.core.TransactionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification and parsing, per corpus kind. Each invocation handles the next sample,
+ * cycling through SAMPLES payloads so branch prediction doesn't learn a single message.
+ *
+ * - isMessagingApp:    package filter, run for every posted notification
+ * - isBankTransaction: keyword / amount regexes, run for every accepted notification
+ * - parse:             full extraction, run for every accepted transaction
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    private static final int SAMPLES = 1024; // Power of two: cursor wraps with a mask
+
+    @Param({"BANK_SMS", "UPI", "CHAT", "OTP"})
+    public Corpus.Kind kind;
+
+    private String[] packages;
+    private String[] titles;
+    private String[] bodies;
+    private long[] times;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        List<Corpus.Sample> samples = Corpus.generate(kind, SAMPLES, 42);
+        packages = new String[SAMPLES];
+        titles = new String[SAMPLES];
+        bodies = new String[SAMPLES];
+        times = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            Corpus.Sample s = samples.get(i);
+            packages[i] = s.packageName;
+            titles[i] = s.title;
+            bodies[i] = s.bigText != null && !s.bigText.isEmpty() ? s.bigText : s.text;
+            times[i] = s.postTime;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean isMessagingApp() {
+        return TransactionParser.isMessagingApp(packages[next()]);
+    }
+
+    @Benchmark
+    public boolean isBankTransaction() {
+        int i = next();
+        return TransactionParser.isBankTransaction(titles[i], bodies[i]);
+    }
+
+    @Benchmark
+    public Transaction parse() {
+        int i = next();
+        return TransactionParser.parse(bodies[i], titles[i], times[i]);
+    }
+}
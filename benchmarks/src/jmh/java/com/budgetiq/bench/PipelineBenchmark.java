@@ -0,0 +1,53 @@
+package com.budgetiq.bench;
+
+import com.budgetiq.core.JsonTransactionRepository;
+import com.budgetiq.core.MapKeyValueStore;
+import com.budgetiq.core.Transaction;
+import com.budgetiq.core.TransactionPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One notification through TransactionPipeline (what onNotificationPosted costs), over the
+ * mixed corpus and the app's 100-entry store. Each pass over the corpus shifts post times,
+ * so transactions are new rather than duplicates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineBenchmark {
+
+    private static final int SAMPLES = 4096;
+    private static final long PASS_SHIFT = 365L * 24 * 60 * 60 * 1000;
+
+    private List<Corpus.Sample> samples;
+    private TransactionPipeline pipeline;
+    private int cursor;
+    private long shift;
+
+    @Setup
+    public void setUp() {
+        samples = Corpus.mixed(SAMPLES, 11);
+        pipeline = new TransactionPipeline(
+                new JsonTransactionRepository(new MapKeyValueStore(), "pending_transactions", 100));
+    }
+
+    @Benchmark
+    public Transaction process() {
+        Corpus.Sample s = samples.get(cursor);
+        if (++cursor == SAMPLES) {
+            cursor = 0;
+            shift += PASS_SHIFT;
+        }
+        return pipeline.process(s.packageName, s.title, s.text, s.bigText, s.postTime + shift);
+    }
+}
@@ -0,0 +1,120 @@
+package com.budgetiq.bench;
+
+import com.budgetiq.core.ColumnarTransactionEncoder;
+import com.budgetiq.core.JsonTransactionRepository;
+import com.budgetiq.core.MapKeyValueStore;
+import com.budgetiq.core.Transaction;
+import com.budgetiq.core.TransactionJson;
+import com.budgetiq.core.TransactionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The store and the bridge queries on a full store (the app keeps 100 transactions;
+ * larger capacities show how each operation scales).
+ *
+ * - add:          new transaction: dedup check, evict the oldest, rewrite the stored array
+ * - addDuplicate: repost of a stored transaction, rejected by the dedup index
+ * - recentJson:   BudgetIQSms.getRecentTransactions - query + JSON for the bridge
+ * - unprocessedJson: BudgetIQSms.getUnprocessedTransactions with half already processed
+ * - columnar:     BudgetIQColumnar payload for the same query
+ * - markProcessed: ten timestamps, as the web app acknowledges a batch (after the first
+ *                 call they are already processed, so this is the lookup, not the write)
+ * - coldLoad:     parse the stored array after the cache was dropped (first access, trim)
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreBenchmark {
+
+    private static final String KEY = "pending_transactions";
+
+    @Param({"100", "1000"})
+    public int capacity;
+
+    private MapKeyValueStore storage;
+    private JsonTransactionRepository repository;
+    private List<Transaction> templates;
+    private long nextTimestamp;
+    private int cursor;
+    private long[] batch;
+    private Transaction duplicate;
+
+    @Setup
+    public void setUp() {
+        templates = new ArrayList<>();
+        for (Corpus.Sample s : Corpus.generate(Corpus.Kind.BANK_SMS, 1024, 7)) {
+            Transaction txn = TransactionParser.parse(s.bigText, s.title, s.postTime);
+            if (txn != null) templates.add(txn);
+        }
+        storage = new MapKeyValueStore();
+        repository = new JsonTransactionRepository(storage, KEY, capacity);
+        nextTimestamp = Corpus.START_TIME;
+        for (int i = 0; i < capacity; i++) repository.add(fresh());
+
+        // Every other one processed, so the unprocessed query filters
+        List<Transaction> all = repository.getSince(0, false);
+        long[] processed = new long[all.size() / 2];
+        for (int i = 0; i < processed.length; i++) processed[i] = all.get(i * 2).getTimestamp();
+        repository.markProcessed(processed);
+
+        batch = new long[10];
+        for (int i = 0; i < batch.length; i++) batch[i] = all.get(all.size() - 1 - i).getTimestamp();
+        duplicate = all.get(all.size() / 2).copy();
+    }
+
+    /** A parsed template re-stamped with a new post time, so it isn't a duplicate. */
+    private Transaction fresh() {
+        Transaction t = templates.get(cursor++ % templates.size());
+        nextTimestamp += 60_000;
+        return new Transaction(t.getAmount(), t.getType(), t.getAccount(), t.getMethod(), t.getMerchant(),
+                t.getBalance(), t.getDate(), nextTimestamp, t.getSender(), t.getBody());
+    }
+
+    @Benchmark
+    public boolean add() {
+        return repository.add(fresh());
+    }
+
+    @Benchmark
+    public boolean addDuplicate() {
+        return repository.add(duplicate);
+    }
+
+    @Benchmark
+    public String recentJson() {
+        return TransactionJson.toJson(repository.getSince(0, false));
+    }
+
+    @Benchmark
+    public String unprocessedJson() {
+        return TransactionJson.toJson(repository.getSince(0, true));
+    }
+
+    @Benchmark
+    public byte[] columnar() {
+        return ColumnarTransactionEncoder.encode(repository.getSince(0, false));
+    }
+
+    @Benchmark
+    public void markProcessed() {
+        repository.markProcessed(batch);
+    }
+
+    @Benchmark
+    public int coldLoad() {
+        repository.trimMemory();
+        return repository.size();
+    }
+}
@@ -0,0 +1,290 @@
+package com.budgetiq.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic notification payloads shaped like what TransactionNotificationListener sees
+ * on Indian phones. Deterministic for a given seed, so runs are comparable.
+ *
+ * - BANK_SMS: bank alerts in SMS apps (HDFC / SBI / ICICI / Axis / Kotak wording)
+ * - UPI:      pushes from GPay, PhonePe, Paytm, BHIM, some in the title only
+ * - CHAT:     personal chats and promotions, including amounts and "paid" / "cashback"
+ *             words that look like transactions, plus apps the listener never accepts
+ * - OTP:      one-time passwords, many quoting a transaction amount
+ *
+ * mixed() interleaves them in roughly the proportions of a real notification shade.
+ */
+public final class Corpus {
+
+    public enum Kind { BANK_SMS, UPI, CHAT, OTP }
+
+    /** One posted notification, as the listener reads it from the extras. */
+    public static final class Sample {
+        public final Kind kind;
+        public final String packageName;
+        public final String title;
+        public final String text;
+        public final String bigText;   // null when the app doesn't set it
+        public final long postTime;
+
+        Sample(Kind kind, String packageName, String title, String text, String bigText, long postTime) {
+            this.kind = kind;
+            this.packageName = packageName;
+            this.title = title;
+            this.text = text;
+            this.bigText = bigText;
+            this.postTime = postTime;
+        }
+
+        /** The same payload posted at another time (a repost or a later identical alert). */
+        public Sample at(long time) {
+            return new Sample(kind, packageName, title, text, bigText, time);
+        }
+    }
+
+    public static final long START_TIME = 1704067200000L; // 2024-01-01 00:00 UTC
+
+    private static final String[] SMS_APPS = {
+            "com.google.android.apps.messaging", "com.samsung.android.messaging", "com.android.mms",
+            "com.miui.mms", "com.oneplus.mms",
+    };
+    private static final String[] BANK_SENDERS = {
+            "VM-HDFCBK", "AD-SBIINB", "JD-ICICIB", "AX-AXISBK", "BZ-KOTAKB", "VK-BOBIN", "JM-PNBSMS",
+    };
+    private static final String[] MERCHANTS = {
+            "SWIGGY", "ZOMATO", "AMAZON PAY", "FLIPKART", "BIGBASKET", "UBER INDIA", "OLA CABS",
+            "RELIANCE FRESH", "DMART", "BESCOM", "AIRTEL", "JIO PREPAID", "IRCTC", "BOOKMYSHOW",
+            "STARBUCKS", "DECATHLON", "APOLLO PHARMACY", "INDIAN OIL", "MYNTRA", "BLINKIT",
+    };
+    private static final String[] PEOPLE = {
+            "Rahul Sharma", "Priya", "Amit Kumar", "Sneha Iyer", "Vikram", "Mom", "Anjali Gupta",
+            "Rohan", "Karthik S", "Deepa",
+    };
+    private static final String[] BANKS = {"HDFC Bank", "SBI", "ICICI Bank", "Axis Bank", "Kotak"};
+    private static final String[] CHAT_APPS = {
+            "com.whatsapp", "com.google.android.apps.messaging", "org.telegram.messenger",
+            "com.instagram.android", "com.google.android.gm", "com.slack",
+    };
+    private static final String[] CHAT_LINES = {
+            "hey are you coming tonight?",
+            "Sent you the photos from the trip",
+            "lunch at 1?",
+            "I paid for the movie tickets, you owe me 300",
+            "Rs 450 for the cab, split?",
+            "Can you send the report by EOD",
+            "Happy birthday!! 🎉",
+            "Reached home",
+            "Meeting moved to 4pm",
+            "ok",
+            "Did you get the parcel?",
+            "Mom: call me when free",
+    };
+    private static final String[] PROMOS = {
+            "Get flat Rs.200 cashback on your first order above Rs 499 at {m}! Use code SAVE200. T&C",
+            "Your {m} order of Rs. {a} has been shipped and will be delivered tomorrow",
+            "Pay your electricity bill of INR {a} before the due date to avoid late fee",
+            "Congrats! You have won a scratch card. Get up to Rs 1000 cashback on {m}",
+    };
+
+    private Corpus() {}
+
+    public static List<Sample> generate(Kind kind, int count, long seed) {
+        Random r = new Random(seed);
+        List<Sample> samples = new ArrayList<>(count);
+        long time = START_TIME;
+        for (int i = 0; i < count; i++) {
+            time += 1000 + r.nextInt(15 * 60 * 1000);
+            samples.add(sample(kind, r, time));
+        }
+        return samples;
+    }
+
+    /**
+     * A realistic mix: about 55% chat / promotions, 20% bank SMS, 15% UPI pushes, 10% OTPs.
+     */
+    public static List<Sample> mixed(int count, long seed) {
+        Random r = new Random(seed);
+        List<Sample> samples = new ArrayList<>(count);
+        long time = START_TIME;
+        for (int i = 0; i < count; i++) {
+            time += 1000 + r.nextInt(5 * 60 * 1000);
+            int roll = r.nextInt(100);
+            Kind kind = roll < 55 ? Kind.CHAT : roll < 75 ? Kind.BANK_SMS : roll < 90 ? Kind.UPI : Kind.OTP;
+            samples.add(sample(kind, r, time));
+        }
+        return samples;
+    }
+
+    public static Sample sample(Kind kind, Random r, long time) {
+        switch (kind) {
+            case BANK_SMS: return bankSms(r, time);
+            case UPI: return upi(r, time);
+            case OTP: return otp(r, time);
+            default: return chat(r, time);
+        }
+    }
+
+    // ==================== TEMPLATES ====================
+
+    private static Sample bankSms(Random r, long time) {
+        String acct = digits(r, 4);
+        String amount = amount(r);
+        String merchant = pick(r, MERCHANTS);
+        String date = date(r);
+        String body;
+        switch (r.nextInt(7)) {
+            case 0:
+                body = "Rs." + amount + " debited from A/c XX" + acct + " on " + date + " to VPA "
+                        + merchant.toLowerCase().replace(' ', '.') + "@okaxis (UPI Ref No " + digits(r, 12)
+                        + "). Not you? Call 18002586161 to report";
+                break;
+            case 1:
+                body = "Dear Customer, INR " + amount + " debited from your A/c no. XX" + acct + " on " + date
+                        + " for UPI txn to " + merchant + ". Avl Bal: INR " + balance(r) + " -SBI";
+                break;
+            case 2:
+                body = "ICICI Bank Acct XX" + acct + " debited for Rs " + amount + " on " + date + "; "
+                        + merchant + " credited. UPI:" + digits(r, 12) + ". Call 18002662 for dispute.";
+                break;
+            case 3:
+                body = "INR " + amount + " spent on ICICI Bank Card XX" + acct + " on " + date + " at "
+                        + merchant + ". Avl Lmt: INR " + balance(r) + ". To dispute, call 18001080.";
+                break;
+            case 4:
+                body = "Your a/c no. XXXXXXXX" + acct + " is credited by Rs." + amount + " on " + date
+                        + " by a/c linked to mobile 9XXXXXX" + digits(r, 3) + " (IMPS Ref no " + digits(r, 12) + ").";
+                break;
+            case 5:
+                body = "Salary of INR " + amount + " credited to A/c XX" + acct + " on " + date
+                        + ". Avl Bal INR " + balance(r);
+                break;
+            default:
+                body = "Rs " + amount + " has been refunded to your HDFC Bank Credit Card ending " + acct
+                        + " from " + merchant;
+        }
+        // Messaging apps put the full SMS in bigText and a truncated copy in text
+        String text = body.length() > 60 ? body.substring(0, 60) + "…" : body;
+        return new Sample(Kind.BANK_SMS, pick(r, SMS_APPS), pick(r, BANK_SENDERS), text, body, time);
+    }
+
+    private static Sample upi(Random r, long time) {
+        String amount = amount(r);
+        String acct = digits(r, 4);
+        switch (r.nextInt(5)) {
+            case 0:
+                return new Sample(Kind.UPI, "com.phonepe.app", "₹" + amount + " paid to " + title(pick(r, MERCHANTS)),
+                        "Paid from " + pick(r, BANKS) + " account XX" + acct, null, time);
+            case 1:
+                return new Sample(Kind.UPI, "com.google.android.apps.nbu.paisa.user",
+                        pick(r, PEOPLE) + " paid you ₹" + amount,
+                        "Received in " + pick(r, BANKS) + " A/c ••" + acct, null, time);
+            case 2:
+                return new Sample(Kind.UPI, "net.one97.paytm", "Payment Successful",
+                        "Rs." + amount + " paid to " + title(pick(r, MERCHANTS)) + " from Paytm UPI", null, time);
+            case 3:
+                return new Sample(Kind.UPI, "com.phonepe.app", "Money received",
+                        "₹" + amount + " received from " + pick(r, PEOPLE) + " in your " + pick(r, BANKS)
+                                + " account", null, time);
+            default:
+                return new Sample(Kind.UPI, "in.org.npci.upiapp", "Transaction successful",
+                        "You have sent Rs " + amount + " to " + pick(r, PEOPLE) + ". UPI Ref " + digits(r, 12),
+                        null, time);
+        }
+    }
+
+    private static Sample chat(Random r, long time) {
+        String app = pick(r, CHAT_APPS);
+        if (r.nextInt(4) == 0) {
+            String promo = pick(r, PROMOS).replace("{m}", title(pick(r, MERCHANTS))).replace("{a}", amount(r));
+            return new Sample(Kind.CHAT, pick(r, SMS_APPS), "VM-" + pick(r, MERCHANTS).substring(0, 4).trim(),
+                    promo, null, time);
+        }
+        String title = pick(r, PEOPLE);
+        int lines = 1 + r.nextInt(3);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) text.append('\n');
+            text.append(pick(r, CHAT_LINES));
+        }
+        return new Sample(Kind.CHAT, app, title, text.toString(), lines > 1 ? text.toString() : null, time);
+    }
+
+    private static Sample otp(Random r, long time) {
+        String otp = digits(r, 6);
+        String body;
+        switch (r.nextInt(4)) {
+            case 0:
+                body = otp + " is your OTP for transaction of INR " + amount(r) + " at " + pick(r, MERCHANTS)
+                        + " on your HDFC Bank card XX" + digits(r, 4) + ". Valid for 5 mins. Do not share OTP with anyone.";
+                break;
+            case 1:
+                body = "OTP for login to SBI YONO is " + otp + ". Do not share it with anyone. -SBI";
+                break;
+            case 2:
+                body = "Use " + otp + " as OTP to verify your Amazon account. Do not share.";
+                break;
+            default:
+                body = otp + " is the OTP for your UPI PIN reset on A/c XX" + digits(r, 4) + ". Valid 10 min -Axis Bank";
+        }
+        return new Sample(Kind.OTP, pick(r, SMS_APPS), pick(r, BANK_SENDERS), body, body, time);
+    }
+
+    // ==================== HELPERS ====================
+
+    private static String amount(Random r) {
+        int roll = r.nextInt(10);
+        int rupees = roll < 6 ? 10 + r.nextInt(990) : roll < 9 ? 1000 + r.nextInt(9000) : 10000 + r.nextInt(190000);
+        String whole = grouped(rupees);
+        return r.nextBoolean() ? whole + "." + twoDigits(r.nextInt(100)) : whole;
+    }
+
+    private static String balance(Random r) {
+        return grouped(r.nextInt(500000)) + "." + twoDigits(r.nextInt(100));
+    }
+
+    /** Indian digit grouping, as banks write amounts: 1,25,000. */
+    private static String grouped(int n) {
+        if (n < 1000) return String.valueOf(n);
+        String rest = String.valueOf(n / 1000);
+        StringBuilder sb = new StringBuilder();
+        int head = rest.length() % 2;
+        if (head > 0) sb.append(rest, 0, head);
+        for (int i = head; i < rest.length(); i += 2) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(rest, i, i + 2);
+        }
+        String last3 = String.valueOf(1000 + n % 1000).substring(1);
+        return sb.append(',').append(last3).toString();
+    }
+
+    private static String twoDigits(int n) {
+        return n < 10 ? "0" + n : String.valueOf(n);
+    }
+
+    private static String date(Random r) {
+        String[] months = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+        return twoDigits(1 + r.nextInt(28)) + "-" + months[r.nextInt(12)] + "-24";
+    }
+
+    private static String digits(Random r, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append((char) ('0' + r.nextInt(10)));
+        return sb.toString();
+    }
+
+    private static String title(String upper) {
+        StringBuilder sb = new StringBuilder(upper.length());
+        boolean start = true;
+        for (char c : upper.toCharArray()) {
+            sb.append(start ? c : Character.toLowerCase(c));
+            start = c == ' ';
+        }
+        return sb.toString();
+    }
+
+    private static String pick(Random r, String[] values) {
+        return values[r.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,403 @@
+package com.budgetiq.bench;
+
+import com.budgetiq.core.Histogram;
+import com.budgetiq.core.JsonTransactionRepository;
+import com.budgetiq.core.MapKeyValueStore;
+import com.budgetiq.core.MetricsRegistry;
+import com.budgetiq.core.Transaction;
+import com.budgetiq.core.TransactionPipeline;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Replays a large notification stream through the full TransactionPipeline (classify,
+ * parse, dedup, store) as fast as one thread can go, the way onNotificationPosted would
+ * see it, and reports:
+ *
+ * - sustained throughput (overall and the slowest reporting window)
+ * - per-notification latency p50 / p90 / p99 / p99.9 / max, overall and for the
+ *   notifications that ended up stored, in microseconds from the core Histogram the
+ *   app's metrics use (percentiles within 25%)
+ * - peak heap (sum of heap pool peaks), GC count and time
+ * - final store size: transactions kept and stored JSON length
+ *
+ * The stream is generated on the fly (Corpus.mixed proportions, plus reposts of recent
+ * notifications at --dup-rate) or read from a TSV file written with --dump. With a large
+ * --capacity the store's per-add cost (full array rewrite) dominates and shows in the
+ * throughput windows as the store fills.
+ *
+ *   ./gradlew :benchmarks:replay -PreplayArgs="--events 1000000 --capacity 100"
+ *   ./gradlew :benchmarks:replay -PreplayArgs="--events 200000 --capacity 20000 --json build/replay.json"
+ *
+ * Options:
+ *   --events N        notifications to generate (default 1000000)
+ *   --capacity N      store capacity (default 100, as in the app)
+ *   --dup-rate F      fraction of notifications that are reposts (default 0.05)
+ *   --seed N          generator seed (default 1)
+ *   --input FILE      replay a TSV stream instead of generating one
+ *   --dump FILE       write the generated stream as TSV and exit
+ *   --max-seconds N   stop early after N seconds (default: no limit)
+ *   --report-every N  progress window in notifications (default 100000)
+ *   --json FILE       also write the summary as JSON
+ */
+public final class ReplayHarness {
+
+    private static final String KEY = "pending_transactions";
+
+    private long events = 1_000_000;
+    private int capacity = 100;
+    private double dupRate = 0.05;
+    private long seed = 1;
+    private String input;
+    private String dump;
+    private long maxSeconds = 0;
+    private long reportEvery = 100_000;
+    private String json;
+
+    public static void main(String[] args) throws Exception {
+        ReplayHarness harness = new ReplayHarness();
+        harness.parseArgs(args);
+        if (harness.dump != null) {
+            harness.writeDump();
+        } else {
+            harness.run();
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) throw new IllegalArgumentException("Missing value for " + arg);
+            switch (arg) {
+                case "--events": events = Long.parseLong(value); break;
+                case "--capacity": capacity = Integer.parseInt(value); break;
+                case "--dup-rate": dupRate = Double.parseDouble(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--input": input = value; break;
+                case "--dump": dump = value; break;
+                case "--max-seconds": maxSeconds = Long.parseLong(value); break;
+                case "--report-every": reportEvery = Long.parseLong(value); break;
+                case "--json": json = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            i++;
+        }
+    }
+
+    // ==================== REPLAY ====================
+
+    private void run() throws IOException {
+        MapKeyValueStore storage = new MapKeyValueStore();
+        JsonTransactionRepository repository = new JsonTransactionRepository(storage, KEY, capacity);
+        // The same histograms the app reports through MetricsRegistry
+        MetricsRegistry metrics = new MetricsRegistry();
+        TransactionPipeline pipeline = new TransactionPipeline(repository, metrics);
+
+        Histogram all = metrics.histogram("replay.all");
+        Histogram stored = metrics.histogram("replay.stored");
+        long storedCount = 0;
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+
+        System.out.printf(Locale.ROOT, "Replaying %s through the pipeline, store capacity %d%n",
+                input != null ? input : events + " generated notifications", capacity);
+
+        long start = System.nanoTime();
+        long deadline = maxSeconds > 0 ? start + maxSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        long windowStart = start;
+        long windowEvents = 0;
+        double slowestWindow = Double.MAX_VALUE;
+        long processed = 0;
+        boolean stoppedEarly = false;
+
+        Iterator<Corpus.Sample> stream = input != null ? readStream(input) : generate();
+        while (stream.hasNext()) {
+            Corpus.Sample s = stream.next();
+            long t0 = System.nanoTime();
+            Transaction txn = pipeline.process(s.packageName, s.title, s.text, s.bigText, s.postTime);
+            long t1 = System.nanoTime();
+            long latency = t1 - t0;
+            all.record(latency);
+            if (txn != null) {
+                stored.record(latency);
+                storedCount++;
+            }
+            processed++;
+
+            if (++windowEvents == reportEvery) {
+                double rate = windowEvents / ((t1 - windowStart) / 1e9);
+                slowestWindow = Math.min(slowestWindow, rate);
+                System.out.printf(Locale.ROOT, "  %,12d notifications  %,10.0f /s  store %,d  heap %s%n",
+                        processed, rate, repository.size(), mb(usedHeap()));
+                windowStart = t1;
+                windowEvents = 0;
+            }
+            if (t1 > deadline) {
+                stoppedEarly = true;
+                break;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Summary summary = new Summary();
+        summary.notifications = processed;
+        summary.stored = storedCount;
+        summary.seconds = seconds;
+        summary.throughput = processed / seconds;
+        summary.slowestWindow = slowestWindow == Double.MAX_VALUE ? summary.throughput : slowestWindow;
+        summary.all = all.snapshot();
+        summary.storedLatency = stored.snapshot();
+        summary.peakHeap = peakHeap();
+        summary.gcCount = gcCount() - gcCountBefore;
+        summary.gcMillis = gcTime() - gcTimeBefore;
+        summary.storeSize = repository.size();
+        summary.storeChars = storage.sizeOf(KEY);
+        summary.stoppedEarly = stoppedEarly;
+
+        summary.print();
+        if (json != null) {
+            Files.write(Paths.get(json), summary.toJson().getBytes(StandardCharsets.UTF_8));
+            System.out.println("Summary written to " + json);
+        }
+    }
+
+    /**
+     * Corpus.mixed proportions, generated lazily so the stream itself doesn't occupy the heap.
+     * A repost repeats one of the last RECENT notifications with its original post time.
+     */
+    private Iterator<Corpus.Sample> generate() {
+        Random r = new Random(seed);
+        Corpus.Sample[] recent = new Corpus.Sample[64];
+        return new Iterator<Corpus.Sample>() {
+            long emitted = 0;
+            long time = Corpus.START_TIME;
+
+            @Override
+            public boolean hasNext() {
+                return emitted < events;
+            }
+
+            @Override
+            public Corpus.Sample next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Corpus.Sample previous = recent[r.nextInt(recent.length)];
+                Corpus.Sample s;
+                if (previous != null && r.nextDouble() < dupRate) {
+                    s = previous;
+                } else {
+                    time += 1000 + r.nextInt(5 * 60 * 1000);
+                    int roll = r.nextInt(100);
+                    Corpus.Kind kind = roll < 55 ? Corpus.Kind.CHAT : roll < 75 ? Corpus.Kind.BANK_SMS
+                            : roll < 90 ? Corpus.Kind.UPI : Corpus.Kind.OTP;
+                    s = Corpus.sample(kind, r, time);
+                    recent[(int) (emitted % recent.length)] = s;
+                }
+                emitted++;
+                return s;
+            }
+        };
+    }
+
+    // ==================== TSV STREAM ====================
+    // One notification per line: kind, package, title, text, bigText ("" = none), postTime.
+    // Backslash, tab and newline are escaped.
+
+    private void writeDump() throws IOException {
+        long count = 0;
+        try (Writer out = Files.newBufferedWriter(Paths.get(dump), StandardCharsets.UTF_8)) {
+            Iterator<Corpus.Sample> stream = generate();
+            while (stream.hasNext()) {
+                Corpus.Sample s = stream.next();
+                out.write(s.kind.name());
+                out.write('\t');
+                out.write(escape(s.packageName));
+                out.write('\t');
+                out.write(escape(s.title));
+                out.write('\t');
+                out.write(escape(s.text));
+                out.write('\t');
+                out.write(escape(s.bigText != null ? s.bigText : ""));
+                out.write('\t');
+                out.write(Long.toString(s.postTime));
+                out.write('\n');
+                count++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "Wrote %,d notifications to %s%n", count, dump);
+    }
+
+    private static Iterator<Corpus.Sample> readStream(String file) throws IOException {
+        BufferedReader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+        return new Iterator<Corpus.Sample>() {
+            String line = nextLine();
+
+            private String nextLine() {
+                try {
+                    String l = in.readLine();
+                    if (l == null) in.close();
+                    return l;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return line != null;
+            }
+
+            @Override
+            public Corpus.Sample next() {
+                if (line == null) throw new NoSuchElementException();
+                String[] f = line.split("\t", -1);
+                line = nextLine();
+                if (f.length != 6) throw new IllegalArgumentException("Bad line: " + f.length + " fields");
+                String bigText = unescape(f[4]);
+                return new Corpus.Sample(Corpus.Kind.valueOf(f[0]), unescape(f[1]), unescape(f[2]),
+                        unescape(f[3]), bigText.isEmpty() ? null : bigText, Long.parseLong(f[5]));
+            }
+        };
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                sb.append(e == 't' ? '\t' : e == 'n' ? '\n' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ==================== JVM STATS ====================
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static String mb(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    // ==================== REPORT ====================
+
+    private static final class Summary {
+        long notifications;
+        long stored;
+        double seconds;
+        double throughput;
+        double slowestWindow;
+        Histogram.Snapshot all;
+        Histogram.Snapshot storedLatency;
+        long peakHeap;
+        long gcCount;
+        long gcMillis;
+        int storeSize;
+        int storeChars;
+        boolean stoppedEarly;
+
+        void print() {
+            System.out.println();
+            System.out.printf(Locale.ROOT, "Notifications   %,d in %.2f s%s%n", notifications, seconds,
+                    stoppedEarly ? " (stopped at --max-seconds)" : "");
+            System.out.printf(Locale.ROOT, "Stored          %,d new transactions%n", stored);
+            System.out.printf(Locale.ROOT, "Throughput      %,.0f /s sustained, slowest window %,.0f /s%n",
+                    throughput, slowestWindow);
+            printLatency("Latency (all)", all);
+            printLatency("Latency (stored)", storedLatency);
+            System.out.printf(Locale.ROOT, "Peak heap       %s%n", mb(peakHeap));
+            System.out.printf(Locale.ROOT, "GC              %,d collections, %,d ms%n", gcCount, gcMillis);
+            System.out.printf(Locale.ROOT, "Store           %,d transactions, %,d chars of JSON%n",
+                    storeSize, storeChars);
+        }
+
+        private static void printLatency(String label, Histogram.Snapshot h) {
+            System.out.printf(Locale.ROOT,
+                    "%-15s mean %dus  p50 %dus  p90 %dus  p99 %dus  p99.9 %dus  max %dus%n", label,
+                    h.meanMicros, h.percentileMicros(50), h.percentileMicros(90),
+                    h.percentileMicros(99), h.percentileMicros(99.9), h.maxMicros);
+        }
+
+        String toJson() {
+            return "{\n"
+                    + "  \"notifications\": " + notifications + ",\n"
+                    + "  \"stored\": " + stored + ",\n"
+                    + "  \"seconds\": " + fmt(seconds) + ",\n"
+                    + "  \"throughputPerSec\": " + fmt(throughput) + ",\n"
+                    + "  \"slowestWindowPerSec\": " + fmt(slowestWindow) + ",\n"
+                    + "  \"latencyUs\": " + latencyJson(all) + ",\n"
+                    + "  \"storedLatencyUs\": " + latencyJson(storedLatency) + ",\n"
+                    + "  \"peakHeapBytes\": " + peakHeap + ",\n"
+                    + "  \"gcCount\": " + gcCount + ",\n"
+                    + "  \"gcMillis\": " + gcMillis + ",\n"
+                    + "  \"storeSize\": " + storeSize + ",\n"
+                    + "  \"storeChars\": " + storeChars + ",\n"
+                    + "  \"stoppedEarly\": " + stoppedEarly + "\n"
+                    + "}\n";
+        }
+
+        private static String latencyJson(Histogram.Snapshot h) {
+            return "{\"count\": " + h.count + ", \"mean\": " + h.meanMicros
+                    + ", \"p50\": " + h.percentileMicros(50) + ", \"p90\": " + h.percentileMicros(90)
+                    + ", \"p99\": " + h.percentileMicros(99) + ", \"p999\": " + h.percentileMicros(99.9)
+                    + ", \"max\": " + h.maxMicros + "}";
+        }
+
+        private static String fmt(double d) {
+            return String.format(Locale.ROOT, "%.1f", d);
+        }
+    }
+}
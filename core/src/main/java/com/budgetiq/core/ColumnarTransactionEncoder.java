@@ -0,0 +1,116 @@
+package com.budgetiq.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar binary encoding of transaction lists for bulk transfer to the page as an ArrayBuffer.
+ * Avoids building a JSON string natively, copying it as UTF-16 across the bridge and
+ * JSON.parse in the page. Every column can be read with a zero-copy typed-array view.
+ *
+ * Layout (little-endian, n = count):
+ *   0   u8[4]      magic "BIQC"
+ *   4   u16        version (1)
+ *   6   u16        reserved
+ *   8   u32        n
+ *   12  u32        reserved
+ *   16  f64[n]     timestamps (epoch ms, integral)
+ *   ..  f64[n]     amounts in paise (integral)
+ *   ..  i32[n]     merchant ids (index into merchant dictionary, -1 = none)
+ *   ..  i32[n]     account ids (index into account dictionary, -1 = none)
+ *   ..  u8[n]      flags: bit0 = credit, bit1 = processed   (padded to 8 bytes)
+ *   ..  dictionary merchants: u32 count, then per entry u16 byteLength + UTF-8 bytes
+ *   ..  dictionary accounts:  same format
+ *
+ * JS:
+ *   const n = new DataView(buf).getUint32(8, true);
+ *   const ts = new Float64Array(buf, 16, n), paise = new Float64Array(buf, 16 + 8 * n, n);
+ *   const merchantIds = new Int32Array(buf, 16 + 16 * n, n), accountIds = new Int32Array(buf, 16 + 20 * n, n);
+ *   const flags = new Uint8Array(buf, 16 + 24 * n, n);
+ */
+public final class ColumnarTransactionEncoder {
+
+    public static final int VERSION = 1;
+    public static final int FLAG_CREDIT = 1;
+    public static final int FLAG_PROCESSED = 1 << 1;
+    private static final int HEADER_BYTES = 16;
+
+    private ColumnarTransactionEncoder() {}
+
+    public static byte[] encode(List<Transaction> txns) {
+        int n = txns.size();
+        double[] timestamps = new double[n];
+        double[] paise = new double[n];
+        int[] merchantIds = new int[n];
+        int[] accountIds = new int[n];
+        byte[] flags = new byte[n];
+
+        Map<String, Integer> merchantIndex = new HashMap<>();
+        List<byte[]> merchants = new ArrayList<>();
+        Map<String, Integer> accountIndex = new HashMap<>();
+        List<byte[]> accounts = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            Transaction txn = txns.get(i);
+            timestamps[i] = txn.getTimestamp();
+            paise[i] = Math.round(txn.getAmount() * 100);
+            merchantIds[i] = intern(txn.getMerchant(), merchantIndex, merchants);
+            accountIds[i] = intern(txn.getAccount(), accountIndex, accounts);
+            int f = 0;
+            if (txn.isCredit()) f |= FLAG_CREDIT;
+            if (txn.isProcessed()) f |= FLAG_PROCESSED;
+            flags[i] = (byte) f;
+        }
+
+        int flagsPadded = (n + 7) & ~7;
+        int size = HEADER_BYTES + n * 8 * 2 + n * 4 * 2 + flagsPadded
+                + dictionarySize(merchants) + dictionarySize(accounts);
+
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte) 'B').put((byte) 'I').put((byte) 'Q').put((byte) 'C');
+        buf.putShort((short) VERSION);
+        buf.putShort((short) 0);
+        buf.putInt(n);
+        buf.putInt(0);
+        for (double t : timestamps) buf.putDouble(t);
+        for (double p : paise) buf.putDouble(p);
+        for (int id : merchantIds) buf.putInt(id);
+        for (int id : accountIds) buf.putInt(id);
+        buf.put(flags);
+        buf.position(buf.position() + (flagsPadded - n));
+        putDictionary(buf, merchants);
+        putDictionary(buf, accounts);
+        return buf.array();
+    }
+
+    private static int intern(String value, Map<String, Integer> index, List<byte[]> entries) {
+        if (value == null || value.isEmpty()) return -1;
+        Integer id = index.get(value);
+        if (id != null) return id;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) return -1;
+        id = entries.size();
+        entries.add(bytes);
+        index.put(value, id);
+        return id;
+    }
+
+    private static int dictionarySize(List<byte[]> entries) {
+        int size = 4;
+        for (byte[] e : entries) size += 2 + e.length;
+        return size;
+    }
+
+    private static void putDictionary(ByteBuffer buf, List<byte[]> entries) {
+        buf.putInt(entries.size());
+        for (byte[] e : entries) {
+            buf.putShort((short) e.length);
+            buf.put(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.budgetiq.core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Identity of stored transactions for duplicate detection: the same notification is
+ * often posted more than once (updates, re-posts after reboot), with the same post time
+ * and amount. O(1) lookups instead of scanning the store on every add.
+ *
+ * Not thread-safe; owned by a repository that synchronizes access.
+ */
+public final class DedupIndex {
+
+    private static final class Key {
+        final long timestamp;
+        final long amountBits;
+
+        Key(long timestamp, double amount) {
+            this.timestamp = timestamp;
+            // +0.0 folds -0.0 into 0.0, so keys match exactly when the amounts are ==
+            this.amountBits = Double.doubleToLongBits(amount + 0.0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return timestamp == other.timestamp && amountBits == other.amountBits;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = timestamp * 31 + amountBits;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final Set<Key> keys;
+
+    public DedupIndex(int expectedSize) {
+        keys = new HashSet<>(Math.max(16, expectedSize * 4 / 3 + 1));
+    }
+
+    /**
+     * Add the key; returns false if it was already present (a duplicate).
+     */
+    public boolean add(long timestamp, double amount) {
+        return keys.add(new Key(timestamp, amount));
+    }
+
+    public boolean contains(long timestamp, double amount) {
+        return keys.contains(new Key(timestamp, amount));
+    }
+
+    public void remove(long timestamp, double amount) {
+        keys.remove(new Key(timestamp, amount));
+    }
+
+    public int size() {
+        return keys.size();
+    }
+}
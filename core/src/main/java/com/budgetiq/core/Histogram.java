@@ -0,0 +1,96 @@
+package com.budgetiq.core;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram safe to record from any thread without locking, used both by the
+ * on-device metrics and by the benchmarks' ReplayHarness. Buckets are in microseconds and
+ * log-linear: values under SUB_BUCKETS us get one bucket each, and every power of two
+ * above is split into SUB_BUCKETS equal buckets, so a percentile is off by at most 25%
+ * at any magnitude. Each bucket is a striped LongAdder.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = 128; // Last bucket collects everything over ~2 h
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets[index(nanos / 1000)].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /** Record the time since startNanos (a System.nanoTime() reading). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BITS + 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    /** Exclusive upper bound (us) of a bucket. */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index + 1;
+        if (index == BUCKETS - 1) return Long.MAX_VALUE; // Overflow bucket
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sumNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Point-in-time copy. Concurrent records may land between reads, so the fields can
+     * disagree by a few samples; fine for diagnostics.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long meanMicros;
+        public final long maxMicros;
+
+        Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.meanMicros = count == 0 ? 0 : sumNanos / count / 1000;
+            this.maxMicros = maxNanos / 1000;
+        }
+
+        /** Upper bound (us) of the bucket holding the given percentile (0-100), capped at max. */
+        public long percentileMicros(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), Math.max(maxMicros, 1));
+            }
+            return maxMicros;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.budgetiq.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TransactionRepository persisted as one JSON array under a single key, keeping the most
+ * recent `capacity` transactions (oldest are evicted).
+ *
+ * The parsed list and its DedupIndex are cached in memory, so adds and queries don't
+ * re-parse the stored array. Every change still rewrites the whole array, so write cost
+ * grows with capacity. trimMemory() drops the cache; it is rebuilt on next access.
+ *
+ * If the stored array can't be parsed, the raw value is copied to key + BACKUP_SUFFIX and
+ * the repository stops writing: it starts empty in memory, but never overwrites the
+ * stored history with that empty list. isCorrupt() reports this state.
+ */
+public class JsonTransactionRepository implements TransactionRepository {
+
+    public static final String BACKUP_SUFFIX = ".corrupt";
+
+    private final KeyValueStore storage;
+    private final String key;
+    private final int capacity;
+
+    // Guarded by this
+    private List<Transaction> cache;
+    private DedupIndex index;
+    private boolean corrupt;
+
+    public JsonTransactionRepository(KeyValueStore storage, String key, int capacity) {
+        this.storage = storage;
+        this.key = key;
+        this.capacity = capacity;
+    }
+
+    private List<Transaction> all() {
+        if (cache == null) {
+            List<Transaction> loaded;
+            String stored = storage.get(key);
+            try {
+                loaded = stored != null ? TransactionJson.parseArray(stored) : new ArrayList<>();
+                corrupt = false;
+            } catch (IllegalArgumentException e) {
+                // Keep the raw value where a later fix can recover it, and stop writing
+                if (!stored.equals(storage.get(key + BACKUP_SUFFIX))) {
+                    storage.put(key + BACKUP_SUFFIX, stored);
+                }
+                loaded = new ArrayList<>();
+                corrupt = true;
+            }
+            index = new DedupIndex(capacity);
+            for (Transaction txn : loaded) index.add(txn.getTimestamp(), txn.getAmount());
+            cache = loaded;
+        }
+        return cache;
+    }
+
+    private void persist() {
+        if (corrupt) return; // Never replace an unreadable history with what's in memory
+        storage.put(key, TransactionJson.toJson(cache));
+    }
+
+    @Override
+    public synchronized boolean add(Transaction txn) {
+        List<Transaction> list = all();
+        if (!index.add(txn.getTimestamp(), txn.getAmount())) {
+            return false; // Duplicate
+        }
+        list.add(txn);
+
+        // Keep only the most recent transactions
+        while (list.size() > capacity) {
+            Transaction evicted = list.remove(0);
+            index.remove(evicted.getTimestamp(), evicted.getAmount());
+        }
+        persist();
+        return true;
+    }
+
+    @Override
+    public synchronized List<Transaction> getSince(long sinceTimestamp, boolean unprocessedOnly) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction txn : all()) {
+            if (txn.getTimestamp() > sinceTimestamp && (!unprocessedOnly || !txn.isProcessed())) {
+                result.add(txn);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void markProcessed(long[] timestamps) {
+        long[] sorted = sortedCopy(timestamps);
+        boolean changed = false;
+        for (Transaction txn : all()) {
+            if (!txn.isProcessed() && Arrays.binarySearch(sorted, txn.getTimestamp()) >= 0) {
+                txn.setProcessed(true);
+                changed = true;
+            }
+        }
+        if (changed) persist();
+    }
+
+    @Override
+    public synchronized Transaction applyAction(long timestamp, String action, String category) {
+        for (Transaction txn : all()) {
+            if (txn.getTimestamp() != timestamp) continue;
+            Transaction before = txn.copy();
+            txn.setUserAction(action);
+            txn.setActionAt(System.currentTimeMillis());
+            if (category != null) txn.setCategory(category);
+            txn.setSyncPending(true);
+            persist();
+            return before;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<Transaction> getPendingSync() {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction txn : all()) {
+            if (txn.isSyncPending()) result.add(txn);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void ackSynced(long[] timestamps) {
+        long[] sorted = sortedCopy(timestamps);
+        boolean changed = false;
+        for (Transaction txn : all()) {
+            if (txn.isSyncPending() && Arrays.binarySearch(sorted, txn.getTimestamp()) >= 0) {
+                txn.setSyncPending(false);
+                changed = true;
+            }
+        }
+        if (changed) persist();
+    }
+
+    @Override
+    public synchronized int size() {
+        return all().size();
+    }
+
+    /**
+     * True if the stored array couldn't be parsed; changes are then kept in memory only.
+     */
+    public synchronized boolean isCorrupt() {
+        all();
+        return corrupt;
+    }
+
+    /**
+     * Drop the parsed in-memory copy; it's reloaded from storage on next access.
+     */
+    public synchronized void trimMemory() {
+        cache = null;
+        index = null;
+    }
+
+    private static long[] sortedCopy(long[] values) {
+        long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,13 @@
+package com.budgetiq.core;
+
+/**
+ * String storage behind a repository. On Android this is SharedPreferences
+ * (see TransactionStore); off-device MapKeyValueStore or a file.
+ */
+public interface KeyValueStore {
+
+    /** The stored value, or null if there is none. */
+    String get(String key);
+
+    void put(String key, String value);
+}
@@ -0,0 +1,27 @@
+package com.budgetiq.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory KeyValueStore for running the pipeline off-device.
+ */
+public final class MapKeyValueStore implements KeyValueStore {
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    @Override
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public void put(String key, String value) {
+        values.put(key, value);
+    }
+
+    /** Length in chars of the stored value (what a SharedPreferences write would carry). */
+    public int sizeOf(String key) {
+        String value = values.get(key);
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.budgetiq.core;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters (striped LongAdders) and latency histograms. Callers look a metric up
+ * once and keep the reference; recording is then lock-free. Metrics are listed in
+ * registration order, so a dump reads in pipeline order.
+ *
+ * Snapshots come out as JSON (for the diagnostics bridge) or as a dumpsys-style table.
+ */
+public final class MetricsRegistry {
+
+    private final Map<String, LongAdder> counters = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    /** The counter with this name, created on first use. */
+    public synchronized LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = new LongAdder();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /** The histogram with this name, created on first use. */
+    public synchronized Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    // ==================== SNAPSHOTS ====================
+
+    /**
+     * {"uptimeMs":n, "counters":{name:n}, "latency":{name:{count, meanUs, p50Us, p90Us, p99Us, maxUs}}}
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"uptimeMs\":").append(System.currentTimeMillis() - createdAt);
+        sb.append(",\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            TransactionJson.appendString(sb, e.getKey());
+            sb.append(':').append(e.getValue().sum());
+        }
+        sb.append("},\"latency\":{");
+        first = true;
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            Histogram.Snapshot s = e.getValue().snapshot();
+            TransactionJson.appendString(sb, e.getKey());
+            sb.append(":{\"count\":").append(s.count)
+                    .append(",\"meanUs\":").append(s.meanMicros)
+                    .append(",\"p50Us\":").append(s.percentileMicros(50))
+                    .append(",\"p90Us\":").append(s.percentileMicros(90))
+                    .append(",\"p99Us\":").append(s.percentileMicros(99))
+                    .append(",\"maxUs\":").append(s.maxMicros)
+                    .append('}');
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    /**
+     * Plain-text table for dumpsys / bug reports.
+     */
+    public synchronized void dump(PrintWriter pw, String prefix) {
+        long uptimeSec = (System.currentTimeMillis() - createdAt) / 1000;
+        pw.printf(Locale.ROOT, "%sUptime: %dh %02dm %02ds%n", prefix,
+                uptimeSec / 3600, uptimeSec / 60 % 60, uptimeSec % 60);
+        pw.println(prefix + "Counters:");
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            pw.printf(Locale.ROOT, "%s  %-24s %d%n", prefix, e.getKey(), e.getValue().sum());
+        }
+        pw.println(prefix + "Latency (us):");
+        pw.printf(Locale.ROOT, "%s  %-24s %8s %8s %8s %8s %8s %8s%n", prefix,
+                "", "count", "mean", "p50", "p90", "p99", "max");
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            Histogram.Snapshot s = e.getValue().snapshot();
+            pw.printf(Locale.ROOT, "%s  %-24s %8d %8d %8d %8d %8d %8d%n", prefix, e.getKey(),
+                    s.count, s.meanMicros, s.percentileMicros(50), s.percentileMicros(90),
+                    s.percentileMicros(99), s.maxMicros);
+        }
+    }
+}
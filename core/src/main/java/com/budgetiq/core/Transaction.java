@@ -0,0 +1,157 @@
+package com.budgetiq.core;
+
+/**
+ * A transaction detected in a bank / payment notification.
+ *
+ * The parsed fields are fixed at construction. The user-state fields (processed,
+ * category, userAction, actionAt, syncPending) change as the web app or a notification
+ * action handles the transaction.
+ *
+ * Serialized by TransactionJson with the same keys the web app has always received:
+ * amount, type, account, method, merchant, balance, date, timestamp, sender, body,
+ * processed, and - only when set - category, userAction, actionAt, syncPending.
+ */
+public final class Transaction {
+
+    public static final String TYPE_DEBIT = "debit";
+    public static final String TYPE_CREDIT = "credit";
+
+    private final double amount;
+    private final String type;
+    private final String account;
+    private final String method;
+    private final String merchant;
+    private final double balance;   // -1 when the message had none
+    private final String date;      // yyyy-MM-dd of timestamp
+    private final long timestamp;
+    private final String sender;
+    private final String body;
+
+    private boolean processed;
+    private String category = "";
+    private String userAction = "";
+    private long actionAt;
+    private boolean syncPending;
+
+    public Transaction(double amount, String type, String account, String method, String merchant,
+                       double balance, String date, long timestamp, String sender, String body) {
+        this.amount = amount;
+        this.type = nonNull(type);
+        this.account = nonNull(account);
+        this.method = nonNull(method);
+        this.merchant = nonNull(merchant);
+        this.balance = balance;
+        this.date = nonNull(date);
+        this.timestamp = timestamp;
+        this.sender = nonNull(sender);
+        this.body = nonNull(body);
+    }
+
+    public Transaction copy() {
+        Transaction t = new Transaction(amount, type, account, method, merchant, balance, date,
+                timestamp, sender, body);
+        t.processed = processed;
+        t.category = category;
+        t.userAction = userAction;
+        t.actionAt = actionAt;
+        t.syncPending = syncPending;
+        return t;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isDebit() {
+        return TYPE_DEBIT.equals(type);
+    }
+
+    public boolean isCredit() {
+        return TYPE_CREDIT.equals(type);
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getMerchant() {
+        return merchant;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    // ==================== USER STATE ====================
+
+    public boolean isProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(boolean processed) {
+        this.processed = processed;
+    }
+
+    /** Category chosen by the user, "" if none. */
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = nonNull(category);
+    }
+
+    /** "category", "personal", "ignore" or "" if no notification action was taken. */
+    public String getUserAction() {
+        return userAction;
+    }
+
+    public void setUserAction(String userAction) {
+        this.userAction = nonNull(userAction);
+    }
+
+    public long getActionAt() {
+        return actionAt;
+    }
+
+    public void setActionAt(long actionAt) {
+        this.actionAt = actionAt;
+    }
+
+    /** A notification action the web app hasn't picked up yet. */
+    public boolean isSyncPending() {
+        return syncPending;
+    }
+
+    public void setSyncPending(boolean syncPending) {
+        this.syncPending = syncPending;
+    }
+
+    private static String nonNull(String s) {
+        return s != null ? s : "";
+    }
+}
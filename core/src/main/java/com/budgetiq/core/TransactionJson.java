@@ -0,0 +1,375 @@
+package com.budgetiq.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON encoding of transactions, compatible with what org.json wrote before (the stored
+ * array and the bridge responses keep their shape):
+ *
+ *   [{"amount":1250,"type":"debit","account":"XX1234","method":"UPI","merchant":"Swiggy",
+ *     "balance":-1,"date":"2024-05-01","timestamp":1714550400000,"sender":"HDFCBK",
+ *     "body":"...","processed":false, "category":"Food","userAction":"category",
+ *     "actionAt":1714551000000,"syncPending":true}]
+ *
+ * The last four keys are written only when set. The reader accepts any JSON; unknown keys
+ * and nested values are skipped. Hand-written so the module has no dependencies.
+ */
+public final class TransactionJson {
+
+    private TransactionJson() {}
+
+    // ==================== WRITE ====================
+
+    public static String toJson(List<Transaction> txns) {
+        StringBuilder sb = new StringBuilder(txns.size() * 256 + 2);
+        sb.append('[');
+        for (int i = 0; i < txns.size(); i++) {
+            if (i > 0) sb.append(',');
+            append(sb, txns.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static String toJson(Transaction txn) {
+        StringBuilder sb = new StringBuilder(256);
+        append(sb, txn);
+        return sb.toString();
+    }
+
+    public static void append(StringBuilder sb, Transaction txn) {
+        sb.append("{\"amount\":");
+        appendNumber(sb, txn.getAmount());
+        sb.append(",\"type\":");
+        appendString(sb, txn.getType());
+        sb.append(",\"account\":");
+        appendString(sb, txn.getAccount());
+        sb.append(",\"method\":");
+        appendString(sb, txn.getMethod());
+        sb.append(",\"merchant\":");
+        appendString(sb, txn.getMerchant());
+        sb.append(",\"balance\":");
+        appendNumber(sb, txn.getBalance());
+        sb.append(",\"date\":");
+        appendString(sb, txn.getDate());
+        sb.append(",\"timestamp\":").append(txn.getTimestamp());
+        sb.append(",\"sender\":");
+        appendString(sb, txn.getSender());
+        sb.append(",\"body\":");
+        appendString(sb, txn.getBody());
+        sb.append(",\"processed\":").append(txn.isProcessed());
+        if (!txn.getCategory().isEmpty()) {
+            sb.append(",\"category\":");
+            appendString(sb, txn.getCategory());
+        }
+        if (!txn.getUserAction().isEmpty()) {
+            sb.append(",\"userAction\":");
+            appendString(sb, txn.getUserAction());
+        }
+        if (txn.getActionAt() != 0) sb.append(",\"actionAt\":").append(txn.getActionAt());
+        if (txn.isSyncPending()) sb.append(",\"syncPending\":true");
+        sb.append('}');
+    }
+
+    private static void appendNumber(StringBuilder sb, double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            sb.append('0');
+        } else if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+            sb.append((long) d); // 1250.0 -> 1250, as org.json did
+        } else {
+            sb.append(d);
+        }
+    }
+
+    static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    // ==================== READ ====================
+
+    /**
+     * Parse a JSON array of transaction objects. Non-object elements are skipped.
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static List<Transaction> parseArray(String json) {
+        Reader r = new Reader(json);
+        List<Transaction> result = new ArrayList<>();
+        r.skipWhitespace();
+        r.expect('[');
+        r.skipWhitespace();
+        if (r.peek() == ']') {
+            r.pos++;
+            return result;
+        }
+        while (true) {
+            r.skipWhitespace();
+            if (r.peek() == '{') {
+                Transaction txn = readTransaction(r);
+                if (txn != null) result.add(txn);
+            } else {
+                r.skipValue();
+            }
+            r.skipWhitespace();
+            char c = r.next();
+            if (c == ']') break;
+            if (c != ',') throw r.error("expected , or ]");
+        }
+        return result;
+    }
+
+    private static Transaction readTransaction(Reader r) {
+        double amount = 0;
+        String type = "";
+        String account = "";
+        String method = "";
+        String merchant = "";
+        double balance = -1;
+        String date = "";
+        long timestamp = 0;
+        boolean hasTimestamp = false;
+        String sender = "";
+        String body = "";
+        boolean processed = false;
+        String category = "";
+        String userAction = "";
+        long actionAt = 0;
+        boolean syncPending = false;
+
+        r.expect('{');
+        r.skipWhitespace();
+        if (r.peek() == '}') {
+            r.pos++;
+            return null;
+        }
+        while (true) {
+            r.skipWhitespace();
+            String name = r.readString();
+            r.skipWhitespace();
+            r.expect(':');
+            r.skipWhitespace();
+            switch (name) {
+                case "amount": amount = r.readNumber(); break;
+                case "type": type = r.readStringOrNull(); break;
+                case "account": account = r.readStringOrNull(); break;
+                case "method": method = r.readStringOrNull(); break;
+                case "merchant": merchant = r.readStringOrNull(); break;
+                case "balance": balance = r.readNumber(); break;
+                case "date": date = r.readStringOrNull(); break;
+                case "timestamp":
+                    timestamp = (long) r.readNumber();
+                    hasTimestamp = true;
+                    break;
+                case "sender": sender = r.readStringOrNull(); break;
+                case "body": body = r.readStringOrNull(); break;
+                case "processed": processed = r.readBoolean(); break;
+                case "category": category = r.readStringOrNull(); break;
+                case "userAction": userAction = r.readStringOrNull(); break;
+                case "actionAt": actionAt = (long) r.readNumber(); break;
+                case "syncPending": syncPending = r.readBoolean(); break;
+                default: r.skipValue();
+            }
+            r.skipWhitespace();
+            char c = r.next();
+            if (c == '}') break;
+            if (c != ',') throw r.error("expected , or }");
+        }
+        if (!hasTimestamp) return null;
+
+        Transaction txn = new Transaction(amount, type, account, method, merchant, balance, date,
+                timestamp, sender, body);
+        txn.setProcessed(processed);
+        txn.setCategory(category);
+        txn.setUserAction(userAction);
+        txn.setActionAt(actionAt);
+        txn.setSyncPending(syncPending);
+        return txn;
+    }
+
+    private static final class Reader {
+        final String s;
+        int pos;
+
+        Reader(String s) {
+            this.s = s;
+        }
+
+        char peek() {
+            if (pos >= s.length()) throw error("unexpected end");
+            return s.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char c) {
+            if (next() != c) throw error("expected " + c);
+        }
+
+        void skipWhitespace() {
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+                pos++;
+            }
+        }
+
+        String readString() {
+            expect('"');
+            int start = pos;
+            // Fast path: no escapes
+            while (pos < s.length()) {
+                char c = s.charAt(pos);
+                if (c == '"') return s.substring(start, pos++);
+                if (c == '\\') break;
+                pos++;
+            }
+            StringBuilder sb = new StringBuilder(s.substring(start, pos));
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw error("bad unicode escape");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("bad unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: sb.append(e); // \" \\ \/
+                }
+            }
+        }
+
+        String readStringOrNull() {
+            if (peek() == 'n') {
+                readLiteral("null");
+                return "";
+            }
+            return readString();
+        }
+
+        double readNumber() {
+            char c = peek();
+            if (c == '"') {
+                // org.json's optDouble accepted numeric strings too
+                try {
+                    return Double.parseDouble(readString());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            if (c == 'n') {
+                readLiteral("null");
+                return 0;
+            }
+            int start = pos;
+            while (pos < s.length()) {
+                c = s.charAt(pos);
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            try {
+                return Double.parseDouble(s.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("bad number");
+            }
+        }
+
+        boolean readBoolean() {
+            char c = peek();
+            if (c == 't') {
+                readLiteral("true");
+                return true;
+            }
+            if (c == 'f') {
+                readLiteral("false");
+                return false;
+            }
+            skipValue();
+            return false;
+        }
+
+        void readLiteral(String literal) {
+            if (!s.startsWith(literal, pos)) throw error("expected " + literal);
+            pos += literal.length();
+        }
+
+        void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                pos++;
+                skipWhitespace();
+                if (peek() == close) {
+                    pos++;
+                    return;
+                }
+                while (true) {
+                    skipWhitespace();
+                    if (c == '{') {
+                        readString();
+                        skipWhitespace();
+                        expect(':');
+                        skipWhitespace();
+                    }
+                    skipValue();
+                    skipWhitespace();
+                    char n = next();
+                    if (n == close) return;
+                    if (n != ',') throw error("expected , or " + close);
+                }
+            } else if (c == 't') {
+                readLiteral("true");
+            } else if (c == 'f') {
+                readLiteral("false");
+            } else if (c == 'n') {
+                readLiteral("null");
+            } else {
+                readNumber();
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.budgetiq.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies notifications and extracts transactions from bank SMS / payment app text.
+ *
+ * - isMessagingApp(): is the posting package an SMS, bank or payment app?
+ * - isBankTransaction(): does the title / body look like a transaction alert?
+ * - parse(): amount, type, account, method, merchant and balance, or null.
+ *
+ * Stateless and thread-safe.
+ */
+public final class TransactionParser {
+
+    // Bank SMS patterns
+    private static final Pattern AMOUNT_PATTERN = Pattern.compile(
+            "(?:INR|Rs\\.?|₹)\\s*([\\d,]+\\.?\\d*)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern DEBIT_PATTERN = Pattern.compile(
+            "(?:debited|debit|spent|paid|purchase|withdrawn|sent|payment|transferred)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern CREDIT_PATTERN = Pattern.compile(
+            "(?:credited|credit|received|refund|cashback|reversed|deposited)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern ACCOUNT_PATTERN = Pattern.compile(
+            "(?:a/c|acct|account|card)\\s*(?:no\\.?|#|ending)?\\s*[xX*]*\\s*(\\d{4})",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UPI_PATTERN = Pattern.compile(
+            "(?:UPI|IMPS|NEFT|RTGS|NACH)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern MERCHANT_PATTERN = Pattern.compile(
+            "(?:to|at|for|from|trf to|trf from|info:?)\\s+([A-Za-z][A-Za-z0-9 .&'-]{2,30})",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern BALANCE_PATTERN = Pattern.compile(
+            "(?:avl\\.?\\s*bal|available\\s*balance|bal(?:ance)?)[:\\s]*(?:INR|Rs\\.?|₹)?\\s*([\\d,]+\\.?\\d*)",
+            Pattern.CASE_INSENSITIVE);
+
+    // Messaging app packages (SMS apps)
+    private static final String[] SMS_PACKAGES = {
+            "com.google.android.apps.messaging",  // Google Messages
+            "com.samsung.android.messaging",       // Samsung Messages
+            "com.android.mms",                     // Default SMS
+            "com.sonyericsson.conversations",      // Sony Messages
+            "com.oneplus.mms",                     // OnePlus Messages
+            "com.xiaomi.mms",                      // Xiaomi Messages
+            "com.miui.mms",                        // MIUI Messages
+            "com.oppo.mms",                        // Oppo Messages
+            "com.vivo.mms",                        // Vivo Messages
+            "com.realme.mms",                      // Realme Messages
+            "com.asus.mms",                        // Asus Messages
+            "org.thoughtcrime.securesms",          // Signal
+    };
+
+    // Known Indian bank/fintech app packages (send transaction notifications directly)
+    private static final String[] BANK_APP_PACKAGES = {
+            "com.csam.icici.bank.imobile",         // ICICI iMobile
+            "com.snapwork.hdfc",                   // HDFC Mobile Banking
+            "com.sbi.lotusintouch",                // SBI YONO
+            "com.axis.mobile",                     // Axis Mobile
+            "com.msf.koenig.bank.kotak",           // Kotak Mobile Banking
+            "com.bob.bank.bobmworld",              // BOB World
+            "com.pnb.ebb",                         // PNB ONE
+            "com.canarabank.mobility",             // Canara ai1
+            "net.one97.paytm",                     // Paytm
+            "com.phonepe.app",                     // PhonePe
+            "com.google.android.apps.nbu.paisa.user", // Google Pay
+            "in.amazon.mShop.android.shopping",    // Amazon
+            "in.org.npci.upiapp",                  // BHIM
+            "com.whatsapp",                        // WhatsApp (payment alerts)
+            "com.bajajfinserv",                    // Bajaj Finserv
+            "com.lendingkart.finance",             // Lendingkart
+            "com.cred.android",                    // CRED
+            "com.freecharge.android",              // FreeCharge
+            "com.dreamplug.androidapp",            // CRED
+    };
+
+    // Known bank sender keywords in notification title
+    private static final Pattern BANK_SENDER = Pattern.compile(
+            "(?:SBI|HDFC|ICICI|AXIS|KOTAK|BOB|PNB|BOI|CANARA|UNION|IDBI|CITI|PAYTM|" +
+            "GPAY|PHONEPE|AMAZON|BAJAJ|AMEX|RBL|FEDERAL|INDUS|YES|IDFCF|HSBC|" +
+            "HDFCBK|ICICIB|SBIINB|AXISBK|KOTAKB|BOBIN)",
+            Pattern.CASE_INSENSITIVE);
+
+    private TransactionParser() {}
+
+    public static boolean isMessagingApp(String packageName) {
+        if (packageName == null) return false;
+        // Check SMS apps
+        for (String pkg : SMS_PACKAGES) {
+            if (pkg.equals(packageName)) return true;
+        }
+        // Check bank/fintech apps
+        for (String pkg : BANK_APP_PACKAGES) {
+            if (pkg.equals(packageName)) return true;
+        }
+        // Also accept any app with bank/finance/pay in package name
+        String lower = packageName.toLowerCase();
+        return lower.contains("bank") || lower.contains("finserv") || lower.contains("finance")
+                || lower.contains(".pay") || lower.contains("wallet") || lower.contains("upi");
+    }
+
+    public static boolean isBankTransaction(String title, String body) {
+        // Check if sender/title matches bank pattern
+        boolean isBankSender = BANK_SENDER.matcher(title).find();
+
+        // Check if body has transaction keywords + amount
+        boolean hasAmount = AMOUNT_PATTERN.matcher(body).find();
+        boolean hasTransaction = DEBIT_PATTERN.matcher(body).find() || CREDIT_PATTERN.matcher(body).find();
+        boolean hasAccount = ACCOUNT_PATTERN.matcher(body).find();
+
+        return (isBankSender && hasAmount) || (hasAmount && (hasTransaction || hasAccount));
+    }
+
+    /**
+     * Extract a transaction from the message body, or null if there is no usable amount.
+     */
+    public static Transaction parse(String body, String sender, long timestamp) {
+        try {
+            Matcher amtMatcher = AMOUNT_PATTERN.matcher(body);
+            if (!amtMatcher.find()) return null;
+            double amount = Double.parseDouble(amtMatcher.group(1).replace(",", ""));
+            if (amount <= 0) return null;
+
+            // Type
+            String type = Transaction.TYPE_DEBIT;
+            if (CREDIT_PATTERN.matcher(body).find()) {
+                type = Transaction.TYPE_CREDIT;
+            }
+
+            // Account
+            String account = "";
+            Matcher accMatcher = ACCOUNT_PATTERN.matcher(body);
+            if (accMatcher.find()) {
+                account = "XX" + accMatcher.group(1);
+            }
+
+            // Payment method
+            String method = "";
+            Matcher upiMatcher = UPI_PATTERN.matcher(body);
+            if (upiMatcher.find()) {
+                method = upiMatcher.group().toUpperCase();
+            }
+
+            // Merchant
+            String merchant = "";
+            Matcher merchMatcher = MERCHANT_PATTERN.matcher(body);
+            if (merchMatcher.find()) {
+                merchant = merchMatcher.group(1).trim()
+                        .replaceAll("\\s+on$|\\s+at$|\\s+dated$", "").trim();
+            }
+
+            // Balance
+            double balance = -1;
+            Matcher balMatcher = BALANCE_PATTERN.matcher(body);
+            if (balMatcher.find()) {
+                balance = Double.parseDouble(balMatcher.group(1).replace(",", ""));
+            }
+
+            // Date
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+            String dateStr = sdf.format(new Date(timestamp));
+
+            return new Transaction(amount, type, account, method, merchant, balance, dateStr,
+                    timestamp, sender, body);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
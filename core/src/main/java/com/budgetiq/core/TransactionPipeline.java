@@ -0,0 +1,111 @@
+package com.budgetiq.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The notification-to-store path: classify the posting app, pick the message body,
+ * check it looks like a transaction, parse it and store it (duplicates are dropped).
+ *
+ * TransactionNotificationListener feeds it from StatusBarNotification extras; anything
+ * else (benchmarks, replay) can feed it plain strings.
+ *
+ * Every notification is counted under exactly one outcome (filtered, empty, notTransaction,
+ * unparsed, duplicate, stored) and each stage it reaches is timed, into the registry given
+ * at construction:
+ *
+ *   counters:  seen, filtered, empty, notTransaction, unparsed, duplicate, stored
+ *   latency:   classify (app filter + keyword check, messaging apps only), parse, store, total
+ */
+public final class TransactionPipeline {
+
+    private final TransactionRepository repository;
+
+    private final LongAdder seen;
+    private final LongAdder filtered;
+    private final LongAdder empty;
+    private final LongAdder notTransaction;
+    private final LongAdder unparsed;
+    private final LongAdder duplicate;
+    private final LongAdder stored;
+    private final Histogram classifyTime;
+    private final Histogram parseTime;
+    private final Histogram storeTime;
+    private final Histogram totalTime;
+
+    public TransactionPipeline(TransactionRepository repository) {
+        this(repository, new MetricsRegistry());
+    }
+
+    public TransactionPipeline(TransactionRepository repository, MetricsRegistry metrics) {
+        this.repository = repository;
+        seen = metrics.counter("seen");
+        filtered = metrics.counter("filtered");
+        empty = metrics.counter("empty");
+        notTransaction = metrics.counter("notTransaction");
+        unparsed = metrics.counter("unparsed");
+        duplicate = metrics.counter("duplicate");
+        stored = metrics.counter("stored");
+        classifyTime = metrics.histogram("classify");
+        parseTime = metrics.histogram("parse");
+        storeTime = metrics.histogram("store");
+        totalTime = metrics.histogram("total");
+    }
+
+    /**
+     * Run one notification through the pipeline.
+     * @param bigText expanded text, preferred over text when present (full SMS content)
+     * @return the newly stored transaction, or null if it wasn't one or was a duplicate
+     */
+    public Transaction process(String packageName, String title, String text, String bigText,
+                               long postTime) {
+        long start = System.nanoTime();
+        seen.increment();
+        try {
+            return run(packageName, title, text, bigText, postTime, start);
+        } finally {
+            totalTime.recordSince(start);
+        }
+    }
+
+    private Transaction run(String packageName, String title, String text, String bigText,
+                            long postTime, long start) {
+        // Only process notifications from messaging apps
+        if (!TransactionParser.isMessagingApp(packageName)) {
+            filtered.increment();
+            return null;
+        }
+
+        String body = (bigText != null && !bigText.isEmpty()) ? bigText : text;
+        if (body == null || body.isEmpty()) {
+            empty.increment();
+            return null;
+        }
+        if (title == null) title = "";
+
+        // Check if this looks like a bank transaction
+        boolean isTransaction = TransactionParser.isBankTransaction(title, body);
+        long classified = System.nanoTime();
+        classifyTime.record(classified - start);
+        if (!isTransaction) {
+            notTransaction.increment();
+            return null;
+        }
+
+        Transaction txn = TransactionParser.parse(body, title, postTime);
+        long parsed = System.nanoTime();
+        parseTime.record(parsed - classified);
+        if (txn == null) {
+            unparsed.increment();
+            return null;
+        }
+
+        boolean added = repository.add(txn);
+        storeTime.recordSince(parsed);
+        if (!added) {
+            duplicate.increment();
+            return null;
+        }
+        stored.increment();
+        return txn;
+    }
+}
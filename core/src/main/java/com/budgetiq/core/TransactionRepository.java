@@ -0,0 +1,47 @@
+package com.budgetiq.core;
+
+import java.util.List;
+
+/**
+ * Store for detected transactions, written by the notification listener and read by
+ * the web app bridges. Implementations are thread-safe.
+ *
+ * Returned lists are snapshots; their elements are the stored instances, so callers
+ * must not modify them.
+ */
+public interface TransactionRepository {
+
+    /**
+     * Store a parsed transaction. Returns false if it was a duplicate (same timestamp + amount).
+     */
+    boolean add(Transaction txn);
+
+    /**
+     * Transactions newer than the given timestamp, optionally only unprocessed ones, oldest first.
+     */
+    List<Transaction> getSince(long sinceTimestamp, boolean unprocessedOnly);
+
+    /**
+     * Mark transactions with the given timestamps as processed.
+     */
+    void markProcessed(long[] timestamps);
+
+    /**
+     * Record a user action ("category", "personal", "ignore") taken outside the web app and
+     * flag the transaction syncPending. Returns a copy of the transaction as it was before,
+     * or null if not found.
+     */
+    Transaction applyAction(long timestamp, String action, String category);
+
+    /**
+     * Transactions with actions the web app hasn't picked up yet.
+     */
+    List<Transaction> getPendingSync();
+
+    /**
+     * Clear syncPending on the transactions with the given timestamps.
+     */
+    void ackSynced(long[] timestamps);
+
+    int size();
+}
@@ -0,0 +1,172 @@
+package com.budgetiq.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes the buffer at the offsets the class doc (and the page's typed-array views) use.
+ */
+public class ColumnarTransactionEncoderTest {
+
+    private static Transaction txn(long timestamp, double amount, String type, String merchant,
+                                   String account, boolean processed) {
+        Transaction txn = new Transaction(amount, type, account, "UPI", merchant, -1, "2024-05-01",
+                timestamp, "HDFCBK", "");
+        txn.setProcessed(processed);
+        return txn;
+    }
+
+    /** The decoded buffer, read exactly as the JS side does. */
+    private static final class Decoded {
+        int n;
+        double[] timestamps;
+        double[] paise;
+        int[] merchantIds;
+        int[] accountIds;
+        int[] flags;
+        List<String> merchants;
+        List<String> accounts;
+    }
+
+    private static Decoded decode(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("BIQC", new String(bytes, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(ColumnarTransactionEncoder.VERSION, buf.getShort(4));
+        assertEquals(0, buf.getShort(6));
+        assertEquals(0, buf.getInt(12));
+
+        Decoded d = new Decoded();
+        int n = d.n = buf.getInt(8);
+        d.timestamps = new double[n];
+        d.paise = new double[n];
+        d.merchantIds = new int[n];
+        d.accountIds = new int[n];
+        d.flags = new int[n];
+        for (int i = 0; i < n; i++) {
+            d.timestamps[i] = buf.getDouble(16 + 8 * i);
+            d.paise[i] = buf.getDouble(16 + 8 * n + 8 * i);
+            d.merchantIds[i] = buf.getInt(16 + 16 * n + 4 * i);
+            d.accountIds[i] = buf.getInt(16 + 20 * n + 4 * i);
+            d.flags[i] = buf.get(16 + 24 * n + i) & 0xFF;
+        }
+        // Flags are padded to 8 bytes, with zeros
+        int flagsPadded = (n + 7) / 8 * 8;
+        for (int i = n; i < flagsPadded; i++) assertEquals(0, buf.get(16 + 24 * n + i));
+
+        buf.position(16 + 24 * n + flagsPadded);
+        d.merchants = readDictionary(buf);
+        d.accounts = readDictionary(buf);
+        assertFalse("trailing bytes", buf.hasRemaining());
+        return d;
+    }
+
+    private static List<String> readDictionary(ByteBuffer buf) {
+        int count = buf.getInt();
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] entry = new byte[buf.getShort() & 0xFFFF];
+            buf.get(entry);
+            entries.add(new String(entry, StandardCharsets.UTF_8));
+        }
+        return entries;
+    }
+
+    @Test
+    public void emptyList() {
+        byte[] bytes = ColumnarTransactionEncoder.encode(Collections.<Transaction>emptyList());
+
+        assertEquals(16 + 4 + 4, bytes.length); // Header and two empty dictionaries
+        Decoded d = decode(bytes);
+        assertEquals(0, d.n);
+        assertEquals(0, d.merchants.size());
+        assertEquals(0, d.accounts.size());
+    }
+
+    @Test
+    public void oddCountKeepsColumnsAligned() {
+        List<Transaction> txns = Arrays.asList(
+                txn(1714550400000L, 1250.5, Transaction.TYPE_DEBIT, "Swiggy", "XX1234", false),
+                txn(1714550460000L, 0.1, Transaction.TYPE_CREDIT, "Zomato", "XX1234", true),
+                txn(1714550520000L, 99999.99, Transaction.TYPE_DEBIT, "Swiggy", "XX9876", true));
+
+        byte[] bytes = ColumnarTransactionEncoder.encode(txns);
+        Decoded d = decode(bytes);
+
+        assertEquals(3, d.n);
+        // Header, 2 f64 and 2 i32 columns, 3 flags padded to 8, two dictionaries
+        assertEquals(16 + 24 * 3 + 8 + (4 + 2 * 2 + 6 + 6) + (4 + 2 * 2 + 6 + 6), bytes.length);
+        assertEquals(1714550400000.0, d.timestamps[0], 0);
+        assertEquals(1714550520000.0, d.timestamps[2], 0);
+        assertEquals(125050.0, d.paise[0], 0);
+        assertEquals(10.0, d.paise[1], 0);
+        assertEquals(9999999.0, d.paise[2], 0);
+        assertEquals(0, d.flags[0]);
+        assertEquals(ColumnarTransactionEncoder.FLAG_CREDIT | ColumnarTransactionEncoder.FLAG_PROCESSED,
+                d.flags[1]);
+        assertEquals(ColumnarTransactionEncoder.FLAG_PROCESSED, d.flags[2]);
+    }
+
+    @Test
+    public void repeatedMerchantsShareOneDictionaryEntry() {
+        List<Transaction> txns = Arrays.asList(
+                txn(1, 1, Transaction.TYPE_DEBIT, "Swiggy", "XX1234", false),
+                txn(2, 2, Transaction.TYPE_DEBIT, "Café ₹ Bazaar", "XX1234", false),
+                txn(3, 3, Transaction.TYPE_DEBIT, "Swiggy", "XX1234", false),
+                txn(4, 4, Transaction.TYPE_DEBIT, "Swiggy", "XX5678", false));
+
+        Decoded d = decode(ColumnarTransactionEncoder.encode(txns));
+
+        assertEquals(Arrays.asList("Swiggy", "Café ₹ Bazaar"), d.merchants);
+        assertEquals(Arrays.asList("XX1234", "XX5678"), d.accounts);
+        assertEquals(0, d.merchantIds[0]);
+        assertEquals(1, d.merchantIds[1]);
+        assertEquals(0, d.merchantIds[2]);
+        assertEquals(0, d.merchantIds[3]);
+        assertEquals(0, d.accountIds[2]);
+        assertEquals(1, d.accountIds[3]);
+    }
+
+    @Test
+    public void missingMerchantAndAccountAreMinusOne() {
+        List<Transaction> txns = Arrays.asList(
+                txn(1, 1, Transaction.TYPE_DEBIT, "", "", false),
+                txn(2, 2, Transaction.TYPE_DEBIT, "Swiggy", "", false),
+                txn(3, 3, Transaction.TYPE_DEBIT, "", "XX1234", false),
+                txn(4, 4, Transaction.TYPE_DEBIT, "", "", false),
+                txn(5, 5, Transaction.TYPE_DEBIT, "", "", false));
+
+        Decoded d = decode(ColumnarTransactionEncoder.encode(txns));
+
+        assertEquals(5, d.n);
+        assertEquals(-1, d.merchantIds[0]);
+        assertEquals(0, d.merchantIds[1]);
+        assertEquals(-1, d.merchantIds[2]);
+        assertEquals(-1, d.accountIds[0]);
+        assertEquals(-1, d.accountIds[1]);
+        assertEquals(0, d.accountIds[2]);
+        assertEquals(Collections.singletonList("Swiggy"), d.merchants);
+        assertEquals(Collections.singletonList("XX1234"), d.accounts);
+    }
+
+    @Test
+    public void fullFlagBlockNeedsNoPadding() {
+        List<Transaction> txns = new ArrayList<>();
+        for (int i = 0; i < 8; i++) txns.add(txn(i, i, Transaction.TYPE_CREDIT, "M", "A", false));
+
+        byte[] bytes = ColumnarTransactionEncoder.encode(txns);
+
+        assertEquals(16 + 24 * 8 + 8 + (4 + 2 + 1) * 2, bytes.length);
+        Decoded d = decode(bytes);
+        for (int flag : d.flags) assertEquals(ColumnarTransactionEncoder.FLAG_CREDIT, flag);
+    }
+}
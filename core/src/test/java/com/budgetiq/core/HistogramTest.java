@@ -0,0 +1,55 @@
+package com.budgetiq.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void everyValueFallsInsideItsBucket() {
+        int previous = -1;
+        for (long micros = 0; micros < 1_000_000; micros += 1 + micros / 64) {
+            int index = Histogram.index(micros);
+            assertTrue(index >= previous); // Monotonic
+            previous = index;
+            long upper = Histogram.upperBound(index);
+            assertTrue(micros < upper);
+            // Within 25% of the value above the linear range
+            assertTrue(upper - micros <= Math.max(1, micros / 4));
+        }
+    }
+
+    @Test
+    public void percentilesOfAKnownDistribution() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i * 1000L); // 1..1000 us
+
+        Histogram.Snapshot s = histogram.snapshot();
+        assertEquals(1000, s.count);
+        assertEquals(500, s.meanMicros);
+        assertEquals(1000, s.maxMicros);
+        assertWithin(500, s.percentileMicros(50));
+        assertWithin(900, s.percentileMicros(90));
+        assertWithin(990, s.percentileMicros(99));
+        assertEquals(1000, s.percentileMicros(100));
+    }
+
+    @Test
+    public void emptyAndHugeValues() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.snapshot().percentileMicros(99));
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        Histogram.Snapshot s = histogram.snapshot();
+        assertEquals(2, s.count);
+        assertEquals(1, s.percentileMicros(50));
+        assertEquals(s.maxMicros, s.percentileMicros(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " for " + expected, actual >= expected && actual <= expected * 5 / 4);
+    }
+}
@@ -0,0 +1,131 @@
+package com.budgetiq.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class JsonTransactionRepositoryTest {
+
+    private static final String KEY = "pending_transactions";
+    private static final int CAPACITY = 100;
+
+    private final MapKeyValueStore storage = new MapKeyValueStore();
+
+    private JsonTransactionRepository newRepository() {
+        return new JsonTransactionRepository(storage, KEY, CAPACITY);
+    }
+
+    private static Transaction txn(long timestamp, double amount) {
+        return new Transaction(amount, Transaction.TYPE_DEBIT, "XX1234", "UPI", "Shop", -1,
+                "2024-05-01", timestamp, "HDFCBK", "Rs." + amount + " debited");
+    }
+
+    // ==================== CAPACITY ====================
+
+    @Test
+    public void keepsTheMostRecentHundred() {
+        JsonTransactionRepository repo = newRepository();
+        for (int i = 1; i <= 150; i++) assertTrue(repo.add(txn(i, i)));
+
+        assertEquals(CAPACITY, repo.size());
+        List<Transaction> all = repo.getSince(0, false);
+        assertEquals(51, all.get(0).getTimestamp());
+        assertEquals(150, all.get(CAPACITY - 1).getTimestamp());
+
+        // What was written has the same cap
+        assertEquals(CAPACITY, TransactionJson.parseArray(storage.get(KEY)).size());
+    }
+
+    @Test
+    public void duplicatesAreRejected() {
+        JsonTransactionRepository repo = newRepository();
+        assertTrue(repo.add(txn(1, 10)));
+        assertFalse(repo.add(txn(1, 10)));        // Same post, re-delivered
+        assertTrue(repo.add(txn(1, 11)));         // Same time, different amount
+        assertEquals(2, repo.size());
+    }
+
+    @Test
+    public void evictedTransactionsLeaveTheDedupIndex() {
+        JsonTransactionRepository repo = newRepository();
+        for (int i = 1; i <= CAPACITY + 1; i++) repo.add(txn(i, i));
+
+        // #1 was evicted, so it is new again (and evicts #2); #3 is still stored
+        assertTrue(repo.add(txn(1, 1)));
+        assertFalse(repo.add(txn(3, 3)));
+        assertEquals(CAPACITY, repo.size());
+    }
+
+    @Test
+    public void dedupIndexTracksAddAndRemove() {
+        DedupIndex index = new DedupIndex(4);
+        assertTrue(index.add(1, 10));
+        assertFalse(index.add(1, 10));
+        assertTrue(index.contains(1, 10));
+        assertTrue(index.add(0, 0.0));
+        assertFalse(index.add(0, -0.0)); // -0.0 and 0.0 are the same amount
+        index.remove(1, 10);
+        assertFalse(index.contains(1, 10));
+        assertEquals(1, index.size());
+    }
+
+    // ==================== PERSISTENCE ====================
+
+    @Test
+    public void reloadsWhatItWrote() {
+        JsonTransactionRepository repo = newRepository();
+        for (int i = 1; i <= 5; i++) repo.add(txn(i * 1000L, i));
+        repo.markProcessed(new long[] {2000, 3000});
+        repo.applyAction(4000, "category", "Food");
+
+        JsonTransactionRepository reloaded = newRepository();
+        assertEquals(5, reloaded.size());
+        assertEquals(3, reloaded.getSince(0, true).size());
+        List<Transaction> pending = reloaded.getPendingSync();
+        assertEquals(1, pending.size());
+        assertEquals("Food", pending.get(0).getCategory());
+        assertFalse(reloaded.add(txn(5000, 5))); // Index rebuilt from storage
+
+        reloaded.ackSynced(new long[] {4000});
+        assertTrue(newRepository().getPendingSync().isEmpty());
+    }
+
+    @Test
+    public void trimMemoryReloadsFromStorage() {
+        JsonTransactionRepository repo = newRepository();
+        repo.add(txn(1, 1));
+        repo.trimMemory();
+        assertEquals(1, repo.size());
+        assertFalse(repo.add(txn(1, 1)));
+    }
+
+    @Test
+    public void corruptHistoryIsBackedUpAndNeverOverwritten() {
+        String stored = "[{\"amount\":1250,\"timestamp\":1714550400000},{\"amount\":";
+        storage.put(KEY, stored);
+        JsonTransactionRepository repo = newRepository();
+
+        assertEquals(0, repo.size());
+        assertTrue(repo.isCorrupt());
+        assertEquals(stored, storage.get(KEY + JsonTransactionRepository.BACKUP_SUFFIX));
+
+        // Works in memory, but the stored history stays as it was
+        assertTrue(repo.add(txn(1, 1)));
+        repo.markProcessed(new long[] {1});
+        assertEquals(1, repo.size());
+        assertEquals(stored, storage.get(KEY));
+    }
+
+    @Test
+    public void readableHistoryIsNotBackedUp() {
+        JsonTransactionRepository repo = newRepository();
+        repo.add(txn(1, 1));
+        assertFalse(newRepository().isCorrupt());
+        assertNull(storage.get(KEY + JsonTransactionRepository.BACKUP_SUFFIX));
+    }
+}
@@ -0,0 +1,185 @@
+package com.budgetiq.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionJsonTest {
+
+    // ==================== READING org.json OUTPUT ====================
+
+    /**
+     * What Android's org.json wrote before TransactionJson: every '/' escaped, control
+     * characters as \\uXXXX, and values as the web app sent them.
+     */
+    @Test
+    public void readsAndroidOrgJsonOutput() {
+        String stored = "[{\"amount\":1250,\"type\":\"debit\",\"account\":\"XX1234\",\"method\":\"UPI\","
+                + "\"merchant\":\"Swiggy\\/Instamart\",\"balance\":-1,\"date\":\"2024-05-01\","
+                + "\"timestamp\":1714550400000,\"sender\":\"HDFCBK\","
+                + "\"body\":\"Rs.1250 debited\\nRef \\\"A\\/1\\\" \\u2028end\\t\\\\\","
+                + "\"processed\":false}]";
+
+        List<Transaction> txns = TransactionJson.parseArray(stored);
+
+        assertEquals(1, txns.size());
+        Transaction txn = txns.get(0);
+        assertEquals(1250.0, txn.getAmount(), 0);
+        assertEquals("debit", txn.getType());
+        assertEquals("Swiggy/Instamart", txn.getMerchant());
+        assertEquals(-1.0, txn.getBalance(), 0);
+        assertEquals(1714550400000L, txn.getTimestamp());
+        assertEquals("Rs.1250 debited\nRef \"A/1\"  end\t\\", txn.getBody());
+        assertFalse(txn.isProcessed());
+        assertEquals("", txn.getCategory());
+        assertFalse(txn.isSyncPending());
+    }
+
+    @Test
+    public void readsNumbersWrittenAsStrings() {
+        String stored = "[{\"amount\":\"1250.50\",\"balance\":\"98000\",\"timestamp\":1714550400000,"
+                + "\"actionAt\":\"oops\"}]";
+
+        Transaction txn = TransactionJson.parseArray(stored).get(0);
+
+        assertEquals(1250.5, txn.getAmount(), 0);
+        assertEquals(98000.0, txn.getBalance(), 0);
+        assertEquals(0, txn.getActionAt());
+    }
+
+    @Test
+    public void readsNullsAsDefaults() {
+        String stored = "[{\"amount\":null,\"type\":null,\"merchant\":null,\"timestamp\":5,"
+                + "\"processed\":null,\"category\":null,\"syncPending\":null}]";
+
+        Transaction txn = TransactionJson.parseArray(stored).get(0);
+
+        assertEquals(0.0, txn.getAmount(), 0);
+        assertEquals("", txn.getType());
+        assertEquals("", txn.getMerchant());
+        assertEquals("", txn.getCategory());
+        assertFalse(txn.isProcessed());
+        assertFalse(txn.isSyncPending());
+    }
+
+    @Test
+    public void skipsUnknownKeysAndNonObjects() {
+        String stored = "[ 7, \"x\", null, {},"
+                + " {\"extra\":{\"nested\":[1,{\"a\":\"}]\"}],\"flag\":true},\"timestamp\":9,\"amount\":1e3},"
+                + " {\"amount\":5} ]";
+
+        List<Transaction> txns = TransactionJson.parseArray(stored);
+
+        // {} and the object without a timestamp are dropped
+        assertEquals(1, txns.size());
+        assertEquals(9, txns.get(0).getTimestamp());
+        assertEquals(1000.0, txns.get(0).getAmount(), 0);
+    }
+
+    @Test
+    public void readsOutputOfOrgJsonLibrary() throws Exception {
+        JSONObject obj = new JSONObject();
+        obj.put("amount", 99.75);
+        obj.put("type", "credit");
+        obj.put("merchant", "</script> \"quoted\" \\ back");
+        obj.put("timestamp", 1714550400123L);
+        obj.put("processed", true);
+        obj.put("category", "Food");
+        obj.put("userAction", "category");
+        obj.put("actionAt", 1714551000000L);
+        obj.put("syncPending", true);
+        obj.put("unknown", new JSONArray().put(1).put("two"));
+        String stored = new JSONArray().put(obj).toString();
+
+        Transaction txn = TransactionJson.parseArray(stored).get(0);
+
+        assertEquals(99.75, txn.getAmount(), 0);
+        assertEquals("credit", txn.getType());
+        assertEquals("</script> \"quoted\" \\ back", txn.getMerchant());
+        assertEquals(1714550400123L, txn.getTimestamp());
+        assertTrue(txn.isProcessed());
+        assertEquals("Food", txn.getCategory());
+        assertEquals("category", txn.getUserAction());
+        assertEquals(1714551000000L, txn.getActionAt());
+        assertTrue(txn.isSyncPending());
+    }
+
+    @Test
+    public void rejectsInvalidJson() {
+        String[] invalid = {"", "{", "[", "[{\"timestamp\":1", "[{\"timestamp\":1}", "not json", "[1,]x"};
+        for (String json : invalid) {
+            try {
+                TransactionJson.parseArray(json);
+                fail("parsed: " + json);
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+
+    // ==================== ROUND TRIP ====================
+
+    @Test
+    public void roundTripsAllFields() {
+        Transaction txn = new Transaction(1250.5, Transaction.TYPE_DEBIT, "XX1234", "UPI",
+                "A/B \"Cafe\"", 98000, "2024-05-01", 1714550400000L, "AD-HDFCBK",
+                "line1\nline2\t\u0001   ₹");
+        txn.setProcessed(true);
+        txn.setCategory("Food");
+        txn.setUserAction("category");
+        txn.setActionAt(1714551000000L);
+        txn.setSyncPending(true);
+        Transaction plain = new Transaction(-0.0, Transaction.TYPE_CREDIT, "", "", "", -1, "",
+                1L, "", "");
+        List<Transaction> txns = new ArrayList<>();
+        txns.add(txn);
+        txns.add(plain);
+
+        List<Transaction> read = TransactionJson.parseArray(TransactionJson.toJson(txns));
+
+        assertEquals(2, read.size());
+        assertSame(txn, read.get(0));
+        assertSame(plain, read.get(1));
+    }
+
+    @Test
+    public void writesWhatOrgJsonReads() throws Exception {
+        Transaction txn = new Transaction(1250, Transaction.TYPE_DEBIT, "XX1234", "UPI",
+                "Swiggy", -1, "2024-05-01", 1714550400000L, "HDFCBK", "a\"b\\c\n ");
+
+        JSONObject obj = new JSONObject(TransactionJson.toJson(txn));
+
+        assertEquals(1250, obj.getInt("amount"));
+        assertEquals("a\"b\\c\n ", obj.getString("body"));
+        assertEquals(1714550400000L, obj.getLong("timestamp"));
+        assertFalse(obj.getBoolean("processed"));
+        assertFalse(obj.has("category")); // Optional keys only when set
+        assertFalse(obj.has("syncPending"));
+    }
+
+    private static void assertSame(Transaction expected, Transaction actual) {
+        assertEquals(expected.getAmount(), actual.getAmount(), 0);
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getAccount(), actual.getAccount());
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertEquals(expected.getMerchant(), actual.getMerchant());
+        assertEquals(expected.getBalance(), actual.getBalance(), 0);
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getSender(), actual.getSender());
+        assertEquals(expected.getBody(), actual.getBody());
+        assertEquals(expected.isProcessed(), actual.isProcessed());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getUserAction(), actual.getUserAction());
+        assertEquals(expected.getActionAt(), actual.getActionAt());
+        assertEquals(expected.isSyncPending(), actual.isSyncPending());
+    }
+}